@@ -0,0 +1,468 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToLongFunction;
+
+import org.openjdk.jmh.runner.RunnerException;
+
+import bench.Workload;
+import bench.Workloads;
+
+/**
+ * Workloads for the JMH benchmarks in the bench package, which cover matrix construction, solving the puzzle corpora
+ * (directly, under variant rules, in lockstep groups, through a solution cache, and with the logical techniques alone),
+ * enumerating solutions, making solved grids, branching strategies, generating puzzles, loading text, grid, and packed
+ * corpora, solving server requests, and batch throughput.
+ * <p>
+ * The benchmarks name a workload and its parameters, and this class builds it, since the benchmarks can't refer to the
+ * sudoku classes directly (see Workloads). Workloads over a corpus solve one puzzle per operation, cycling through it,
+ * so scores are per puzzle.
+ * <p>
+ * It's also the main class of the benchmark jar, which takes JMH's options. Build and run it from the repository root:
+ * <pre>
+ * mvn -B install
+ * mvn -B -f bench/pom.xml package
+ * java -jar bench/target/benchmarks.jar [REGEX]
+ * java -jar bench/target/benchmarks.jar -verify [-corpora bench/corpora]
+ * </pre>
+ * Unless the command line says otherwise, runs profile with -prof gc, which adds the bytes allocated per operation
+ * (gc.alloc.rate.norm) and the collections during measurement, and write their results as JSON to results.json
+ * (-rf json -rff results.json). Passing any -prof replaces the gc profiler, and passing -rf or -rff replaces both.
+ * The branching benchmarks sample every operation, so their results include the 99th percentile (p0.99) as well as the average.
+ * -verify checks that the canonical forms solveCached looks puzzles up by don't change under random transforms,
+ * and exits with status 1 if any check fails.
+ * <p>
+ * The vectorized solveLockstep benchmarks need the library built with mvn -B -Pvector install, and fail without it.
+ * <p>
+ * The corpora in bench/corpora hold one puzzle per line:
+ * easy (36 clue puzzles), minimal17 (known 17 clue puzzles), hardest (well known hard puzzles plus the slowest of
+ * 3000 generated minimal puzzles), multiple (more than one solution), invalid (no solution, although no two givens
+ * conflict directly), and minimal16x16. The system property sudoku.corpora points elsewhere.
+ */
+public class SudokuBenchmark implements Workloads {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	private static final String[] SOLVER_CORPORA = {"easy", "minimal17", "hardest", "multiple", "invalid", "minimal16x16"};
+
+	// Seeds cycled through by the generate and solvedGrid workloads, so every iteration does the same work
+	private static final int GENERATED_SEEDS = 20;
+
+	// Solutions pulled from each enumerator before the enumerate workload starts a new one
+	private static final int ENUMERATED_PER_ENUMERATOR = 1000;
+
+	// Complete grids checked by -verify alongside the 9x9 corpora, and random transforms of each puzzle it checks
+	private static final int VERIFIED_GRIDS = 4, VERIFIED_TRANSFORMS = 20;
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private Path corpora = Paths.get(System.getProperty("sudoku.corpora", Paths.get("bench", "corpora").toString()));
+
+	//***********************//
+	//***** Entry Point *****//
+	//***********************//
+
+	public static void main(String[] args) throws IOException, RunnerException {
+		if (args.length > 0 && args[0].equals("-verify")) {
+			SudokuBenchmark workloads = new SudokuBenchmark();
+			if (args.length == 3 && args[1].equals("-corpora"))
+				workloads.corpora = Paths.get(args[2]);
+			if (!workloads.verify())
+				System.exit(1);
+			return;
+		}
+		org.openjdk.jmh.Main.main(withDefaultOptions(args));
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	@Override
+	public Workload create(String benchmark, String... keysAndValues) throws IOException {
+		Map<String, String> params = params(keysAndValues);
+		switch (benchmark) {
+			case "construct":
+				return construct(params);
+			case "solve":
+			case "solveReusable":
+			case "solveVariant":
+			case "grade":
+			case "solveLockstep":
+			case "solveCached":
+				return solve(benchmark, params);
+			case "generate":
+			case "solvedGrid":
+			case "enumerate":
+				return generate(benchmark, params);
+			case "branching":
+				return branching(params);
+			case "load":
+			case "request":
+			case "batch":
+				return load(benchmark, params);
+			default:
+				throw new IllegalArgumentException("Unknown benchmark: " + benchmark);
+		}
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Builds a matrix construction workload. The node matrix is only ever built by the constructor, so it's given a complete
+	 * board, which leaves almost nothing to search, without the logical fast path, which would finish it with no matrix.
+	 * The array matrix is either built from scratch from its exact cover, or copied from the cached template every solver
+	 * of its size starts from
+	 */
+	private Workload construct(Map<String, String> params) {
+		SudokuManipulator.Engine engine = SudokuManipulator.Engine.valueOf(param(params, "engine"));
+		if (engine == SudokuManipulator.Engine.LINKED_NODES) {
+			int[][] complete = new SudokuSolver(new int[9][9], SudokuManipulator.Engine.ARRAY_DANCING_LINKS).getSolvedPuzzle();
+			return () -> new SudokuSolver(complete, SudokuManipulator.Engine.LINKED_NODES, false).checkValidity();
+		}
+		int boxSize = Integer.parseInt(param(params, "boxSize"));
+		String from = param(params, "from");
+		if (from.equals("scratch"))
+			return () -> DancingLinksMatrix.sudoku(new SudokuVariant(boxSize)).size.length;
+		if (!from.equals("template"))
+			throw new IllegalArgumentException("Unknown matrix source: " + from);
+		return () -> DancingLinksMatrix.sudoku(boxSize).size.length;
+	}
+
+	/**
+	 * Builds a workload which solves the puzzles of a corpus
+	 */
+	private Workload solve(String benchmark, Map<String, String> params) throws IOException {
+		List<int[][]> puzzles = readCorpus(param(params, "corpus"));
+		int boxSize = SudokuManipulator.getBoxSize(puzzles.get(0).length);
+		switch (benchmark) {
+			case "solve": {
+				// Without the logical fast path, so it compares the engines alone
+				SudokuManipulator.Engine engine = SudokuManipulator.Engine.valueOf(param(params, "engine"));
+				return cycle(puzzles, puzzle -> new SudokuSolver(puzzle, engine, false).checkValidity());
+			}
+			case "solveReusable": {
+				SudokuManipulator.Engine engine = SudokuManipulator.Engine.valueOf(param(params, "engine"));
+				ReusableSudokuSolver solver = new ReusableSudokuSolver(engine, boxSize).setLogicFirst(Boolean.parseBoolean(param(params, "logicFirst")));
+				return cycle(puzzles, solver::solve);
+			}
+			case "solveVariant": {
+				// The plain rules built as a SudokuVariant on ExactCover, which should match ARRAY_DANCING_LINKS with logicFirst=false,
+				// and sudoku X on the same puzzles, whose extra columns mostly prove them invalid
+				SudokuVariant variant = Boolean.parseBoolean(param(params, "diagonals")) ? new SudokuVariant(boxSize).withDiagonals() : new SudokuVariant(boxSize);
+				int[][] solution = new int[boxSize * boxSize][boxSize * boxSize];
+				return cycle(puzzles, puzzle -> variant.solve(puzzle, solution));
+			}
+			case "grade": {
+				// The logical techniques alone, which is all the fast path costs a puzzle it can't finish
+				LogicalSolver logic = new LogicalSolver(boxSize);
+				return cycle(puzzles, puzzle -> logic.solve(puzzle).ordinal());
+			}
+			case "solveLockstep": {
+				// One group of the corpus's puzzles, repeated to fill it, solved together every operation
+				LockstepSolver lockstep = new LockstepSolver(SudokuManipulator.Engine.BITBOARD, Boolean.parseBoolean(param(params, "vectorized")));
+				if (Boolean.parseBoolean(param(params, "vectorized")) && !lockstep.isVectorized())
+					throw new IllegalStateException("The Vector API isn't available: install the library with -Pvector");
+				int[][][] group = new int[Integer.parseInt(param(params, "group"))][][], solutions = new int[group.length][9][9];
+				for (int i = 0; i < group.length; i++)
+					group[i] = puzzles.get(i % puzzles.size());
+				int[] validities = new int[group.length];
+				return () -> {
+					lockstep.solve(group, group.length, validities, solutions);
+					return validities[0];
+				};
+			}
+			default: {
+				// A SolutionCache which holds the corpus after the first pass, so the score is the cost of a hit
+				SolutionCache cache = new SolutionCache(puzzles.size());
+				int[][] solution = new int[9][9];
+				return cycle(puzzles, puzzle -> cache.solve(puzzle, solution));
+			}
+		}
+	}
+
+	/**
+	 * Builds a workload which makes complete boards or puzzles, from the same seeds in turn so every iteration does the same work
+	 */
+	private Workload generate(String benchmark, Map<String, String> params) {
+		if (benchmark.equals("enumerate")) {
+			// The first solutions of an empty board, into new boards or into one reused buffer
+			boolean reused = Boolean.parseBoolean(param(params, "buffer"));
+			SolutionEnumerator[] solutions = new SolutionEnumerator[1];
+			return counted(op -> {
+				if (op % ENUMERATED_PER_ENUMERATOR == 0)
+					solutions[0] = new SolutionEnumerator(new int[9][9], reused ? new int[9][9] : null);
+				return solutions[0].next()[8][8];
+			});
+		}
+
+		// Transforming a SolvedGridFactory's seeds, or solving empty boards with the engine selected
+		String source = param(params, "source");
+		if (!source.equals("search") && !source.equals("seeds"))
+			throw new IllegalArgumentException("Unknown source: " + source);
+		boolean seeds = source.equals("seeds");
+		SolvedGridFactory grids = seeds ? new SolvedGridFactory(3, 16, new SplittableRandom(0)) : null;
+		if (params.containsKey("engine"))
+			SudokuManipulator.setEngine(SudokuManipulator.Engine.valueOf(params.get("engine")));
+		if (benchmark.equals("solvedGrid"))
+			return counted(op -> {
+				SplittableRandom random = new SplittableRandom(op % GENERATED_SEEDS);
+				return (seeds ? grids.next(random) : SudokuGenerator.generateSolvedGrid(random))[0][0];
+			});
+		return counted(op -> {
+			SplittableRandom random = new SplittableRandom(op % GENERATED_SEEDS);
+			SudokuGenerator generator = seeds
+				? new SudokuGenerator(grids.next(random), SudokuGenerator.MINIMAL, random)
+				: new SudokuGenerator(SudokuGenerator.MINIMAL, random);
+			return generator.getUnsolvedPuzzle()[0][0];
+		});
+	}
+
+	/**
+	 * Builds a branching strategy workload, which solves one puzzle of the hardest corpus in turn, or fills one empty
+	 * 16x16 board in a random order from a seed which changes with every operation
+	 */
+	private Workload branching(Map<String, String> params) throws IOException {
+		SudokuManipulator.Engine engine = SudokuManipulator.Engine.valueOf(param(params, "engine"));
+		BranchingStrategy strategy = parseStrategy(param(params, "strategy"));
+		if (param(params, "source").equals("empty16x16")) {
+			SudokuManipulator.setEngine(engine);
+			return counted(op -> SudokuGenerator.generateSolvedGrid(4, new SplittableRandom(op), strategy)[0][0]);
+		}
+		return cycle(readCorpus(param(params, "source")), puzzle -> new SudokuSolver(puzzle, engine, null, strategy).checkValidity());
+	}
+
+	/**
+	 * Builds a workload over the lines of the 9x9 corpora, which loads them, solves them as server requests, or solves
+	 * them in batches
+	 */
+	private Workload load(String benchmark, Map<String, String> params) throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (String corpus : new String[] {"easy", "minimal17", "hardest", "multiple", "invalid"})
+			lines.addAll(Files.readAllLines(corpora.resolve(corpus + ".txt"), StandardCharsets.US_ASCII));
+		String format = params.get("format");
+
+		if (benchmark.equals("load") && format.equals("packed")) {
+			// Read from a temporary packed copy, whose reader stays open for the life of the JVM
+			Path packed = Files.createTempFile("corpora", ".sdkp");
+			packed.toFile().deleteOnExit();
+			try (PackedPuzzleWriter writer = new PackedPuzzleWriter(packed, 3, false)) {
+				for (String line : lines)
+					writer.write(BatchSolver.parsePuzzle(line));
+			}
+			PackedPuzzleReader reader = new PackedPuzzleReader(packed);
+			int[][] board = new int[9][9];
+			return counted(op -> reader.readPuzzle(op % reader.size(), board)[0][0]);
+		}
+		if (benchmark.equals("load"))
+			return format.equals("grid") ? cycle(lines, line -> Grid.read(line).get(0, 0)) : cycle(lines, line -> BatchSolver.parsePuzzle(line)[0][0]);
+
+		if (benchmark.equals("request")) {
+			// A server SOLVE request without the network: parse the line, solve it with a reused solver, and format the reply,
+			// passing the boards as int[][] the way the server used to and as Grids the way it does now
+			ReusableSudokuSolver solver = new ReusableSudokuSolver(SudokuManipulator.Engine.BITBOARD);
+			if (format.equals("grid"))
+				return cycle(lines, line -> {
+					int validity = solver.solve(Grid.read(line));
+					Grid solution = solver.getSolvedGrid();
+					StringBuilder result = new StringBuilder(83).append(validity).append(' ');
+					return (solution == null ? result.append('-') : solution.appendTo(result)).toString().length();
+				});
+			return cycle(lines, line -> {
+				int[][] puzzle = BatchSolver.parsePuzzle(line), solution = new int[9][9];
+				int validity = solver.solve(puzzle);
+				solver.getSolvedPuzzle(solution);
+				StringBuilder result = new StringBuilder(83).append(validity).append(' ');
+				return (validity == 0 ? result.append('-') : BatchSolver.appendPuzzle(result, solution)).toString().length();
+			});
+		}
+
+		// Batches of lines cycled from the corpora, on every processor
+		StringBuilder batchInput = new StringBuilder();
+		for (int i = 0; i < Integer.parseInt(param(params, "lines")); i++)
+			batchInput.append(lines.get(i % lines.size())).append('\n');
+		String input = batchInput.toString();
+		SudokuManipulator.Engine engine = SudokuManipulator.Engine.valueOf(param(params, "engine"));
+		int threads = Runtime.getRuntime().availableProcessors();
+		return () -> {
+			try {
+				return new BatchSolver(engine, threads).run(new BufferedReader(new StringReader(input)), Writer.nullWriter());
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		};
+	}
+
+	/**
+	 * Checks the Canonicalizer behind solveCached, whose results would be wrong rather than slow if it broke.
+	 * Every random transform of a 9x9 corpus puzzle or a complete grid must have the same canonical form as the original,
+	 * and the transform canonicalize() returns must turn the puzzle it was given into that form
+	 *
+	 * @return Whether every check passed
+	 */
+	private boolean verify() throws IOException {
+		List<int[][]> puzzles = new ArrayList<>();
+		for (String corpus : SOLVER_CORPORA) {
+			List<int[][]> corpusPuzzles = readCorpus(corpus);
+			if (corpusPuzzles.get(0).length == 9)
+				puzzles.addAll(corpusPuzzles);
+		}
+		for (int seed = 0; seed < VERIFIED_GRIDS; seed++)
+			puzzles.add(SudokuGenerator.generateSolvedGrid(new SplittableRandom(seed)));
+
+		Canonicalizer canonicalizer = new Canonicalizer();
+		SplittableRandom random = new SplittableRandom(0);
+		int checks = 0, failures = 0;
+		for (int[][] puzzle : puzzles) {
+			SudokuTransform toCanonical = canonicalizer.canonicalize(puzzle);
+			String key = canonicalizer.getKey();
+			checks++;
+			if (!key.equals(canonicalKey(toCanonical.apply(puzzle)))) {
+				failures++;
+				System.out.println("Canonical transform doesn't give the canonical form of " + BatchSolver.appendPuzzle(new StringBuilder(), puzzle));
+			}
+			for (int i = 0; i < VERIFIED_TRANSFORMS; i++) {
+				int[][] transformed = SudokuTransform.random(3, random).apply(puzzle);
+				toCanonical = canonicalizer.canonicalize(transformed);
+				checks += 2;
+				if (!key.equals(canonicalizer.getKey())) {
+					failures++;
+					System.out.println("Transform changed the canonical form of " + BatchSolver.appendPuzzle(new StringBuilder(), puzzle));
+				}
+				if (!key.equals(canonicalKey(toCanonical.apply(transformed)))) {
+					failures++;
+					System.out.println("Canonical transform doesn't give the canonical form of " + BatchSolver.appendPuzzle(new StringBuilder(), transformed));
+				}
+			}
+		}
+		System.out.printf(Locale.ROOT, "Canonicalizer: %d checks on %d puzzles, %d failed%n", checks, puzzles.size(), failures);
+		return failures == 0;
+	}
+
+	/**
+	 * Reads a corpus file of one puzzle per line
+	 */
+	private List<int[][]> readCorpus(String name) throws IOException {
+		List<int[][]> puzzles = new ArrayList<>();
+		for (String line : Files.readAllLines(corpora.resolve(name + ".txt"), StandardCharsets.US_ASCII)) {
+			int[][] puzzle = BatchSolver.parsePuzzle(line.strip());
+			if (puzzle == null)
+				throw new IOException("Not a puzzle in corpus " + name + ": " + line);
+			puzzles.add(puzzle);
+		}
+		return puzzles;
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which makes a workload that runs an operation on each item in turn, starting over after the last
+	 */
+	private static <T> Workload cycle(List<T> items, ToLongFunction<T> operation) {
+		int[] next = {0};
+		return () -> {
+			T item = items.get(next[0]);
+			next[0] = next[0] + 1 < items.size() ? next[0] + 1 : 0;
+			return operation.applyAsLong(item);
+		};
+	}
+
+	/**
+	 * Static helper method which makes a workload that passes an operation the number of operations before it
+	 */
+	private static Workload counted(LongUnaryOperator operation) {
+		long[] next = {0};
+		return () -> operation.applyAsLong(next[0]++);
+	}
+
+	/**
+	 * Static helper method which reads a branching strategy from the benchmark parameter, which is either default
+	 * or a list of settings like ties=RANDOM+restarts=1000
+	 */
+	private static BranchingStrategy parseStrategy(String settings) {
+		BranchingStrategy strategy = new BranchingStrategy();
+		if (settings.equals("default"))
+			return strategy;
+		for (String setting : settings.split("\\+")) {
+			String[] keyAndValue = setting.split("=", 2);
+			switch (keyAndValue[0]) {
+				case "columns":
+					strategy.setColumnChoice(BranchingStrategy.ColumnChoice.valueOf(keyAndValue[1]));
+					break;
+				case "ties":
+					strategy.setTieBreak(BranchingStrategy.TieBreak.valueOf(keyAndValue[1]));
+					break;
+				case "values":
+					strategy.setValueOrder(BranchingStrategy.ValueOrder.valueOf(keyAndValue[1]));
+					break;
+				case "restarts":
+					strategy.setRestartUnit(Long.parseLong(keyAndValue[1]));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown branching setting: " + setting);
+			}
+		}
+		return strategy;
+	}
+
+	/**
+	 * Static helper method which writes a board the way Canonicalizer.getKey() does, one char per cell holding its value
+	 */
+	private static String canonicalKey(int[][] board) {
+		StringBuilder key = new StringBuilder(81);
+		for (int[] row : board)
+			for (int val : row)
+				key.append((char) val);
+		return key.toString();
+	}
+
+	/**
+	 * Static helper method which adds -prof gc and -rf json -rff results.json to JMH's options unless the caller passed
+	 * a profiler or a result format or file of their own
+	 */
+	private static String[] withDefaultOptions(String[] args) {
+		List<String> options = new ArrayList<>(List.of(args));
+		if (!options.contains("-prof"))
+			options.addAll(0, List.of("-prof", "gc"));
+		if (!options.contains("-rf") && !options.contains("-rff"))
+			options.addAll(0, List.of("-rf", "json", "-rff", "results.json"));
+		return options.toArray(new String[0]);
+	}
+
+	private static Map<String, String> params(String... keysAndValues) {
+		Map<String, String> params = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2)
+			params.put(keysAndValues[i], keysAndValues[i + 1]);
+		return params;
+	}
+
+	private static String param(Map<String, String> params, String key) {
+		String value = params.get(key);
+		if (value == null)
+			throw new IllegalArgumentException("Missing benchmark parameter: " + key);
+		return value;
+	}
+}
@@ -0,0 +1,251 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Load generator for SudokuServer, which keeps a number of connections busy with pipelined SOLVE (or BATCH) requests
+ * for a fixed time, then reports the throughput and the latency percentiles of the responses along with the server's metrics.
+ * <p>
+ * Without -port it starts a server of its own on a free local port, so a single command measures the whole round trip:
+ * <pre>
+ * mvn -B install
+ * mvn -B -f bench/pom.xml package
+ * java -cp bench/target/benchmarks.jar SudokuLoadGenerator [-host H] [-port P] [-threads N] [-connections C] [-depth D] [-batch B] [-seconds S] [-corpus FILE]
+ * </pre>
+ * Each connection keeps up to D requests outstanding, cycling through the puzzles of the corpus (bench/corpora/easy.txt by default)
+ * from its own starting point. With -batch, each request is a BATCH of B puzzles and latencies are per batch.
+ */
+public class SudokuLoadGenerator {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private String host;
+	private int port = -1, threads = Runtime.getRuntime().availableProcessors();
+	private int connections = 4, depth = 16, batch = 1;
+	private long seconds = 10;
+	private Path corpus = Paths.get("bench", "corpora", "easy.txt");
+
+	//***********************//
+	//***** Entry Point *****//
+	//***********************//
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		SudokuLoadGenerator generator = new SudokuLoadGenerator();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+				case "-host":
+					generator.host = args[i + 1];
+					break;
+				case "-port":
+					generator.port = Integer.parseInt(args[i + 1]);
+					break;
+				case "-threads":
+					generator.threads = Integer.parseInt(args[i + 1]);
+					break;
+				case "-connections":
+					generator.connections = Integer.parseInt(args[i + 1]);
+					break;
+				case "-depth":
+					generator.depth = Integer.parseInt(args[i + 1]);
+					break;
+				case "-batch":
+					generator.batch = Integer.parseInt(args[i + 1]);
+					break;
+				case "-seconds":
+					generator.seconds = Long.parseLong(args[i + 1]);
+					break;
+				case "-corpus":
+					generator.corpus = Paths.get(args[i + 1]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		generator.run();
+	}
+
+	//*********************//
+	//***** Load Test *****//
+	//*********************//
+
+	private void run() throws IOException, InterruptedException {
+		List<String> puzzles = new ArrayList<>();
+		for (String line : Files.readAllLines(corpus, StandardCharsets.US_ASCII))
+			if (!line.isBlank())
+				puzzles.add(line.strip());
+
+		SudokuServer server = null;
+		InetAddress address = host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+		if (port < 0) {
+			server = new SudokuServer(SudokuManipulator.Engine.BITBOARD, threads, 4 * threads).start(new InetSocketAddress(address, 0));
+			port = server.getPort();
+			System.out.printf("Started a server on port %d with %d workers and %s threads per connection%n", port, threads,
+				server.usesVirtualThreads() ? "virtual" : "platform");
+		}
+
+		try {
+			Connection[] clients = new Connection[connections];
+			long deadline = System.nanoTime() + (seconds * 1_000_000_000L);
+			long start = System.nanoTime();
+			for (int i = 0; i < connections; i++) {
+				clients[i] = new Connection(new Socket(address, port), puzzles, (i * puzzles.size()) / connections, deadline);
+				clients[i].start();
+			}
+			long responses = 0, errors = 0;
+			List<long[]> latencies = new ArrayList<>();
+			for (Connection client : clients) {
+				client.join();
+				if (client.failure != null)
+					throw new IOException("A connection failed", client.failure);
+				responses += client.responses;
+				errors += client.errors;
+				latencies.add(Arrays.copyOf(client.latencies, client.responses));
+			}
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+
+			System.out.printf("%d connections, %d deep, %d puzzle%s per request, %.1f s%n", connections, depth, batch, batch == 1 ? "" : "s", elapsed);
+			System.out.printf("%d requests (%d errors), %.0f requests/s, %.0f puzzles/s%n", responses, errors, responses / elapsed, responses * batch / elapsed);
+			if (all.length > 0)
+				System.out.printf("latency us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n", percentile(all, 0.5), percentile(all, 0.9),
+					percentile(all, 0.99), percentile(all, 0.999), all[all.length - 1] / 1e3);
+			System.out.println(requestMetrics(address));
+		} finally {
+			if (server != null)
+				server.close();
+		}
+	}
+
+	/**
+	 * Asks the server for its metrics on a connection of its own
+	 */
+	private String requestMetrics(InetAddress address) throws IOException {
+		try (Socket socket = new Socket(address, port);
+		     BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+		     Writer output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+			output.write("METRICS\nQUIT\n");
+			output.flush();
+			return input.readLine();
+		}
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which finds a percentile of sorted nanosecond latencies, in microseconds
+	 */
+	private static double percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))] / 1e3;
+	}
+
+	//*************************//
+	//***** Inner Classes *****//
+	//*************************//
+
+	/**
+	 * One client connection, which sends requests on its own thread and reads the responses on another,
+	 * keeping at most depth requests outstanding
+	 */
+	private class Connection extends Thread {
+		private final Socket socket;
+		private final List<String> puzzles;
+		private final long deadline;
+		private final Semaphore window = new Semaphore(depth);
+		// Send times of the outstanding requests, oldest first
+		private final Queue<Long> sent = new ConcurrentLinkedQueue<>();
+		private int next;
+
+		// Written by the reading thread, and read once both threads are done
+		private long[] latencies = new long[1024];
+		private int responses, errors;
+		private volatile Throwable failure;
+
+		Connection(Socket socket, List<String> puzzles, int first, long deadline) {
+			super("load-connection");
+			this.socket = socket;
+			this.puzzles = puzzles;
+			this.next = first;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void run() {
+			Thread reader = new Thread(this::readResponses, "load-reader");
+			try (socket; Writer output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), 1 << 16)) {
+				socket.setTcpNoDelay(true);
+				reader.start();
+				StringBuilder request = new StringBuilder();
+				while (System.nanoTime() < deadline && failure == null) {
+					// Only flush once the window is full, so requests go out in bulk while the server keeps up
+					if (!window.tryAcquire()) {
+						output.flush();
+						window.acquire();
+					}
+					request.setLength(0);
+					if (batch == 1)
+						request.append("SOLVE ").append(nextPuzzle()).append('\n');
+					else
+						for (int i = 0; i < batch; i++)
+							request.append(i == 0 ? "BATCH " + batch + "\n" : "").append(nextPuzzle()).append('\n');
+					sent.add(System.nanoTime());
+					output.write(request.toString());
+				}
+				output.flush();
+				window.acquire(depth);
+				output.write("QUIT\n");
+				output.flush();
+				reader.join();
+			} catch (IOException | InterruptedException e) {
+				failure = e;
+			}
+		}
+
+		private String nextPuzzle() {
+			String puzzle = puzzles.get(next);
+			next = (next + 1) % puzzles.size();
+			return puzzle;
+		}
+
+		private void readResponses() {
+			try {
+				BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), 1 << 16);
+				String line;
+				int linesLeft = batch;
+				while ((line = input.readLine()) != null) {
+					if (line.startsWith("ERR"))
+						errors++;
+					else if (--linesLeft > 0)
+						continue;
+					linesLeft = batch;
+					if (responses == latencies.length)
+						latencies = Arrays.copyOf(latencies, 2 * responses);
+					latencies[responses++] = System.nanoTime() - sent.remove();
+					window.release();
+				}
+			} catch (IOException e) {
+				if (!socket.isClosed())
+					failure = e;
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Batch throughput: a BatchSolver on every processor solving lines cycled from the 9x9 corpora, scored per line.
+ * The allocation -prof gc reports is only the benchmark thread's, not the workers'
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+	// Lines solved per batch
+	private static final int BATCH_LINES = 2000;
+
+	@State(Scope.Thread)
+	public static class Batch {
+		@Param({"ARRAY_DANCING_LINKS", "BITBOARD"})
+		public String engine;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("batch", "engine", engine, "lines", String.valueOf(BATCH_LINES));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_LINES)
+	public void batch(Batch state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Branching strategies, sampled for the 99th percentile as well as the average, since restarts and tie-breaks are
+ * about the worst searches as much as the typical one. A strategy is default or a list of settings, like ties=RANDOM+restarts=1000
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BranchingBenchmark {
+
+	/**
+	 * One puzzle of the hardest corpus in turn
+	 */
+	@State(Scope.Thread)
+	public static class Hardest {
+		@Param({"default", "ties=LAST", "ties=RANDOM", "ties=RANDOM+restarts=1000", "values=REVERSED", "values=SHUFFLED", "columns=FIRST_REMAINING"})
+		public String strategy;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("branching", "source", "hardest", "engine", "ARRAY_DANCING_LINKS", "strategy", strategy);
+		}
+	}
+
+	/**
+	 * One empty 16x16 board filled in a random order, from a seed which changes with every operation
+	 */
+	@State(Scope.Thread)
+	public static class Empty16x16 {
+		@Param({"default", "restarts=250", "restarts=1000", "restarts=4000", "ties=RANDOM", "ties=RANDOM+restarts=1000"})
+		public String strategy;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("branching", "source", "empty16x16", "engine", "ARRAY_DANCING_LINKS", "strategy", strategy);
+		}
+	}
+
+	@Benchmark
+	public void hardest(Hardest state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void empty16x16(Empty16x16 state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Matrix construction alone, for the node matrix and for the array matrix of each board size. The array matrix is timed
+ * both built from scratch and copied from the template which solvers of its size share, which is all a new solver pays
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructBenchmark {
+
+	@State(Scope.Thread)
+	public static class LinkedNodes {
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("construct", "engine", "LINKED_NODES");
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ArrayDancingLinks {
+		@Param({"3", "4", "5"})
+		public String boxSize;
+
+		Workload build, copy;
+
+		@Setup
+		public void setup() throws IOException {
+			build = Workloads.of("construct", "engine", "ARRAY_DANCING_LINKS", "boxSize", boxSize, "from", "scratch");
+			copy = Workloads.of("construct", "engine", "ARRAY_DANCING_LINKS", "boxSize", boxSize, "from", "template");
+		}
+	}
+
+	@Benchmark
+	public void linkedNodes(LinkedNodes state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void arrayDancingLinksBuild(ArrayDancingLinks state, Blackhole blackhole) {
+		blackhole.consume(state.build.run());
+	}
+
+	@Benchmark
+	public void arrayDancingLinksTemplateCopy(ArrayDancingLinks state, Blackhole blackhole) {
+		blackhole.consume(state.copy.run());
+	}
+}
@@ -0,0 +1,107 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Making complete boards and minimal puzzles, from a fixed set of seeds in turn so every iteration does the same work,
+ * and enumerating the solutions of an empty board
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerateBenchmark {
+
+	/**
+	 * Minimal puzzles generated end to end with an engine, from grids found by search or transformed from a SolvedGridFactory's seeds
+	 */
+	@State(Scope.Thread)
+	public static class Generate {
+		@Param({"LINKED_NODES", "ARRAY_DANCING_LINKS", "BITBOARD"})
+		public String engine;
+
+		@Param({"search", "seeds"})
+		public String source;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("generate", "engine", engine, "source", source);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class SolvedGrid {
+		@Param({"LINKED_NODES", "ARRAY_DANCING_LINKS", "BITBOARD"})
+		public String engine;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solvedGrid", "source", "search", "engine", engine);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class SolvedGridSeeds {
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solvedGrid", "source", "seeds");
+		}
+	}
+
+	/**
+	 * The first solutions of an empty board, into new boards or into one reused buffer
+	 */
+	@State(Scope.Thread)
+	public static class Enumerate {
+		@Param({"false", "true"})
+		public String buffer;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("enumerate", "buffer", buffer);
+		}
+	}
+
+	@Benchmark
+	public void generate(Generate state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void solvedGrid(SolvedGrid state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void solvedGridSeeds(SolvedGridSeeds state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void enumerate(Enumerate state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+}
@@ -0,0 +1,68 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loading the 9x9 corpora from text lines, as Grids, and from a packed file, and solving them as server requests,
+ * one puzzle per operation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+
+	@State(Scope.Thread)
+	public static class Load {
+		@Param({"text", "packed", "grid"})
+		public String format;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("load", "format", format);
+		}
+	}
+
+	/**
+	 * A SOLVE request without the network, passing the boards as int[][] or as Grids
+	 */
+	@State(Scope.Thread)
+	public static class Request {
+		@Param({"array", "grid"})
+		public String format;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("request", "format", format);
+		}
+	}
+
+	@Benchmark
+	public void load(Load state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void request(Request state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+}
@@ -0,0 +1,211 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Solving the puzzle corpora, one puzzle per operation: with each engine, with reused solvers, as SudokuVariants,
+ * with the logical techniques alone, in lockstep groups, and through a solution cache.
+ * The node matrix is left out of the 16x16 corpus, where a single puzzle can take seconds, and so is BITBOARD,
+ * which solves 16x16 boards with ARRAY_DANCING_LINKS
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolveBenchmark {
+
+	// Puzzles solved together by each solveLockstep operation
+	private static final int LOCKSTEP_GROUP = 32;
+
+	/**
+	 * A 9x9 corpus solved by a new SudokuSolver per puzzle, without the logical fast path so it compares the engines alone
+	 */
+	@State(Scope.Thread)
+	public static class Solve {
+		@Param({"easy", "minimal17", "hardest", "multiple", "invalid"})
+		public String corpus;
+
+		@Param({"LINKED_NODES", "ARRAY_DANCING_LINKS", "BITBOARD"})
+		public String engine;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solve", "corpus", corpus, "engine", engine);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Solve16x16 {
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solve", "corpus", "minimal16x16", "engine", "ARRAY_DANCING_LINKS");
+		}
+	}
+
+	/**
+	 * A 9x9 corpus solved by one ReusableSudokuSolver, with and without the logical fast path
+	 */
+	@State(Scope.Thread)
+	public static class SolveReusable {
+		@Param({"easy", "minimal17", "hardest", "multiple", "invalid"})
+		public String corpus;
+
+		@Param({"ARRAY_DANCING_LINKS", "BITBOARD"})
+		public String engine;
+
+		@Param({"true", "false"})
+		public String logicFirst;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solveReusable", "corpus", corpus, "engine", engine, "logicFirst", logicFirst);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class SolveReusable16x16 {
+		@Param({"true", "false"})
+		public String logicFirst;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solveReusable", "corpus", "minimal16x16", "engine", "ARRAY_DANCING_LINKS", "logicFirst", logicFirst);
+		}
+	}
+
+	/**
+	 * A corpus solved under the plain rules built as a SudokuVariant, and as sudoku X
+	 */
+	@State(Scope.Thread)
+	public static class SolveVariant {
+		@Param({"easy", "minimal17", "hardest", "multiple", "invalid", "minimal16x16"})
+		public String corpus;
+
+		@Param({"false", "true"})
+		public String diagonals;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solveVariant", "corpus", corpus, "diagonals", diagonals);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Grade {
+		@Param({"easy", "minimal17", "hardest", "multiple", "invalid", "minimal16x16"})
+		public String corpus;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("grade", "corpus", corpus);
+		}
+	}
+
+	/**
+	 * A group of a 9x9 corpus's puzzles solved together, with and without the Vector API, against solveReusable's one at a time
+	 */
+	@State(Scope.Thread)
+	public static class SolveLockstep {
+		@Param({"easy", "minimal17", "hardest", "multiple", "invalid"})
+		public String corpus;
+
+		@Param({"false", "true"})
+		public String vectorized;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solveLockstep", "corpus", corpus, "vectorized", vectorized, "group", String.valueOf(LOCKSTEP_GROUP));
+		}
+	}
+
+	/**
+	 * A 9x9 corpus solved through a SolutionCache which holds it after the first pass
+	 */
+	@State(Scope.Thread)
+	public static class SolveCached {
+		@Param({"easy", "minimal17", "hardest", "multiple", "invalid"})
+		public String corpus;
+
+		Workload workload;
+
+		@Setup
+		public void setup() throws IOException {
+			workload = Workloads.of("solveCached", "corpus", corpus);
+		}
+	}
+
+	@Benchmark
+	public void solve(Solve state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void solve16x16(Solve16x16 state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void solveReusable(SolveReusable state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void solveReusable16x16(SolveReusable16x16 state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void solveVariant(SolveVariant state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void grade(Grade state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	/**
+	 * Scored per puzzle. The vectorized cases need the library installed with -Pvector, and fail in setup without it
+	 */
+	@Benchmark
+	@OperationsPerInvocation(LOCKSTEP_GROUP)
+	@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+	public void solveLockstep(SolveLockstep state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+
+	@Benchmark
+	public void solveCached(SolveCached state, Blackhole blackhole) {
+		blackhole.consume(state.workload.run());
+	}
+}
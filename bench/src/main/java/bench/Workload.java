@@ -0,0 +1,15 @@
+package bench;
+
+/**
+ * One operation of a benchmark, such as solving the next puzzle of a corpus.
+ * A workload keeps its own position, so it belongs to a single thread's state
+ */
+public interface Workload {
+
+	/**
+	 * Runs the operation
+	 *
+	 * @return A value taken from the result, for the benchmark to consume so the JIT can't discard the work
+	 */
+	long run();
+}
@@ -0,0 +1,38 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * Builder of the workloads the benchmarks time.
+ * <p>
+ * JMH won't generate code for benchmarks in the default package, and a named package can't refer to the default package
+ * the sudoku classes are in. So the benchmarks here only name a workload and its parameters, and SudokuBenchmark,
+ * which is loaded by name, builds it.
+ */
+public interface Workloads {
+
+	/**
+	 * Builds a workload
+	 *
+	 * @param benchmark     The name of the benchmark, such as solve
+	 * @param keysAndValues The benchmark's parameters, each name followed by its value
+	 * @return A new workload
+	 * @throws IOException if a corpus can't be read
+	 */
+	Workload create(String benchmark, String... keysAndValues) throws IOException;
+
+	/**
+	 * Static helper method which builds a workload with SudokuBenchmark
+	 *
+	 * @see #create(String, String...)
+	 */
+	static Workload of(String benchmark, String... keysAndValues) throws IOException {
+		Workloads workloads;
+		try {
+			workloads = (Workloads) Class.forName("SudokuBenchmark").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("SudokuBenchmark isn't on the class path", e);
+		}
+		return workloads.create(benchmark, keysAndValues);
+	}
+}
@@ -0,0 +1,93 @@
+import java.util.Arrays;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BatchPropagator which keeps one puzzle in each lane of a ShortVector, so every step works on a cell of all of them at once.
+ * <p>
+ * It uses the incubating jdk.incubator.vector module, so it lives apart from the other sources and is built and run with the module added:
+ * <pre>
+ * javac -d out src/*.java
+ * javac --add-modules jdk.incubator.vector -cp out -d out src-incubator/*.java
+ * java --add-modules jdk.incubator.vector -cp out ...
+ * </pre>
+ * BatchPropagator.create() only loads it reflectively, so nothing else depends on it being built.
+ */
+final class VectorBatchPropagator extends BatchPropagator {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	// The single of each cell and lane which has already been ruled out of its peers, or 0
+	private final short[] placed = new short[81 * LANES];
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	@Override
+	int lanes() {
+		return LANES;
+	}
+
+	@Override
+	void propagate(short[] masks) {
+		Arrays.fill(placed, (short) 0);
+		ShortVector allBits = ShortVector.broadcast(SPECIES, (short) -1);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+
+			// Naked singles: in the lanes where a cell has a new single, rule it out of the cell's peers
+			for (int cell = 0; cell < 81; cell++) {
+				int offset = cell * LANES;
+				ShortVector mask = ShortVector.fromArray(SPECIES, masks, offset);
+				VectorMask<Short> single = mask.compare(VectorOperators.NE, 0)
+					.and(mask.and(mask.sub((short) 1)).compare(VectorOperators.EQ, 0))
+					.and(mask.compare(VectorOperators.NE, ShortVector.fromArray(SPECIES, placed, offset)));
+				if (!single.anyTrue())
+					continue;
+				changed = true;
+				mask.intoArray(placed, offset, single);
+				ShortVector keep = allBits.blend(mask.not(), single);
+				for (int peer : BitboardEngine.PEERS[cell]) {
+					int peerOffset = peer * LANES;
+					ShortVector.fromArray(SPECIES, masks, peerOffset).and(keep).intoArray(masks, peerOffset);
+				}
+			}
+
+			// Hidden singles: narrow the only cell of a unit which can hold a value down to that value
+			for (int[] unit : BitboardEngine.UNITS) {
+				ShortVector once = ShortVector.zero(SPECIES), twice = once;
+				for (int cell : unit) {
+					ShortVector mask = ShortVector.fromArray(SPECIES, masks, cell * LANES);
+					twice = twice.or(once.and(mask));
+					once = once.or(mask);
+				}
+				ShortVector singles = once.and(twice.not());
+				if (!singles.compare(VectorOperators.NE, 0).anyTrue())
+					continue;
+				for (int cell : unit) {
+					int offset = cell * LANES;
+					ShortVector mask = ShortVector.fromArray(SPECIES, masks, offset), hit = mask.and(singles);
+					VectorMask<Short> narrowed = hit.compare(VectorOperators.NE, 0).and(hit.compare(VectorOperators.NE, mask));
+					if (narrowed.anyTrue()) {
+						hit.intoArray(masks, offset, narrowed);
+						changed = true;
+					}
+				}
+			}
+		}
+	}
+}
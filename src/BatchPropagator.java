@@ -0,0 +1,57 @@
+/**
+ * Fills in the naked and hidden singles of a group of 9x9 puzzles in lockstep, one puzzle per lane.
+ * <p>
+ * Candidates are stored cell by cell with the masks of every lane for one cell next to each other, so
+ * masks[(cell * lanes()) + lane] holds the candidates of a cell in one puzzle, with bit (val - 1) set when val is
+ * still possible. A cell whose mask has a single bit is filled in, which is also how givens are loaded.
+ * Propagation only ever clears bits, so a lane that hits a contradiction just ends up with an empty mask somewhere
+ * while the other lanes carry on.
+ * <p>
+ * VectorBatchPropagator, which is built from src-incubator against jdk.incubator.vector, handles every lane of a cell
+ * with one vector operation. create() falls back to ScalarBatchPropagator when that class wasn't built or the module
+ * wasn't added to the runtime with --add-modules jdk.incubator.vector.
+ */
+abstract class BatchPropagator {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	static final short ALL = 0x1FF;
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which creates the fastest propagator available
+	 *
+	 * @param vectorized Whether to use the Vector API when it's available, which only makes sense to turn off for comparisons
+	 * @return A new propagator, which isn't thread safe
+	 */
+	static BatchPropagator create(boolean vectorized) {
+		if (vectorized)
+			try {
+				return (BatchPropagator) Class.forName("VectorBatchPropagator").getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				// Not built, or built but running without the incubator module
+			}
+		return new ScalarBatchPropagator();
+	}
+
+	//****************************//
+	//***** Abstract Methods *****//
+	//****************************//
+
+	/**
+	 * Gets the number of puzzles propagated together, which sizes the mask array
+	 */
+	abstract int lanes();
+
+	/**
+	 * Fills in naked and hidden singles until no lane has any left
+	 *
+	 * @param masks The candidates of every cell of every lane, 81 * lanes() of them, which are updated in place
+	 */
+	abstract void propagate(short[] masks);
+}
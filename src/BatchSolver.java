@@ -0,0 +1,366 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a stream of puzzles written one per line as 81 characters, with '0' or '.' for empty cells.
+ * Larger boards are written the same way with 256 characters for 16x16 or 625 for 25x25, using 'A' onwards
+ * for the values after 9, and any mix of sizes can share one input.
+ * Lines are solved in chunks across a pool of worker threads and the results are written in input order,
+ * one line per puzzle: the validity (0, 1, or 2) followed by a space and the solution, or "-" if there isn't one.
+ * Lines that aren't puzzles produce "x -".
+ * <p>
+ * Puzzles can also be read from and written to files in PackedPuzzleFormat, which skips parsing and formatting text.
+ * <p>
+ * Only a fixed number of chunks are ever in flight, so memory stays flat no matter how long the input is.
+ * With a SolutionCache, 9x9 puzzles are solved through it, so repeated and equivalent puzzles are only solved once.
+ * Otherwise, with lockstep solving on, the 9x9 puzzles of each chunk are solved together by a LockstepSolver.
+ */
+public class BatchSolver {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	private static final int CHUNK_SIZE = 512;
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	// Largest box size a line can hold, since values after 9 are written as the letters 'A' through 'Z'
+	static final int MAX_BOX_SIZE = 5;
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final SudokuManipulator.Engine engine;
+	private final int threads;
+	private SolutionCache cache;
+	private boolean lockstep;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param engine  The engine each worker solves with (any engine other than LINKED_NODES)
+	 * @param threads The number of worker threads
+	 * @throws IllegalArgumentException if the engine is LINKED_NODES
+	 */
+	public BatchSolver(SudokuManipulator.Engine engine, int threads) {
+		if (engine == SudokuManipulator.Engine.LINKED_NODES)
+			throw new IllegalArgumentException("LINKED_NODES can't be reused by the workers; use ARRAY_DANCING_LINKS or BITBOARD");
+		this.engine = engine;
+		this.threads = threads;
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Reads puzzles until the end of the input, writing a result line for each
+	 *
+	 * @param input  Source of puzzle lines
+	 * @param output Destination for result lines, which is flushed but not closed
+	 * @return The number of lines processed
+	 */
+	public long run(BufferedReader input, Writer output) throws IOException, InterruptedException {
+		// Each worker keeps one solver per board size, indexed by box size
+		ThreadLocal<ReusableSudokuSolver[]> solvers = ThreadLocal.withInitial(() -> new ReusableSudokuSolver[MAX_BOX_SIZE + 1]);
+		ThreadLocal<LockstepSolver> lockstepSolvers = ThreadLocal.withInitial(() -> new LockstepSolver(engine, true));
+		ExecutorService pool = newPool();
+		Queue<Future<String[]>> inFlight = new ArrayDeque<>();
+		long lines = 0;
+		try {
+			String[] chunk = new String[CHUNK_SIZE];
+			int count = 0;
+			String line;
+			while ((line = input.readLine()) != null) {
+				chunk[count++] = line;
+				lines++;
+				if (count == CHUNK_SIZE) {
+					// Hand the chunk off, first writing out the oldest one if too many are waiting
+					if (inFlight.size() >= threads * CHUNKS_PER_THREAD)
+						writeChunk(inFlight.remove(), output);
+					inFlight.add(submitChunk(pool, solvers, lockstepSolvers, chunk, count));
+					chunk = new String[CHUNK_SIZE];
+					count = 0;
+				}
+			}
+			if (count > 0)
+				inFlight.add(submitChunk(pool, solvers, lockstepSolvers, chunk, count));
+			while (!inFlight.isEmpty())
+				writeChunk(inFlight.remove(), output);
+			output.flush();
+		} finally {
+			pool.shutdownNow();
+		}
+		return lines;
+	}
+
+	/**
+	 * Solves every puzzle in a packed file, writing a record of each puzzle with its validity and solution in input order.
+	 * Each worker unpacks puzzles into boards it reuses and packs the results straight into a chunk of records,
+	 * so nothing is allocated per puzzle
+	 *
+	 * @param input  Source of puzzles
+	 * @param output Destination for the results, which must hold solutions to boards the size of the input's
+	 * @return The number of puzzles solved
+	 * @throws IllegalArgumentException if the output doesn't hold solutions or is for a different board size
+	 */
+	public long run(PackedPuzzleReader input, PackedPuzzleWriter output) throws IOException, InterruptedException {
+		int boxSize = input.getBoxSize();
+		if (!output.hasSolutions() || output.getBoxSize() != boxSize)
+			throw new IllegalArgumentException("The output must hold solutions to boards with a box size of " + boxSize);
+		ThreadLocal<ReusableSudokuSolver> solvers = ThreadLocal.withInitial(() -> new ReusableSudokuSolver(engine, boxSize));
+		ThreadLocal<LockstepBoards> lockstepBoards = ThreadLocal.withInitial(() -> new LockstepBoards(new LockstepSolver(engine, true)));
+		ExecutorService pool = newPool();
+		Queue<Future<byte[]>> inFlight = new ArrayDeque<>();
+		int recordSize = PackedPuzzleFormat.recordSize(boxSize * boxSize, true);
+		try {
+			for (long first = 0; first < input.size(); first += CHUNK_SIZE) {
+				if (inFlight.size() >= threads * CHUNKS_PER_THREAD)
+					writeChunk(inFlight.remove(), output, recordSize);
+				inFlight.add(submitChunk(pool, solvers, lockstepBoards, input, first, (int) Math.min(CHUNK_SIZE, input.size() - first)));
+			}
+			while (!inFlight.isEmpty())
+				writeChunk(inFlight.remove(), output, recordSize);
+		} finally {
+			pool.shutdownNow();
+		}
+		return input.size();
+	}
+
+	/**
+	 * Solves every later puzzle through a cache, which can be shared with other solvers
+	 *
+	 * @param cache The cache, or null to solve every puzzle directly
+	 */
+	public BatchSolver setCache(SolutionCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Solves the 9x9 puzzles of every later chunk together with a LockstepSolver, which propagates singles across
+	 * many puzzles at once and only searches the ones that need it. Ignored for puzzles going through a cache
+	 *
+	 * @param lockstep Whether to solve in lockstep, which is off by default
+	 */
+	public BatchSolver setLockstep(boolean lockstep) {
+		this.lockstep = lockstep;
+		return this;
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which parses a puzzle line of 81, 256, or 625 characters
+	 *
+	 * @return An N^2xN^2 2D int array, or null if the line isn't a puzzle
+	 */
+	static int[][] parsePuzzle(CharSequence line) {
+		int side = 0;
+		for (int boxSize = 3; boxSize <= MAX_BOX_SIZE; boxSize++)
+			if (boxSize * boxSize * boxSize * boxSize == line.length())
+				side = boxSize * boxSize;
+		if (side == 0)
+			return null;
+		int[][] puzzle = new int[side][side];
+		for (int i = 0; i < side * side; i++) {
+			int val = parseCell(line.charAt(i));
+			if (val < 0 || val > side)
+				return null;
+			puzzle[i / side][i % side] = val;
+		}
+		return puzzle;
+	}
+
+	/**
+	 * Static helper method which appends a puzzle as one character per cell with '0' for empty cells
+	 */
+	static StringBuilder appendPuzzle(StringBuilder builder, int[][] puzzle) {
+		for (int[] row : puzzle)
+			for (int val : row)
+				builder.append(toCellChar(val));
+		return builder;
+	}
+
+	/**
+	 * Static helper method which reads a cell's value from its character: '0' or '.' for empty, '1' through '9',
+	 * then 'A' (or 'a') for 10 onwards
+	 *
+	 * @return The value, or -1 if the character isn't a cell
+	 */
+	static int parseCell(char c) {
+		if (c == '.' || (c >= '0' && c <= '9'))
+			return c == '.' ? 0 : c - '0';
+		if (c >= 'A' && c <= 'Z')
+			return c - 'A' + 10;
+		if (c >= 'a' && c <= 'z')
+			return c - 'a' + 10;
+		return -1;
+	}
+
+	/**
+	 * Static helper method which writes a cell's value as a character, reversing parseCell()
+	 */
+	static char toCellChar(int val) {
+		return (char) (val < 10 ? '0' + val : 'A' + val - 10);
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	private ExecutorService newPool() {
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "batch-solver");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private Future<String[]> submitChunk(ExecutorService pool, ThreadLocal<ReusableSudokuSolver[]> solvers, ThreadLocal<LockstepSolver> lockstepSolvers,
+	                                     String[] chunk, int count) {
+		return pool.submit(() -> {
+			ReusableSudokuSolver[] solversBySize = solvers.get();
+			String[] results = new String[count];
+			int[][][] puzzles = new int[count][][];
+			for (int i = 0; i < count; i++)
+				puzzles[i] = parsePuzzle(chunk[i].strip());
+
+			// Solve the chunk's 9x9 puzzles together first, remembering where each one came from
+			int[] validities = null;
+			int[][][] solutions = null;
+			if (lockstep && cache == null) {
+				int[] positions = new int[count];
+				int[][][] grouped = new int[count][][];
+				int grouping = 0;
+				for (int i = 0; i < count; i++)
+					if (puzzles[i] != null && puzzles[i].length == 9) {
+						positions[grouping] = i;
+						grouped[grouping++] = puzzles[i];
+					}
+				int[] groupedValidities = new int[grouping];
+				int[][][] groupedSolutions = new int[grouping][9][9];
+				lockstepSolvers.get().solve(grouped, grouping, groupedValidities, groupedSolutions);
+				validities = new int[count];
+				solutions = new int[count][][];
+				for (int k = 0; k < grouping; k++) {
+					validities[positions[k]] = groupedValidities[k];
+					solutions[positions[k]] = groupedSolutions[k];
+				}
+			}
+
+			StringBuilder builder = new StringBuilder(84);
+			for (int i = 0; i < count; i++) {
+				builder.setLength(0);
+				int[][] puzzle = puzzles[i];
+				if (puzzle == null) {
+					builder.append("x -");
+				} else if (solutions != null && solutions[i] != null) {
+					builder.append(validities[i]).append(' ');
+					if (validities[i] == 0)
+						builder.append('-');
+					else
+						appendPuzzle(builder, solutions[i]);
+				} else if (cache != null) {
+					int[][] solution = new int[puzzle.length][puzzle.length];
+					int validity = cache.solve(puzzle, solution);
+					builder.append(validity).append(' ');
+					if (validity == 0)
+						builder.append('-');
+					else
+						appendPuzzle(builder, solution);
+				} else {
+					int boxSize = SudokuManipulator.getBoxSize(puzzle.length);
+					if (solversBySize[boxSize] == null)
+						solversBySize[boxSize] = new ReusableSudokuSolver(engine, boxSize);
+					ReusableSudokuSolver solver = solversBySize[boxSize];
+					builder.append(solver.solve(puzzle)).append(' ');
+					if (solver.getSolvedPuzzle() == null)
+						builder.append('-');
+					else
+						appendPuzzle(builder, solver.getSolvedPuzzle());
+				}
+				results[i] = builder.toString();
+			}
+			return results;
+		});
+	}
+
+	private Future<byte[]> submitChunk(ExecutorService pool, ThreadLocal<ReusableSudokuSolver> solvers, ThreadLocal<LockstepBoards> lockstepBoards,
+	                                   PackedPuzzleReader input, long first, int count) {
+		return pool.submit(() -> {
+			ReusableSudokuSolver solver = solvers.get();
+			int side = input.getBoxSize() * input.getBoxSize(), recordSize = PackedPuzzleFormat.recordSize(side, true);
+			int[][] puzzle = new int[side][side], solution = new int[side][side];
+			byte[] records = new byte[count * recordSize];
+			ByteBuffer buffer = ByteBuffer.wrap(records);
+			if (lockstep && cache == null && side == 9) {
+				LockstepBoards boards = lockstepBoards.get();
+				for (int i = 0; i < count; i++)
+					input.readPuzzle(first + i, boards.puzzles[i]);
+				boards.solver.solve(boards.puzzles, count, boards.validities, boards.solutions);
+				for (int i = 0; i < count; i++) {
+					int validity = boards.validities[i];
+					PackedPuzzleFormat.packRecord(buffer, i * recordSize, boards.puzzles[i], validity > 0 ? boards.solutions[i] : null, validity, true);
+				}
+				return records;
+			}
+			for (int i = 0; i < count; i++) {
+				input.readPuzzle(first + i, puzzle);
+				int validity = cache != null ? cache.solve(puzzle, solution) : solver.solve(puzzle);
+				if (cache == null)
+					solver.getSolvedPuzzle(solution);
+				PackedPuzzleFormat.packRecord(buffer, i * recordSize, puzzle, validity > 0 ? solution : null, validity, true);
+			}
+			return records;
+		});
+	}
+
+	private static void writeChunk(Future<byte[]> chunk, PackedPuzzleWriter output, int recordSize) throws IOException, InterruptedException {
+		try {
+			byte[] records = chunk.get();
+			output.writeRecords(records, records.length / recordSize);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to solve a chunk of puzzles", e.getCause());
+		}
+	}
+
+	private static void writeChunk(Future<String[]> chunk, Writer output) throws IOException, InterruptedException {
+		try {
+			for (String result : chunk.get()) {
+				output.write(result);
+				output.write('\n');
+			}
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to solve a chunk of puzzles", e.getCause());
+		}
+	}
+
+	/**
+	 * A worker's LockstepSolver with the boards it solves each chunk of a packed file in, which are reused for every chunk
+	 */
+	private static class LockstepBoards {
+		final LockstepSolver solver;
+		final int[][][] puzzles = new int[CHUNK_SIZE][9][9], solutions = new int[CHUNK_SIZE][9][9];
+		final int[] validities = new int[CHUNK_SIZE];
+
+		LockstepBoards(LockstepSolver solver) {
+			this.solver = solver;
+		}
+	}
+}
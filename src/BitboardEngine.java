@@ -0,0 +1,302 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * SudokuEngine which keeps a bitmask of candidate values for every cell, fills in naked and hidden singles
+ * until nothing else is forced, and only then branches on the cell with the fewest candidates.
+ * Bit (val - 1) of a mask is set when val is still possible.
+ */
+final class BitboardEngine implements SudokuEngine {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	private static final int ALL = 0x1FF;
+
+	// The 27 rows, columns, and boxes as lists of cell indices, and the 20 cells sharing a unit with each cell.
+	// Shared with the batch propagators, which treat them as read only
+	static final int[][] UNITS = new int[27][9];
+	static final int[][] PEERS = new int[81][20];
+
+	static {
+		for (int i = 0; i < 9; i++)
+			for (int j = 0; j < 9; j++) {
+				UNITS[i][j] = (i * 9) + j;
+				UNITS[9 + i][j] = (j * 9) + i;
+				UNITS[18 + i][j] = ((3 * (i / 3) + (j / 3)) * 9) + (3 * (i % 3) + (j % 3));
+			}
+		for (int cell = 0; cell < 81; cell++) {
+			int row = cell / 9, col = cell % 9, count = 0;
+			for (int other = 0; other < 81; other++) {
+				int otherRow = other / 9, otherCol = other % 9;
+				if (other != cell && (otherRow == row || otherCol == col || (otherRow / 3 == row / 3 && otherCol / 3 == col / 3)))
+					PEERS[cell][count++] = other;
+			}
+		}
+	}
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	// Value of each cell (0 if unknown) followed by the candidate mask of each cell, saved whole before every branch
+	private final int[] state = new int[162];
+	private final int[][] savedStates = new int[81][162];
+	private final int[][] branchPossibilities = new int[81][9];
+	private final int[] firstSolution = new int[81];
+	private long solutionsFound, solutionLimit;
+	private PossibilityOrder order;
+
+	// How cells are chosen, where null is the first cell with the fewest candidates
+	private BranchingStrategy branching;
+	private RandomGenerator branchingRandom;
+
+	// Limits on every search, and the count of the current search's nodes against them
+	private SolveBudget budget;
+	private final SolveBudget.Tracker tracker = new SolveBudget.Tracker();
+	private SolutionCount.Status lastStatus = SolutionCount.Status.EXACT;
+
+	// Destination for the counts of each solve, or null if solves aren't instrumented
+	private SolveStats stats;
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	@Override
+	public int solve(int[][] givens, int[][] solution, PossibilityOrder order) {
+		lastStatus = run(givens, 2, order, Long.MAX_VALUE);
+		if (solutionsFound > 0)
+			for (int cell = 0; cell < 81; cell++)
+				solution[cell / 9][cell % 9] = firstSolution[cell];
+		return (int) solutionsFound;
+	}
+
+	@Override
+	public void setSolveStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
+	@Override
+	public void setBudget(SolveBudget budget) {
+		this.budget = budget;
+	}
+
+	@Override
+	public void setBranching(BranchingStrategy branching, RandomGenerator random) {
+		this.branching = branching;
+		branchingRandom = random;
+	}
+
+	@Override
+	public SolutionCount.Status getLastStatus() {
+		return lastStatus;
+	}
+
+	@Override
+	public SolutionCount countSolutions(int[][] givens, long limit, long timeoutNanos) {
+		lastStatus = run(givens, limit, NATURAL_ORDER, timeoutNanos);
+		return new SolutionCount(solutionsFound, lastStatus);
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Places the givens and searches for solutions until the limit is reached or the budget runs out
+	 *
+	 * @return Why the search stopped
+	 * @throws IllegalArgumentException if the board isn't 9x9
+	 */
+	private SolutionCount.Status run(int[][] givens, long limit, PossibilityOrder order, long timeoutNanos) {
+		if (givens.length != 9)
+			throw new IllegalArgumentException("Expected a 9x9 board, not " + givens.length + " rows");
+		this.order = order;
+		solutionLimit = limit;
+		solutionsFound = 0;
+		tracker.start(budget, timeoutNanos);
+
+		// Start with every value possible everywhere, then place the givens
+		if (stats != null)
+			stats.startSetup();
+		for (int cell = 0; cell < 81; cell++) {
+			state[cell] = 0;
+			state[81 + cell] = ALL;
+		}
+		boolean consistent = true;
+		for (int cell = 0; cell < 81 && consistent; cell++) {
+			int val = givens[cell / 9][cell % 9];
+			if (val != 0)
+				consistent = place(cell, val);
+		}
+
+		if (stats != null)
+			stats.startSearch();
+		if (consistent)
+			search(0);
+		if (stats != null)
+			stats.endSearch(solutionsFound);
+		this.order = null;
+		return tracker.getStatus(solutionsFound, limit);
+	}
+
+	private void search(int depth) {
+		// Stop for good once the budget runs out
+		if (tracker.isExhausted())
+			return;
+		if (stats != null)
+			stats.recordNode(depth);
+		if (!propagate()) {
+			if (stats != null)
+				stats.backtracks++;
+			return;
+		}
+
+		// Find the unknown cell with the fewest candidates, unless a strategy says otherwise
+		int branchCell = -1, fewest = 10;
+		if (branching != null) {
+			branchCell = chooseCell(branching);
+		} else {
+			for (int cell = 0; cell < 81; cell++)
+				if (state[cell] == 0) {
+					int count = Integer.bitCount(state[81 + cell]);
+					if (count < fewest) {
+						fewest = count;
+						branchCell = cell;
+					}
+				}
+		}
+
+		// With no unknown cells left, the board is a solution
+		if (branchCell < 0) {
+			if (solutionsFound++ == 0)
+				System.arraycopy(state, 0, firstSolution, 0, 81);
+			return;
+		}
+
+		// List the possibilities for the cell and try each of them in turn
+		int[] possibilities = branchPossibilities[depth];
+		int count = 0;
+		for (int mask = state[81 + branchCell]; mask != 0; mask &= mask - 1)
+			possibilities[count++] = (9 * branchCell) + Integer.numberOfTrailingZeros(mask);
+		order.order(possibilities, count);
+		if (stats != null)
+			stats.recordBranch(count);
+
+		int[] saved = savedStates[depth];
+		System.arraycopy(state, 0, saved, 0, 162);
+		for (int i = 0; i < count && solutionsFound < solutionLimit && !tracker.isStopped(); i++) {
+			if (place(branchCell, (possibilities[i] % 9) + 1))
+				search(depth + 1);
+			else if (stats != null)
+				stats.backtracks++;
+			System.arraycopy(saved, 0, state, 0, 162);
+			if (stats != null)
+				stats.uncovers++;
+		}
+	}
+
+	/**
+	 * Chooses the unknown cell to branch on by the branching strategy's column choice and tie-break
+	 *
+	 * @return The cell, or -1 if every cell is known
+	 */
+	private int chooseCell(BranchingStrategy branching) {
+		int branchCell = -1, fewest = 10, ties = 0;
+		for (int cell = 0; cell < 81; cell++)
+			if (state[cell] == 0) {
+				if (branching.getColumnChoice() == BranchingStrategy.ColumnChoice.FIRST_REMAINING)
+					return cell;
+				int count = Integer.bitCount(state[81 + cell]);
+				if (count < fewest) {
+					fewest = count;
+					branchCell = cell;
+					ties = 1;
+				} else if (count == fewest) {
+					ties++;
+				}
+			}
+		if (ties <= 1)
+			return branchCell;
+
+		// The first cell with the fewest candidates comes before every cell tied with it
+		int pick = BranchingStrategy.pickTie(branching.getTieBreak(), ties, branchingRandom);
+		for (int cell = branchCell; ; cell++)
+			if (state[cell] == 0 && Integer.bitCount(state[81 + cell]) == fewest && pick-- == 0)
+				return cell;
+	}
+
+	/**
+	 * Fills in naked and hidden singles until none remain, only looking for hidden singles once the naked ones run out
+	 *
+	 * @return false if some cell or unit was left with no way to be completed
+	 */
+	private boolean propagate() {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+
+			// Naked singles: cells with exactly one candidate left
+			for (int cell = 0; cell < 81; cell++)
+				if (state[cell] == 0) {
+					int mask = state[81 + cell];
+					if (mask == 0)
+						return false;
+					if ((mask & (mask - 1)) == 0) {
+						if (!place(cell, Integer.numberOfTrailingZeros(mask) + 1))
+							return false;
+						changed = true;
+					}
+				}
+			if (changed)
+				continue;
+
+			// Hidden singles: values with exactly one place left in a unit
+			for (int[] unit : UNITS) {
+				int once = 0, twice = 0, placed = 0;
+				for (int cell : unit) {
+					int mask = state[cell] == 0 ? state[81 + cell] : 1 << (state[cell] - 1);
+					if (state[cell] != 0)
+						placed |= mask;
+					twice |= once & mask;
+					once |= mask;
+				}
+				if (once != ALL)
+					return false;
+				int exactlyOnce = once & ~twice & ~placed;
+				if (exactlyOnce == 0)
+					continue;
+				for (int cell : unit)
+					if (state[cell] == 0) {
+						int hidden = state[81 + cell] & exactlyOnce;
+						if (hidden != 0) {
+							if ((hidden & (hidden - 1)) != 0 || !place(cell, Integer.numberOfTrailingZeros(hidden) + 1))
+								return false;
+							changed = true;
+						}
+					}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sets a cell's value and removes that value from the candidates of the cell's peers
+	 *
+	 * @return false if the value isn't a candidate for the cell or a peer was left with no candidates
+	 */
+	private boolean place(int cell, int val) {
+		int bit = 1 << (val - 1);
+		if (state[cell] != 0 || (state[81 + cell] & bit) == 0)
+			return false;
+		state[cell] = val;
+		state[81 + cell] = bit;
+		if (stats != null)
+			stats.covers++;
+		for (int peer : PEERS[cell])
+			if (state[peer] == 0 && (state[81 + peer] &= ~bit) == 0)
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,251 @@
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+/**
+ * How a search branches: which column (constraint) it branches on, which of several equally good columns it takes,
+ * the order it tries that column's rows (possibilities) in, and whether a randomized search restarts when a try runs long.
+ * <p>
+ * The default of every setting is what the engines do without a strategy: the column with the fewest rows, the first
+ * one found, in the order the solve was given, with no restarts.
+ * <p>
+ * Restarts follow the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ... times a unit number of nodes.
+ * Each try searches afresh until it finishes or reaches its cutoff, so an unlucky random order early in the search
+ * is abandoned instead of searched to the end, while the growing cutoffs still let the search finish eventually.
+ * A deterministic search would repeat the same nodes on every try, so restarts only apply to randomized searches:
+ * SudokuGenerator's shuffled order, a RANDOM tie-break, or a SHUFFLED value order.
+ * <p>
+ * A strategy holds no search state and can be shared between solves and threads, as long as it isn't changed while in use.
+ */
+public final class BranchingStrategy {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private ColumnChoice columnChoice = ColumnChoice.FEWEST_ROWS;
+	private TieBreak tieBreak = TieBreak.FIRST;
+	private ValueOrder valueOrder = ValueOrder.GIVEN;
+	private long restartUnit;
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Sets how the column to branch on is chosen
+	 */
+	public BranchingStrategy setColumnChoice(ColumnChoice columnChoice) {
+		this.columnChoice = columnChoice;
+		return this;
+	}
+
+	/**
+	 * Sets which column is taken when several are equally good
+	 */
+	public BranchingStrategy setTieBreak(TieBreak tieBreak) {
+		this.tieBreak = tieBreak;
+		return this;
+	}
+
+	/**
+	 * Sets the order the rows of the chosen column are tried in
+	 */
+	public BranchingStrategy setValueOrder(ValueOrder valueOrder) {
+		this.valueOrder = valueOrder;
+		return this;
+	}
+
+	/**
+	 * Restarts randomized searches with Luby cutoffs of this many nodes times 1, 1, 2, 1, 1, 2, 4, ...
+	 *
+	 * @param restartUnit The number of nodes in the shortest try, or 0 to never restart
+	 * @throws IllegalArgumentException if restartUnit is negative
+	 */
+	public BranchingStrategy setRestartUnit(long restartUnit) {
+		if (restartUnit < 0)
+			throw new IllegalArgumentException("The restart unit can't be negative");
+		this.restartUnit = restartUnit;
+		return this;
+	}
+
+	/**
+	 * Checks whether the strategy makes random choices of its own, which makes the search randomized even when
+	 * the order it's given isn't
+	 */
+	public boolean isRandomized() {
+		return tieBreak == TieBreak.RANDOM || valueOrder == ValueOrder.SHUFFLED;
+	}
+
+	/**
+	 * Gets the ordering a solve uses for each branch's rows
+	 *
+	 * @param given  The ordering the solve was given, such as SudokuGenerator's shuffle
+	 * @param random The source of randomness for a SHUFFLED order, which is only used by the calling thread
+	 * @return The ordering to pass to the engine
+	 */
+	public SudokuEngine.PossibilityOrder order(SudokuEngine.PossibilityOrder given, RandomGenerator random) {
+		switch (valueOrder) {
+			case NATURAL:
+				return SudokuEngine.NATURAL_ORDER;
+			case REVERSED:
+				return BranchingStrategy::reverse;
+			case SHUFFLED:
+				return (possibilities, count) -> shuffle(possibilities, count, random);
+			default:
+				return given;
+		}
+	}
+
+	/**
+	 * Runs tries of a search until one finishes. If the strategy restarts and the search is randomized, each try is
+	 * cut off after the next Luby number of nodes and the search starts again. The budget's node limit covers every
+	 * try together, so the search gives up once the tries have used it all. Only the last try's solutions count
+	 *
+	 * @param budget     The budget of the whole search, or null for none
+	 * @param randomized Whether the search makes random choices of its own, like SudokuGenerator's shuffled order
+	 * @param stats      Destination for the number of restarts, or null
+	 * @param search     One try of the search within a budget, which leaves everything ready for the next try
+	 * @return Why the last try stopped
+	 */
+	SolutionCount.Status searchWithRestarts(SolveBudget budget, boolean randomized, SolveStats stats, Function<SolveBudget, SolutionCount.Status> search) {
+		if (restartUnit == 0 || !(randomized || isRandomized()))
+			return search.apply(budget);
+		long start = System.nanoTime(), limit = SolveBudget.nodeLimitOf(budget), used = 0;
+		for (long attempt = 1; ; attempt++) {
+			long luby = luby(attempt);
+			SolveBudget tryBudget = SolveBudget.forRestart(budget, start, used, luby > Long.MAX_VALUE / restartUnit ? Long.MAX_VALUE : luby * restartUnit);
+			SolutionCount.Status status = search.apply(tryBudget);
+			if (status != SolutionCount.Status.NODE_LIMIT_REACHED)
+				return status;
+
+			// A try which runs out of nodes has visited exactly its limit
+			used += SolveBudget.nodeLimitOf(tryBudget);
+			if (used >= limit)
+				return status;
+			if (stats != null)
+				stats.restarts++;
+		}
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	public ColumnChoice getColumnChoice() {
+		return columnChoice;
+	}
+
+	public TieBreak getTieBreak() {
+		return tieBreak;
+	}
+
+	public ValueOrder getValueOrder() {
+		return valueOrder;
+	}
+
+	/**
+	 * Gets the number of nodes in the shortest try, or 0 if searches never restart
+	 */
+	public long getRestartUnit() {
+		return restartUnit;
+	}
+
+	@Override
+	public String toString() {
+		return columnChoice + "/" + tieBreak + "/" + valueOrder + (restartUnit > 0 ? "/luby" + restartUnit : "");
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which gives the ith term of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+	 *
+	 * @param i The term, counting from 1
+	 */
+	public static long luby(long i) {
+		// Each run of the sequence up to 2^(k-1) is two copies of the run before it, then 2^(k-1)
+		while (true) {
+			int k = 64 - Long.numberOfLeadingZeros(i);
+			if (i == (1L << k) - 1)
+				return 1L << (k - 1);
+			i -= (1L << (k - 1)) - 1;
+		}
+	}
+
+	/**
+	 * Static helper method which picks which of several tied columns to take
+	 *
+	 * @param ties   The number of columns tied, at least 1
+	 * @param random The source of randomness for a RANDOM tie-break
+	 * @return The index of the column to take, counting the tied columns in the order they were found
+	 */
+	static int pickTie(TieBreak tieBreak, int ties, RandomGenerator random) {
+		switch (tieBreak) {
+			case LAST:
+				return ties - 1;
+			case RANDOM:
+				return random.nextInt(ties);
+			default:
+				return 0;
+		}
+	}
+
+	private static void reverse(int[] possibilities, int count) {
+		for (int i = 0, j = count - 1; i < j; i++, j--) {
+			int temp = possibilities[i];
+			possibilities[i] = possibilities[j];
+			possibilities[j] = temp;
+		}
+	}
+
+	private static void shuffle(int[] possibilities, int count, RandomGenerator random) {
+		for (int i = 0; i < count - 1; i++) {
+			int rand = i + random.nextInt(count - i);
+			int temp = possibilities[i];
+			possibilities[i] = possibilities[rand];
+			possibilities[rand] = temp;
+		}
+	}
+
+	//*************************//
+	//***** Inner Classes *****//
+	//*************************//
+
+	/**
+	 * Rule for the column to branch on
+	 */
+	public enum ColumnChoice {
+		/** The column with the fewest rows left, which fails fast and finds forced moves first */
+		FEWEST_ROWS,
+		/** The first column left, in the matrix's own order, which only costs a glance but ignores how constrained it is */
+		FIRST_REMAINING
+	}
+
+	/**
+	 * Rule for choosing between columns which are equally good
+	 */
+	public enum TieBreak {
+		/** The first one found, in the matrix's own order */
+		FIRST,
+		/** The last one found */
+		LAST,
+		/** A random one, which varies the search between solves */
+		RANDOM
+	}
+
+	/**
+	 * Rule for the order the chosen column's rows are tried in
+	 */
+	public enum ValueOrder {
+		/** The order the solve was given: natural for SudokuSolver, shuffled for SudokuGenerator */
+		GIVEN,
+		/** The order the engine found them in */
+		NATURAL,
+		/** The engine's order backwards */
+		REVERSED,
+		/** A random order */
+		SHUFFLED
+	}
+}
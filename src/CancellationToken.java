@@ -0,0 +1,30 @@
+/**
+ * Flag which another thread sets to stop the solves that were given it in a SolveBudget.
+ * Searches only read the flag every so many nodes, so a cancelled solve stops shortly after cancel() rather than immediately
+ */
+public final class CancellationToken {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private volatile boolean cancelled;
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Asks every solve using this token to stop, which can't be undone
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Checks whether cancel() has been called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
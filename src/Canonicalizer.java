@@ -0,0 +1,383 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finds the canonical form of a 9x9 puzzle: the least puzzle, in a fixed order, that its SudokuTransforms turn it into,
+ * so two puzzles share a canonical form exactly when one can be transformed into the other.
+ * <p>
+ * Only transforms which sort the counts of givens are considered, putting bands with fewer givens above those with
+ * more, rows with fewer givens first within each band, and likewise for stacks and columns. Counts don't change under
+ * any transform, so equivalent puzzles are still compared over equivalent sets of transforms, and sparse puzzles leave
+ * far fewer column orders to try than the 1296 there are. Among those, puzzles are ordered first by their pattern of
+ * givens, read as one 9 bit mask per row with the first column as the most significant bit, then by their values row by
+ * row after relabeling them in the order they first appear. The pattern doesn't depend on the labels, so it's
+ * minimized first over the column orders, each needing only a sort of the rows within and between bands. The values
+ * are then searched row by row over just the orders which give that pattern, and a branch is dropped as soon as a row
+ * comes out greater than the best found so far. Identical rows, columns, bands, and stacks are only tried in one order,
+ * since swapping them changes nothing. Nearly full grids are the slow case, taking up to milliseconds, since every
+ * count and every row's pattern is alike and nothing is left to cut the search down.
+ * <p>
+ * An instance keeps its working arrays between calls and isn't thread safe, so keep one per thread.
+ */
+final class Canonicalizer {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	private static final int BOX_SIZE = 3, SIDE = 9;
+
+	// A row's key is its count of givens followed by its 9 bit mask of givens
+	private static final int ROW_KEY_BITS = 13;
+
+	// Every order of three things, so PERMS[p][k] is the one which goes in position k
+	private static final int[][] PERMS = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+	// PERMUTED[p][bits] is a stack's 3 bit mask of givens after reordering its columns by PERMS[p]
+	private static final int[][] PERMUTED = new int[PERMS.length][1 << BOX_SIZE];
+	// KEEPS_ORDER[p][pairs] is whether PERMS[p] keeps each of the pairs (see pairBit()) in their original order
+	private static final boolean[][] KEEPS_ORDER = new boolean[PERMS.length][1 << BOX_SIZE];
+
+	static {
+		for (int p = 0; p < PERMS.length; p++) {
+			for (int bits = 0; bits < 1 << BOX_SIZE; bits++)
+				for (int k = 0; k < BOX_SIZE; k++)
+					if ((bits & (4 >> PERMS[p][k])) != 0)
+						PERMUTED[p][bits] |= 4 >> k;
+			int[] position = new int[BOX_SIZE];
+			for (int k = 0; k < BOX_SIZE; k++)
+				position[PERMS[p][k]] = k;
+			for (int pairs = 0; pairs < 1 << BOX_SIZE; pairs++) {
+				KEEPS_ORDER[p][pairs] = true;
+				for (int x = 0; x < BOX_SIZE; x++)
+					for (int y = x + 1; y < BOX_SIZE; y++)
+						if ((pairs & pairBit(x, y)) != 0 && position[x] > position[y])
+							KEEPS_ORDER[p][pairs] = false;
+			}
+		}
+	}
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	// The puzzle and its transpose, whose rows are the puzzle's columns
+	private final int[][][] grids = new int[2][SIDE][SIDE];
+	// For each grid, the 3 bit mask of givens of each stack in each row, and the number of givens in each row and band
+	private final int[][][] stackMasks = new int[2][BOX_SIZE][SIDE];
+	private final int[][] rowCounts = new int[2][SIDE], bandCounts = new int[2][BOX_SIZE];
+	// For each grid, the pairs of identical rows within each band, and the pairs of identical bands
+	private final int[][] sameRows = new int[2][BOX_SIZE];
+	private final int[] sameBands = new int[2];
+
+	// Every column order giving the least pattern, encoded by encodeColumns(), and that pattern's band and row keys
+	private final int[] candidates = new int[2 * PERMS.length * PERMS.length * PERMS.length * PERMS.length];
+	private int candidateCount;
+	private final long[] pattern = new long[BOX_SIZE];
+	private final int[] patternRows = new int[SIDE];
+
+	// The column order being searched, with each row's values and key (see rowKey()) in that order and each band's key
+	private int transpose;
+	private final int[] colOrder = new int[SIDE], rowOrder = new int[SIDE];
+	private final int[][] arranged = new int[SIDE][SIDE];
+	private final int[] rowKeys = new int[SIDE];
+	private final long[] bandKeys = new long[BOX_SIZE];
+	// The row keys with just the first stack's givens, and with the first two, while column orders are tried
+	private final int[] highKeys = new int[SIDE], middleKeys = new int[SIDE];
+	// The labels given so far at each depth of the search, with the number of labels used at index SIDE + 1
+	private final int[][] labels = new int[SIDE + 1][SIDE + 2];
+	private final int[][] rows = new int[SIDE][SIDE];
+
+	// The least rows found so far, of which only the first bestDepth are valid, and the transform which gave them
+	private final int[][] best = new int[SIDE][SIDE];
+	private int bestDepth;
+	private int bestTranspose;
+	private final int[] bestRowOrder = new int[SIDE], bestColOrder = new int[SIDE], bestLabels = new int[SIDE + 2];
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Finds the transform which turns a puzzle into its canonical form, which getKey() then returns
+	 *
+	 * @param puzzle 9x9 2D int array with 0 for empty cells
+	 * @return The transform
+	 * @throws IllegalArgumentException if the puzzle isn't 9x9 or holds a value outside 0 to 9
+	 */
+	SudokuTransform canonicalize(int[][] puzzle) {
+		load(puzzle);
+
+		// Find the least pattern and every column order which gives it
+		candidateCount = 0;
+		pattern[0] = Long.MAX_VALUE;
+		for (int t = 0; t < 2; t++)
+			findPatterns(t);
+		for (int band = 0; band < BOX_SIZE; band++)
+			for (int k = 0; k < BOX_SIZE; k++)
+				patternRows[(band * BOX_SIZE) + k] = (int) (pattern[band] >> (ROW_KEY_BITS * (BOX_SIZE - 1 - k))) & ((1 << ROW_KEY_BITS) - 1);
+
+		// Then the least values under those column orders
+		bestDepth = 0;
+		for (int i = 0; i < candidateCount; i++) {
+			arrange(candidates[i]);
+			search(0, 0, 0, 0);
+		}
+
+		// Digits which aren't given take the labels left over, in order
+		int[] relabel = new int[SIDE + 1];
+		int used = bestLabels[SIDE + 1];
+		for (int val = 1; val <= SIDE; val++)
+			relabel[val] = bestLabels[val] != 0 ? bestLabels[val] : ++used;
+		return new SudokuTransform(bestTranspose == 1, bestRowOrder, bestColOrder, relabel);
+	}
+
+	/**
+	 * Gets the canonical form found by the last call to canonicalize() as a string of 81 characters, one per cell
+	 * holding its value as a char, which is compact enough to be a map key
+	 */
+	String getKey() {
+		byte[] cells = new byte[SIDE * SIDE];
+		for (int row = 0; row < SIDE; row++)
+			for (int col = 0; col < SIDE; col++)
+				cells[(row * SIDE) + col] = (byte) best[row][col];
+		return new String(cells, StandardCharsets.ISO_8859_1);
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Copies the puzzle and its transpose, and notes each row's givens and which rows and bands are identical
+	 */
+	private void load(int[][] puzzle) {
+		if (puzzle.length != SIDE)
+			throw new IllegalArgumentException("Only 9x9 puzzles have a canonical form, not " + puzzle.length + "x" + puzzle.length);
+		for (int row = 0; row < SIDE; row++) {
+			if (puzzle[row].length != SIDE)
+				throw new IllegalArgumentException("Row " + row + " has " + puzzle[row].length + " cells rather than 9");
+			for (int col = 0; col < SIDE; col++) {
+				int val = puzzle[row][col];
+				if (val < 0 || val > SIDE)
+					throw new IllegalArgumentException("Cell " + row + "," + col + " holds " + val + ", which isn't from 0 to 9");
+				grids[0][row][col] = val;
+				grids[1][col][row] = val;
+			}
+		}
+		for (int t = 0; t < 2; t++) {
+			int[][] grid = grids[t];
+			for (int row = 0; row < SIDE; row++)
+				for (int stack = 0; stack < BOX_SIZE; stack++) {
+					int bits = 0;
+					for (int k = 0; k < BOX_SIZE; k++)
+						if (grid[row][(stack * BOX_SIZE) + k] != 0)
+							bits |= 4 >> k;
+					stackMasks[t][stack][row] = bits;
+				}
+			for (int band = 0; band < BOX_SIZE; band++) {
+				bandCounts[t][band] = 0;
+				for (int k = 0; k < BOX_SIZE; k++) {
+					int row = (band * BOX_SIZE) + k;
+					rowCounts[t][row] = Integer.bitCount(stackMasks[t][0][row]) + Integer.bitCount(stackMasks[t][1][row]) + Integer.bitCount(stackMasks[t][2][row]);
+					bandCounts[t][band] += rowCounts[t][row];
+				}
+			}
+			sameBands[t] = 0;
+			for (int band = 0; band < BOX_SIZE; band++)
+				sameRows[t][band] = 0;
+			for (int x = 0; x < BOX_SIZE; x++)
+				for (int y = x + 1; y < BOX_SIZE; y++) {
+					for (int band = 0; band < BOX_SIZE; band++)
+						if (sameLine(grid, (band * BOX_SIZE) + x, (band * BOX_SIZE) + y))
+							sameRows[t][band] |= pairBit(x, y);
+					if (sameBand(grid, x, y))
+						sameBands[t] |= pairBit(x, y);
+				}
+		}
+	}
+
+	/**
+	 * Tries every column order of one of the grids which sorts its stacks and columns by their counts of givens,
+	 * keeping those which give a pattern no greater than the least so far. Columns of the grid are rows of the other one,
+	 * which is where their counts and identical columns and stacks are looked up
+	 */
+	private void findPatterns(int t) {
+		int[] sameCols = sameRows[1 - t], colCounts = rowCounts[1 - t];
+		for (int sp = 0; sp < PERMS.length; sp++) {
+			if (!KEEPS_ORDER[sp][sameBands[1 - t]] || !isSorted(bandCounts[1 - t], 0, sp))
+				continue;
+			int s0 = PERMS[sp][0], s1 = PERMS[sp][1], s2 = PERMS[sp][2];
+			int[] masks0 = stackMasks[t][s0], masks1 = stackMasks[t][s1], masks2 = stackMasks[t][s2];
+			for (int q0 = 0; q0 < PERMS.length; q0++) {
+				if (!KEEPS_ORDER[q0][sameCols[s0]] || !isSorted(colCounts, s0 * BOX_SIZE, q0))
+					continue;
+				int[] permuted0 = PERMUTED[q0];
+				for (int row = 0; row < SIDE; row++)
+					highKeys[row] = (rowCounts[t][row] << SIDE) | (permuted0[masks0[row]] << 6);
+				for (int q1 = 0; q1 < PERMS.length; q1++) {
+					if (!KEEPS_ORDER[q1][sameCols[s1]] || !isSorted(colCounts, s1 * BOX_SIZE, q1))
+						continue;
+					int[] permuted1 = PERMUTED[q1];
+					for (int row = 0; row < SIDE; row++)
+						middleKeys[row] = highKeys[row] | (permuted1[masks1[row]] << 3);
+					for (int q2 = 0; q2 < PERMS.length; q2++) {
+						if (!KEEPS_ORDER[q2][sameCols[s2]] || !isSorted(colCounts, s2 * BOX_SIZE, q2))
+							continue;
+						int[] permuted2 = PERMUTED[q2];
+						for (int row = 0; row < SIDE; row++)
+							rowKeys[row] = middleKeys[row] | permuted2[masks2[row]];
+						long a = bandKey(t, 0), b = bandKey(t, 1), c = bandKey(t, 2), swap;
+						if (a > b) { swap = a; a = b; b = swap; }
+						if (b > c) { swap = b; b = c; c = swap; }
+						if (a > b) { swap = a; a = b; b = swap; }
+						int cmp = a != pattern[0] ? Long.compare(a, pattern[0]) : b != pattern[1] ? Long.compare(b, pattern[1]) : Long.compare(c, pattern[2]);
+						if (cmp > 0)
+							continue;
+						if (cmp < 0) {
+							pattern[0] = a;
+							pattern[1] = b;
+							pattern[2] = c;
+							candidateCount = 0;
+						}
+						candidates[candidateCount++] = encodeColumns(t, sp, q0, q1, q2);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets a band's key: its count of givens followed by its row keys in sorted order,
+	 * so comparing the keys compares the bands as they'd be sorted
+	 */
+	private long bandKey(int t, int band) {
+		int a = rowKeys[band * BOX_SIZE], b = rowKeys[(band * BOX_SIZE) + 1], c = rowKeys[(band * BOX_SIZE) + 2], swap;
+		if (a > b) { swap = a; a = b; b = swap; }
+		if (b > c) { swap = b; b = c; c = swap; }
+		if (a > b) { swap = a; a = b; b = swap; }
+		return ((long) bandCounts[t][band] << (3 * ROW_KEY_BITS)) | ((long) a << (2 * ROW_KEY_BITS)) | ((long) b << ROW_KEY_BITS) | c;
+	}
+
+	/**
+	 * Sets up the search of a column order: the grid's rows with their columns in that order, and their givens
+	 */
+	private void arrange(int encoded) {
+		transpose = encoded >> 12;
+		for (int s = 0; s < BOX_SIZE; s++) {
+			int stack = PERMS[(encoded >> 9) & 7][s], q = (encoded >> (3 * (BOX_SIZE - 1 - s))) & 7;
+			for (int k = 0; k < BOX_SIZE; k++)
+				colOrder[(s * BOX_SIZE) + k] = (stack * BOX_SIZE) + PERMS[q][k];
+		}
+		int[][] grid = grids[transpose];
+		for (int row = 0; row < SIDE; row++) {
+			int bits = 0;
+			for (int col = 0; col < SIDE; col++) {
+				arranged[row][col] = grid[row][colOrder[col]];
+				if (arranged[row][col] != 0)
+					bits |= 1 << (SIDE - 1 - col);
+			}
+			rowKeys[row] = (rowCounts[transpose][row] << SIDE) | bits;
+		}
+		for (int band = 0; band < BOX_SIZE; band++)
+			bandKeys[band] = bandKey(transpose, band);
+	}
+
+	/**
+	 * Searches the row orders which give the least pattern, placing the row at a depth and recursing.
+	 * A band is picked whenever the depth reaches one, and its rows fill the next three depths
+	 */
+	private void search(int depth, int usedRows, int usedBands, int band) {
+		if (depth == SIDE) {
+			bestTranspose = transpose;
+			System.arraycopy(rowOrder, 0, bestRowOrder, 0, SIDE);
+			System.arraycopy(colOrder, 0, bestColOrder, 0, SIDE);
+			System.arraycopy(labels[SIDE], 0, bestLabels, 0, SIDE + 2);
+			return;
+		}
+		if (depth % BOX_SIZE == 0) {
+			for (int b = 0; b < BOX_SIZE; b++)
+				if ((usedBands & (1 << b)) == 0 && bandKeys[b] == pattern[depth / BOX_SIZE] && !skipsDuplicate(b, usedBands, sameBands[transpose]))
+					searchBand(depth, usedRows, usedBands | (1 << b), b);
+		} else {
+			searchBand(depth, usedRows, usedBands, band);
+		}
+	}
+
+	/**
+	 * Tries each row of a band with the right givens at a depth, relabeling its values and comparing it to the best row there
+	 */
+	private void searchBand(int depth, int usedRows, int usedBands, int band) {
+		int[] from = labels[depth], to = labels[depth + 1], row = rows[depth];
+		int bandRows = (usedRows >> (band * BOX_SIZE)) & 7;
+		for (int x = 0; x < BOX_SIZE; x++) {
+			int source = (band * BOX_SIZE) + x;
+			if ((bandRows & (1 << x)) != 0 || rowKeys[source] != patternRows[depth] || skipsDuplicate(x, bandRows, sameRows[transpose][band]))
+				continue;
+			System.arraycopy(from, 0, to, 0, SIDE + 2);
+			for (int col = 0; col < SIDE; col++) {
+				int val = arranged[source][col];
+				if (val != 0 && to[val] == 0)
+					to[val] = ++to[SIDE + 1];
+				row[col] = to[val];
+			}
+
+			// Rows from bestDepth on have nothing to beat, since a lesser row earlier on replaced them
+			int cmp = depth < bestDepth ? Arrays.compare(row, best[depth]) : -1;
+			if (cmp > 0)
+				continue;
+			if (cmp < 0) {
+				System.arraycopy(row, 0, best[depth], 0, SIDE);
+				bestDepth = depth + 1;
+			}
+			rowOrder[depth] = source;
+			search(depth + 1, usedRows | (1 << source), usedBands, band);
+		}
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which checks whether PERMS[p] puts three counts, starting at an offset, in ascending order
+	 */
+	private static boolean isSorted(int[] counts, int offset, int p) {
+		return counts[offset + PERMS[p][0]] <= counts[offset + PERMS[p][1]] && counts[offset + PERMS[p][1]] <= counts[offset + PERMS[p][2]];
+	}
+
+	/**
+	 * Static helper method which gets the bit standing for a pair of rows within a band (or bands within a grid)
+	 */
+	private static int pairBit(int x, int y) {
+		return 1 << (x + y - 1);
+	}
+
+	/**
+	 * Static helper method which checks whether picking x would put it before an identical one which comes earlier
+	 * and hasn't been used yet. Only one order of identical rows or bands needs searching
+	 */
+	private static boolean skipsDuplicate(int x, int used, int pairs) {
+		for (int y = 0; y < x; y++)
+			if ((pairs & pairBit(y, x)) != 0 && (used & (1 << y)) == 0)
+				return true;
+		return false;
+	}
+
+	private static int encodeColumns(int t, int sp, int q0, int q1, int q2) {
+		return (t << 12) | (sp << 9) | (q0 << 6) | (q1 << 3) | q2;
+	}
+
+	private static boolean sameLine(int[][] grid, int a, int b) {
+		for (int col = 0; col < SIDE; col++)
+			if (grid[a][col] != grid[b][col])
+				return false;
+		return true;
+	}
+
+	private static boolean sameBand(int[][] grid, int a, int b) {
+		for (int k = 0; k < BOX_SIZE; k++)
+			if (!sameLine(grid, (a * BOX_SIZE) + k, (b * BOX_SIZE) + k))
+				return false;
+		return true;
+	}
+}
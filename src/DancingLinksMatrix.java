@@ -0,0 +1,760 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
+
+/**
+ * Exact cover matrix for the dancing links algorithm stored in flat int arrays instead of an object graph
+ * <p>
+ * Node 0 is the root, nodes 1 through the column count are the column headers, and every node after that belongs to a row.
+ * Each node's neighbors, column, and row are kept at the node's index in the parallel arrays below, so covering
+ * and uncovering only ever touch primitive arrays.
+ * <p>
+ * Primary columns come first and are linked into the root's ring, so a search has to cover each of them. Secondary
+ * columns come after them and are left out of the ring: covering a row still removes the rows that clash with it,
+ * but nothing requires them to be covered at all. ExactCover is the public face of the general matrix, and
+ * SudokuVariant builds the sudoku matrices on top of it.
+ */
+final class DancingLinksMatrix implements SudokuEngine {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	static final int ROOT = 0;
+
+	// Pristine matrices for each box size which are only ever copied, never covered or searched
+	private static final DancingLinksMatrix SUDOKU_TEMPLATE = buildSudoku(3);
+	private static final ConcurrentMap<Integer, DancingLinksMatrix> SUDOKU_TEMPLATES = new ConcurrentHashMap<>();
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	final int[] up, down, left, right, column, row;
+	final int[] size;
+	final int[] firstNodeOfRow;
+	private int nodeCount;
+	private final DancingLinksMatrix template;
+
+	// Side length of the sudoku board this matrix was built for, or 0 if it isn't a sudoku matrix
+	private int boardSide;
+
+	// Rows covered by placeSudokuGivens, in the order they were covered
+	private final int[] givenRows;
+	private int givenCount;
+
+	// Search state, allocated once per matrix and reused by every search. The choice stack holds, for each level,
+	// the rows of the chosen column in the order they're tried, how many there are, and which one is covered now
+	private final int[] chosenRows;
+	private final int[][] branchRows;
+	private final int[] branchCounts, nextBranches;
+	private int depth;
+	private boolean descending;
+	private final int[] firstSolution;
+	private int solutionDepth;
+	private long solutionsFound, solutionLimit;
+	private PossibilityOrder order;
+
+	// How columns are chosen, where null is chooseColumn()'s first column with the fewest rows
+	private BranchingStrategy branching;
+	private RandomGenerator branchingRandom;
+
+	// Limits on every search, and the count of the current search's nodes against them
+	private SolveBudget budget;
+	private final SolveBudget.Tracker tracker = new SolveBudget.Tracker();
+	private SolutionCount.Status lastStatus = SolutionCount.Status.EXACT;
+
+	// Destination for the counts of solve() and countSolutions(), or null if they aren't instrumented
+	private SolveStats stats;
+
+	// Solution count shared with other matrices searching other branches of the same puzzle, or null if searching alone
+	private AtomicInteger sharedSolutions;
+	private boolean foundFirstShared;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Creates an empty matrix with room for the given number of columns, rows, and row nodes
+	 *
+	 * @param columns  Number of columns (conditions)
+	 * @param rows     Number of rows (possibilities)
+	 * @param rowNodes Total number of nodes across all rows
+	 */
+	DancingLinksMatrix(int columns, int rows, int rowNodes) {
+		this(columns, 0, rows, rowNodes);
+	}
+
+	/**
+	 * Creates an empty matrix with room for the given number of primary and secondary columns, rows, and row nodes
+	 *
+	 * @param primaryColumns   Number of columns which every solution covers exactly once, numbered from 1
+	 * @param secondaryColumns Number of columns which every solution covers at most once, numbered after the primary ones
+	 * @param rows             Number of rows (possibilities)
+	 * @param rowNodes         Total number of nodes across all rows
+	 */
+	DancingLinksMatrix(int primaryColumns, int secondaryColumns, int rows, int rowNodes) {
+		int columns = primaryColumns + secondaryColumns;
+		int capacity = 1 + columns + rowNodes;
+		up = new int[capacity];
+		down = new int[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		column = new int[capacity];
+		row = new int[capacity];
+		size = new int[1 + columns];
+		firstNodeOfRow = new int[rows];
+		template = null;
+		givenRows = new int[columns];
+		chosenRows = new int[columns];
+		branchRows = new int[columns][];
+		branchCounts = new int[columns];
+		nextBranches = new int[columns];
+		firstSolution = new int[columns];
+
+		// Link the root and the primary column headers into one horizontal ring, and each secondary header to itself
+		for (int c = 0; c <= columns; c++) {
+			up[c] = down[c] = column[c] = c;
+			row[c] = -1;
+			if (c > primaryColumns) {
+				left[c] = right[c] = c;
+			} else {
+				left[c] = c == 0 ? primaryColumns : c - 1;
+				right[c] = c == primaryColumns ? 0 : c + 1;
+			}
+		}
+		nodeCount = 1 + columns;
+	}
+
+	/**
+	 * Copy constructor which duplicates the current links of another matrix and remembers its template for reset().
+	 * The column and row of each node never change, so those arrays are shared with the original
+	 */
+	private DancingLinksMatrix(DancingLinksMatrix original) {
+		up = original.up.clone();
+		down = original.down.clone();
+		left = original.left.clone();
+		right = original.right.clone();
+		column = original.column;
+		row = original.row;
+		size = original.size.clone();
+		firstNodeOfRow = original.firstNodeOfRow;
+		nodeCount = original.nodeCount;
+		boardSide = original.boardSide;
+		template = original.template == null ? original : original.template;
+		int columns = size.length - 1;
+		givenRows = new int[columns];
+		chosenRows = new int[columns];
+		branchRows = new int[columns][];
+		branchCounts = new int[columns];
+		nextBranches = new int[columns];
+		firstSolution = new int[columns];
+	}
+
+	/**
+	 * Gets a matrix for a 9x9 sudoku board with no givens applied.
+	 * Rows are numbered the same way as SudokuManipulator's possibilities: (81 * row) + (9 * col) + (val - 1)
+	 *
+	 * @return A new matrix copied from a shared template rather than rebuilt
+	 */
+	static DancingLinksMatrix sudoku() {
+		return new DancingLinksMatrix(SUDOKU_TEMPLATE);
+	}
+
+	/**
+	 * Gets a matrix for an N^2xN^2 sudoku board with no givens applied.
+	 * Rows are numbered the same way as SudokuManipulator's possibilities: (N^4 * row) + (N^2 * col) + (val - 1)
+	 *
+	 * @param boxSize The side length of each box, which is 3 for a 9x9 board
+	 * @return A new matrix copied from a template which is built the first time each size is used
+	 */
+	static DancingLinksMatrix sudoku(int boxSize) {
+		if (boxSize == 3)
+			return sudoku();
+		return new DancingLinksMatrix(SUDOKU_TEMPLATES.computeIfAbsent(boxSize, DancingLinksMatrix::buildSudoku));
+	}
+
+	/**
+	 * Gets a matrix for a sudoku variant's board with no givens applied, numbering rows like sudoku(int).
+	 * Variants aren't shared, so the matrix is built from scratch rather than copied from a template
+	 */
+	static DancingLinksMatrix sudoku(SudokuVariant variant) {
+		DancingLinksMatrix matrix = variant.toExactCover().buildMatrix();
+		matrix.boardSide = variant.getSide();
+		return matrix;
+	}
+
+	/**
+	 * Static helper method which builds the 4N^4 column by N^6 row exact cover matrix for an N^2xN^2 sudoku board,
+	 * which is 324 columns by 729 rows for a 9x9 board
+	 */
+	private static DancingLinksMatrix buildSudoku(int boxSize) {
+		return sudoku(new SudokuVariant(boxSize));
+	}
+
+	//****************************//
+	//***** Matrix Structure *****//
+	//****************************//
+
+	/**
+	 * Appends a row to the matrix with a node in each of the given columns
+	 */
+	void addRow(int rowId, int[] columns) {
+		int first = nodeCount;
+		for (int i = 0; i < columns.length; i++) {
+			int node = nodeCount++, c = columns[i];
+			column[node] = c;
+			row[node] = rowId;
+
+			// Insert at the bottom of the column
+			up[node] = up[c];
+			down[node] = c;
+			down[up[c]] = node;
+			up[c] = node;
+			size[c]++;
+
+			// Insert at the end of the row
+			left[node] = i == 0 ? node : node - 1;
+			right[node] = first;
+			right[left[node]] = node;
+			left[first] = node;
+		}
+		firstNodeOfRow[rowId] = first;
+	}
+
+	/**
+	 * Removes a column from the header ring and removes every row in it from the other columns
+	 */
+	void cover(int c) {
+		right[left[c]] = right[c];
+		left[right[c]] = left[c];
+		for (int i = down[c]; i != c; i = down[i])
+			for (int j = right[i]; j != i; j = right[j]) {
+				down[up[j]] = down[j];
+				up[down[j]] = up[j];
+				size[column[j]]--;
+			}
+	}
+
+	/**
+	 * Exactly reverses cover(c), assuming every later cover has already been reversed
+	 */
+	void uncover(int c) {
+		for (int i = up[c]; i != c; i = up[i])
+			for (int j = left[i]; j != i; j = left[j]) {
+				size[column[j]]++;
+				down[up[j]] = j;
+				up[down[j]] = j;
+			}
+		right[left[c]] = c;
+		left[right[c]] = c;
+	}
+
+	/**
+	 * Covers every column containing a node of the given row
+	 */
+	void coverRow(int rowId) {
+		int first = firstNodeOfRow[rowId], node = first;
+		do {
+			if (stats != null)
+				stats.covers++;
+			cover(column[node]);
+			node = right[node];
+		} while (node != first);
+	}
+
+	/**
+	 * Reverses coverRow(rowId) by uncovering its columns in the opposite order
+	 */
+	void uncoverRow(int rowId) {
+		int last = left[firstNodeOfRow[rowId]], node = last;
+		do {
+			if (stats != null)
+				stats.uncovers++;
+			uncover(column[node]);
+			node = left[node];
+		} while (node != last);
+	}
+
+	/**
+	 * Duplicates the current state of the matrix, covered columns included, so the copy can be searched independently
+	 */
+	DancingLinksMatrix copy() {
+		return new DancingLinksMatrix(this);
+	}
+
+	/**
+	 * Restores every link and column size to the template this matrix was copied from using bulk array copies.
+	 * Unlike clearGivens(), this works no matter what state an interrupted search left the matrix in
+	 */
+	void reset() {
+		System.arraycopy(template.up, 0, up, 0, up.length);
+		System.arraycopy(template.down, 0, down, 0, down.length);
+		System.arraycopy(template.left, 0, left, 0, left.length);
+		System.arraycopy(template.right, 0, right, 0, right.length);
+		System.arraycopy(template.size, 0, size, 0, size.length);
+		givenCount = 0;
+	}
+
+	/**
+	 * Removes a row from each of its columns without covering anything, so searches can't select it
+	 */
+	void hideRow(int rowId) {
+		int first = firstNodeOfRow[rowId], node = first;
+		do {
+			down[up[node]] = down[node];
+			up[down[node]] = up[node];
+			size[column[node]]--;
+			node = right[node];
+		} while (node != first);
+	}
+
+	/**
+	 * Exactly reverses hideRow(rowId)
+	 */
+	void unhideRow(int rowId) {
+		int last = left[firstNodeOfRow[rowId]], node = last;
+		do {
+			size[column[node]]++;
+			down[up[node]] = node;
+			up[down[node]] = node;
+			node = left[node];
+		} while (node != last);
+	}
+
+	/**
+	 * Checks whether every column of a row is still present and the row is still linked into each of them, meaning the
+	 * row can be selected. Secondary columns never leave the header ring's view, so a row clashing through one is
+	 * only caught by its other nodes having been unlinked
+	 */
+	boolean isRowAvailable(int rowId) {
+		int first = firstNodeOfRow[rowId], node = first;
+		do {
+			int c = column[node];
+			if (right[left[c]] != c || down[up[node]] != node)
+				return false;
+			node = right[node];
+		} while (node != first);
+		return true;
+	}
+
+	//******************//
+	//***** Search *****//
+	//******************//
+
+	/**
+	 * Searches for exact covers of the remaining columns
+	 *
+	 * @param limit The number of solutions after which the search stops
+	 * @param order Ordering applied to the candidate rows of each chosen column
+	 * @return The number of solutions found, which is at most limit
+	 */
+	int search(int limit, PossibilityOrder order) {
+		return (int) search(limit, order, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Searches for exact covers of the remaining columns until a limit or a timeout is reached, or the budget runs out
+	 *
+	 * @param limit        The number of solutions after which the search stops
+	 * @param order        Ordering applied to the candidate rows of each chosen column
+	 * @param timeoutNanos How long the search may run, or Long.MAX_VALUE for no time limit
+	 * @return The number of solutions found, which is at most limit
+	 */
+	long search(long limit, PossibilityOrder order, long timeoutNanos) {
+		this.solutionLimit = limit;
+		this.order = order;
+		tracker.start(budget, timeoutNanos);
+		solutionsFound = 0;
+		solutionDepth = 0;
+		depth = 0;
+		descending = true;
+		for (int found; (found = advance()) >= 0; ) {
+			boolean first = sharedSolutions == null ? solutionsFound == 0 : sharedSolutions.getAndIncrement() == 0;
+			solutionsFound++;
+			if (first) {
+				System.arraycopy(chosenRows, 0, firstSolution, 0, found);
+				solutionDepth = found;
+				foundFirstShared = sharedSolutions != null;
+			}
+		}
+		this.order = null;
+		return solutionsFound;
+	}
+
+	/**
+	 * Searches for exact covers while other matrices search other branches of the same puzzle.
+	 * Every search stops once the shared count reaches the limit
+	 *
+	 * @param limit           The total number of solutions after which every search sharing the count stops
+	 * @param order           Ordering applied to the candidate rows of each chosen column
+	 * @param sharedSolutions Count of solutions found so far by every matrix in the search
+	 * @return true if this matrix found the first solution of the whole search, which is then available from fillSudokuSolution()
+	 */
+	boolean searchShared(int limit, PossibilityOrder order, AtomicInteger sharedSolutions) {
+		this.sharedSolutions = sharedSolutions;
+		foundFirstShared = false;
+		search(limit, order);
+		this.sharedSolutions = null;
+		return foundFirstShared;
+	}
+
+	/**
+	 * Chooses the column with the fewest remaining rows, taking the first one found in case of a tie
+	 *
+	 * @return The column, or ROOT if every column is covered
+	 */
+	int chooseColumn() {
+		int lowest = right[ROOT];
+		for (int c = right[lowest]; c != ROOT; c = right[c])
+			if (size[c] < size[lowest])
+				lowest = c;
+		return lowest;
+	}
+
+	/**
+	 * Chooses a column by the branching strategy's column choice and tie-break
+	 *
+	 * @return The column, or ROOT if every column is covered
+	 */
+	private int chooseColumn(BranchingStrategy branching) {
+		int lowest = right[ROOT], ties = 1;
+		if (branching.getColumnChoice() == BranchingStrategy.ColumnChoice.FIRST_REMAINING)
+			return lowest;
+		for (int c = right[lowest]; c != ROOT; c = right[c])
+			if (size[c] < size[lowest]) {
+				lowest = c;
+				ties = 1;
+			} else if (size[c] == size[lowest]) {
+				ties++;
+			}
+		if (ties == 1)
+			return lowest;
+
+		// The first column of the lowest size comes before every column tied with it
+		int pick = BranchingStrategy.pickTie(branching.getTieBreak(), ties, branchingRandom);
+		for (int c = lowest; ; c = right[c])
+			if (size[c] == size[lowest] && pick-- == 0)
+				return c;
+	}
+
+	/**
+	 * Lists the rows remaining in a column
+	 *
+	 * @param rows Array with room for size[c] rows
+	 * @return The number of rows written
+	 */
+	int collectRows(int c, int[] rows) {
+		int count = 0;
+		for (int i = down[c]; i != c; i = down[i])
+			rows[count++] = row[i];
+		return count;
+	}
+
+	@Override
+	public int solve(int[][] givens, int[][] solution, PossibilityOrder order) {
+		int solutionValidity = 0;
+		lastStatus = SolutionCount.Status.EXACT;
+
+		// Apply the givens, then put the matrix back the way it was for the next puzzle
+		if (stats != null)
+			stats.startSetup();
+		boolean consistent = placeSudokuGivens(givens);
+		if (stats != null)
+			stats.startSearch();
+		if (consistent) {
+			solutionValidity = search(2, order);
+			lastStatus = tracker.getStatus(solutionValidity, 2);
+			if (solutionValidity > 0) {
+				for (int i = 0; i < boardSide; i++)
+					System.arraycopy(givens[i], 0, solution[i], 0, boardSide);
+				fillSudokuSolution(solution);
+			}
+		}
+		if (stats != null)
+			stats.endSearch(solutionValidity);
+		clearGivens();
+		return solutionValidity;
+	}
+
+	@Override
+	public SolutionCount countSolutions(int[][] givens, long limit, long timeoutNanos) {
+		long count = 0;
+		lastStatus = SolutionCount.Status.EXACT;
+		if (stats != null)
+			stats.startSetup();
+		boolean consistent = placeSudokuGivens(givens);
+		if (stats != null)
+			stats.startSearch();
+		if (consistent) {
+			count = search(limit, SudokuEngine.NATURAL_ORDER, timeoutNanos);
+			lastStatus = tracker.getStatus(count, limit);
+		}
+		if (stats != null)
+			stats.endSearch(count);
+		clearGivens();
+		return new SolutionCount(count, lastStatus);
+	}
+
+	@Override
+	public void setSolveStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
+	@Override
+	public void setBudget(SolveBudget budget) {
+		this.budget = budget;
+	}
+
+	@Override
+	public void setBranching(BranchingStrategy branching, RandomGenerator random) {
+		this.branching = branching;
+		branchingRandom = random;
+	}
+
+	@Override
+	public SolutionCount.Status getLastStatus() {
+		return lastStatus;
+	}
+
+	/**
+	 * Gets why the last call to search() ran out of budget, which unlike getLastStatus() covers the searches
+	 * callers run on the matrix directly
+	 *
+	 * @return TIMED_OUT, NODE_LIMIT_REACHED, or CANCELLED, or null if the budget didn't run out
+	 */
+	SolutionCount.Status getStopReason() {
+		return tracker.getStopReason();
+	}
+
+	/**
+	 * Writes the first solution found by the last search into a sudoku board which already holds the givens
+	 */
+	void fillSudokuSolution(int[][] board) {
+		fillSudokuRows(firstSolution, solutionDepth, board);
+	}
+
+	/**
+	 * Covers the rows of a sudoku board's known cells
+	 *
+	 * @return false if two of the givens conflict with each other, in which case the puzzle has no solutions
+	 * @throws IllegalArgumentException if the board isn't the size this matrix was built for
+	 */
+	boolean placeSudokuGivens(int[][] givens) {
+		if (givens.length != boardSide)
+			throw new IllegalArgumentException("Expected a " + boardSide + "x" + boardSide + " board, not " + givens.length + " rows");
+		for (int row = 0; row < boardSide; row++)
+			for (int col = 0; col < boardSide; col++) {
+				int val = givens[row][col];
+				if (val != 0 && !placeRow(SudokuManipulator.getPossibilityIndex(row, col, val, boardSide)))
+					return false;
+			}
+		return true;
+	}
+
+	/**
+	 * Uncovers the rows placed by placeSudokuGivens or placeRows in reverse order, leaving the matrix as it was before them
+	 */
+	void clearGivens() {
+		while (givenCount > 0)
+			uncoverRow(givenRows[--givenCount]);
+	}
+
+	//*************************//
+	//***** General Cover *****//
+	//*************************//
+
+	/**
+	 * Covers a set of given rows, which every cover found afterwards includes
+	 *
+	 * @return false if two of the rows share a column, in which case there are no covers
+	 * @throws IllegalArgumentException if a row doesn't exist
+	 */
+	boolean placeRows(int[] rowIds) {
+		for (int rowId : rowIds) {
+			if (rowId < 0 || rowId >= firstNodeOfRow.length)
+				throw new IllegalArgumentException("No row " + rowId + " in a matrix of " + firstNodeOfRow.length + " rows");
+			if (!placeRow(rowId))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the first exact cover which includes a set of given rows
+	 *
+	 * @return The cover's other rows in the order they were chosen, or null if there isn't one
+	 */
+	int[] findCover(int[] givenRows) {
+		int[] cover = null;
+		lastStatus = SolutionCount.Status.EXACT;
+		if (placeRows(givenRows)) {
+			long found = search(1, SudokuEngine.NATURAL_ORDER, Long.MAX_VALUE);
+			lastStatus = tracker.getStatus(found, 1);
+			if (found > 0) {
+				cover = new int[solutionDepth];
+				System.arraycopy(firstSolution, 0, cover, 0, solutionDepth);
+			}
+		}
+		clearGivens();
+		return cover;
+	}
+
+	/**
+	 * Counts the exact covers which include a set of given rows, up to a limit
+	 */
+	SolutionCount countCovers(int[] givenRows, long limit) {
+		long count = 0;
+		lastStatus = SolutionCount.Status.EXACT;
+		if (placeRows(givenRows)) {
+			count = search(limit, SudokuEngine.NATURAL_ORDER, Long.MAX_VALUE);
+			lastStatus = tracker.getStatus(count, limit);
+		}
+		clearGivens();
+		return new SolutionCount(count, lastStatus);
+	}
+
+	//***********************//
+	//***** Enumeration *****//
+	//***********************//
+
+	/**
+	 * Covers a sudoku board's givens and readies a search which nextSudokuSolution() carries on one solution at a time.
+	 * Until that search is over, the matrix can't be used for anything else
+	 *
+	 * @param order Ordering applied to the candidate rows of each chosen column
+	 * @return false if two of the givens conflict, in which case there's nothing to enumerate and the givens are already cleared
+	 * @throws IllegalArgumentException if the board isn't the size this matrix was built for
+	 */
+	boolean startSudokuEnumeration(int[][] givens, PossibilityOrder order) {
+		if (!placeSudokuGivens(givens)) {
+			clearGivens();
+			return false;
+		}
+		this.order = order;
+		solutionLimit = Long.MAX_VALUE;
+		tracker.start(budget, Long.MAX_VALUE);
+		solutionsFound = 0;
+		depth = 0;
+		descending = true;
+		return true;
+	}
+
+	/**
+	 * Carries the search readied by startSudokuEnumeration() on to its next solution
+	 *
+	 * @param board Sudoku board which already holds the givens, and receives the solution
+	 * @return false once there are no more solutions (or the budget ran out), at which point the givens are cleared
+	 */
+	boolean nextSudokuSolution(int[][] board) {
+		int found = depth >= 0 ? advance() : -1;
+		if (found < 0) {
+			order = null;
+			clearGivens();
+			return false;
+		}
+		solutionsFound++;
+		fillSudokuRows(chosenRows, found, board);
+		return true;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Covers one given row if it's still available
+	 */
+	private boolean placeRow(int rowId) {
+		if (!isRowAvailable(rowId))
+			return false;
+		coverRow(rowId);
+		givenRows[givenCount++] = rowId;
+		return true;
+	}
+
+	/**
+	 * Writes the cells chosen by some rows into a sudoku board. Rows numbered past the board's possibilities belong
+	 * to variant rules, like the value set chosen for a killer cage, and aren't cells
+	 */
+	private void fillSudokuRows(int[] rows, int count, int[][] board) {
+		int possibilities = boardSide * boardSide * boardSide;
+		for (int i = 0; i < count; i++) {
+			int rowId = rows[i];
+			if (rowId < possibilities)
+				board[rowId / (boardSide * boardSide)][(rowId / boardSide) % boardSide] = (rowId % boardSide) + 1;
+		}
+	}
+
+	/**
+	 * Runs the search from where it last stopped until it reaches a solution or runs out of branches.
+	 * <p>
+	 * The search is a loop over the choice stack rather than a recursion, so its depth isn't limited by the thread's
+	 * stack and it can stop at each solution and carry on later. When descending, the level at the current depth is
+	 * new: its column is chosen and its rows are collected. Otherwise the search has come back up from the level below,
+	 * whose row is uncovered. Either way the next row of the current level is then covered, or the level is left once
+	 * its rows run out or the limit is reached. Once the limit is reached or the budget runs out the search only unwinds,
+	 * which leaves the matrix the way it was before the search.
+	 *
+	 * @return The number of rows in the solution found, which are the first entries of chosenRows, or -1 once the search is over
+	 */
+	private int advance() {
+		while (depth >= 0) {
+			if (descending) {
+				descending = false;
+
+				// Stop for good once the budget runs out
+				if (tracker.isExhausted()) {
+					depth--;
+					continue;
+				}
+
+				if (stats != null)
+					stats.recordNode(depth);
+
+				// Check if every column has been covered
+				if (right[ROOT] == ROOT)
+					return depth--;
+
+				// Choose the column with the fewest remaining rows, unless a strategy says otherwise
+				int lowest = branching == null ? chooseColumn() : chooseColumn(branching);
+
+				// Collect its rows, since covering them rearranges the column
+				int count = size[lowest];
+				if (stats != null)
+					stats.recordBranch(count);
+				if (count == 0) {
+					depth--;
+					continue;
+				}
+				int[] rows = branchRows[depth];
+				if (rows == null || rows.length < count)
+					rows = branchRows[depth] = new int[count];
+				collectRows(lowest, rows);
+				order.order(rows, count);
+				branchCounts[depth] = count;
+				nextBranches[depth] = 0;
+			} else {
+				uncoverRow(chosenRows[depth]);
+			}
+
+			// Try the level's next row, or go back up a level
+			if (nextBranches[depth] < branchCounts[depth] && !isLimitReached()) {
+				int row = branchRows[depth][nextBranches[depth]++];
+				chosenRows[depth] = row;
+				coverRow(row);
+				depth++;
+				descending = true;
+			} else {
+				depth--;
+			}
+		}
+		return -1;
+	}
+
+	private boolean isLimitReached() {
+		return tracker.isStopped() || (sharedSolutions == null ? solutionsFound : sharedSolutions.get()) >= solutionLimit;
+	}
+}
@@ -1,3 +1,15 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Scanner;
 
 /*
@@ -9,10 +21,16 @@ import java.util.Scanner;
  *
  * Version: 1.0
  *
- * Description: A program which generates and solves 9x9 sudoku puzzles.
+ * Description: A program which generates and solves sudoku puzzles, from 9x9 up to 25x25.
  */
 public class DavidWhiteSudokuUtilities {
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException, InterruptedException {
+		// Run a non-interactive command if one was given
+		if (args.length > 0) {
+			runCommand(args);
+			return;
+		}
+
 		Scanner input = new Scanner(System.in);
 
 		System.out.println("**********************************************************");
@@ -67,6 +85,251 @@ public class DavidWhiteSudokuUtilities {
 		}
 	}
 
+	/**
+	 * Static helper method which runs a command given on the command line.
+	 * <p>
+	 * batch [file] [-threads N] [-engine ENGINE] [-out FILE] [-cache N] [-lockstep]: solves one puzzle per line (81 characters for 9x9, 256 for 16x16, 625 for 25x25) from the file (or stdin if
+	 * the file is omitted or "-"), writes a result line per puzzle to stdout in input order, and reports throughput to stderr.
+	 * With -out, the input is a packed file instead, and the puzzles are written to the output file packed with their validities and solutions.
+	 * With -cache, 9x9 puzzles go through a SolutionCache of up to N entries, whose hits and misses are reported to stderr.
+	 * With -lockstep instead, 9x9 puzzles are solved many at a time by a LockstepSolver
+	 * <p>
+	 * generate COUNT [-clues K] [-difficulty D] [-seed S] [-seedgrids N] [-restarts N] [-solvers N] [-diggers N] [-writers N] [-queue N] [-box N] [-engine ENGINE] [-out FILE]: generates
+	 * puzzles with a GenerationPipeline, writes "puzzle solution" lines to stdout (or packs them into the -out file), and reports per-stage progress to stderr.
+	 * With -difficulty (EASY, MEDIUM, HARD, EXPERT, or EXTREME), each puzzle is dug down to that grade instead of a clue count,
+	 * digging fresh boards until one grades right. The progress report counts the puzzles which still came out easier.
+	 * With -seedgrids, the solved boards are random symmetries of N boards solved up front, which is much faster.
+	 * With -restarts, the searches for solved boards restart with Luby cutoffs of N nodes, which cuts off the long tail of unlucky searches
+	 * <p>
+	 * serve [-host H] [-port P] [-threads N] [-queue N] [-engine ENGINE] [-cache N] [-timeout MS]: serves SOLVE, BATCH, GENERATE, and METRICS requests
+	 * with a SudokuServer on localhost (or the -host address), solving on N worker threads with up to -queue requests waiting for them.
+	 * With -timeout, a request which takes a worker longer than MS milliseconds is answered with "ERR timed out"
+	 * <p>
+	 * pack [file] -out FILE [-box N]: packs one puzzle per line from the file (or stdin) into a packed file, skipping lines that aren't puzzles of that size
+	 * <p>
+	 * unpack FILE: writes each puzzle of a packed file to stdout as a line, followed by its validity and solution if the file holds them
+	 */
+	private static void runCommand(String[] args) throws IOException, InterruptedException {
+		String file = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		SudokuManipulator.Engine engine = null;
+		int clues = SudokuGenerator.MINIMAL, solvers = threads, diggers = threads, writers = 1, queue = 256, boxSize = 3, seedGrids = 0;
+		long restartUnit = 0;
+		LogicalSolver.Difficulty difficulty = null;
+		Long seed = null;
+		String out = null;
+		int cacheSize = 0;
+		boolean lockstep = false;
+		String host = null;
+		int port = SudokuServer.DEFAULT_PORT;
+		long timeoutMillis = 0;
+		for (int i = 1; i < args.length; i++) {
+			String option = args[i];
+			if (option.equals("-lockstep")) {
+				lockstep = true;
+				continue;
+			}
+			// The one bare argument is the file (or the count for generate), and "-" alone is stdin
+			if (!option.startsWith("-") || option.equals("-")) {
+				if (file != null) {
+					printUsage("Unexpected argument: " + option);
+					return;
+				}
+				file = option;
+				continue;
+			}
+			if (i + 1 == args.length) {
+				printUsage("Missing value for " + option);
+				return;
+			}
+			String value = args[++i];
+			try {
+				switch (option) {
+					case "-threads":
+						threads = Integer.parseInt(value);
+						break;
+					case "-engine":
+						engine = SudokuManipulator.Engine.valueOf(value.toUpperCase());
+						break;
+					case "-clues":
+						clues = Integer.parseInt(value);
+						break;
+					case "-difficulty":
+						difficulty = LogicalSolver.Difficulty.valueOf(value.toUpperCase());
+						break;
+					case "-seed":
+						seed = Long.parseLong(value);
+						break;
+					case "-seedgrids":
+						seedGrids = Integer.parseInt(value);
+						break;
+					case "-restarts":
+						restartUnit = Long.parseLong(value);
+						break;
+					case "-solvers":
+						solvers = Integer.parseInt(value);
+						break;
+					case "-diggers":
+						diggers = Integer.parseInt(value);
+						break;
+					case "-writers":
+						writers = Integer.parseInt(value);
+						break;
+					case "-queue":
+						queue = Integer.parseInt(value);
+						break;
+					case "-box":
+						boxSize = Integer.parseInt(value);
+						break;
+					case "-out":
+						out = value;
+						break;
+					case "-cache":
+						cacheSize = Integer.parseInt(value);
+						break;
+					case "-host":
+						host = value;
+						break;
+					case "-port":
+						port = Integer.parseInt(value);
+						break;
+					case "-timeout":
+						timeoutMillis = Long.parseLong(value);
+						break;
+					default:
+						printUsage("Unknown option: " + option);
+						return;
+				}
+			} catch (IllegalArgumentException e) {
+				printUsage("Invalid value for " + option + ": " + value);
+				return;
+			}
+		}
+		if (file == null)
+			file = "-";
+
+		// Batches and servers reuse one solver per worker, which the node matrix can't do
+		if (engine == SudokuManipulator.Engine.LINKED_NODES && (args[0].equalsIgnoreCase("batch") || args[0].equalsIgnoreCase("serve"))) {
+			printUsage(args[0] + " can't use the LINKED_NODES engine, which can't be reused; use ARRAY_DANCING_LINKS or BITBOARD");
+			return;
+		}
+
+		SudokuManipulator.Engine batchEngine = engine == null ? SudokuManipulator.Engine.BITBOARD : engine;
+		SolutionCache cache = cacheSize > 0 ? new SolutionCache(cacheSize, batchEngine) : null;
+		BatchSolver batchSolver = new BatchSolver(batchEngine, threads).setCache(cache).setLockstep(lockstep);
+		if (args[0].equalsIgnoreCase("batch") && out != null) {
+			long start = System.nanoTime();
+			long count;
+			try (PackedPuzzleReader input = new PackedPuzzleReader(Paths.get(file));
+			     PackedPuzzleWriter output = new PackedPuzzleWriter(Paths.get(out), input.getBoxSize(), true)) {
+				count = batchSolver.run(input, output);
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.err.printf("Solved %d puzzles in %.2f s (%.0f puzzles/s) on %d threads%n", count, seconds, count / seconds, threads);
+			if (cache != null)
+				System.err.println("Cache: " + cache);
+		} else if (args[0].equalsIgnoreCase("batch")) {
+			BufferedReader reader = file.equals("-")
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII), 1 << 16)
+				: Files.newBufferedReader(Paths.get(file), StandardCharsets.US_ASCII);
+			Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+			long start = System.nanoTime();
+			long count;
+			try (BufferedReader input = reader) {
+				count = batchSolver.run(input, writer);
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.err.printf("Solved %d puzzles in %.2f s (%.0f puzzles/s) on %d threads%n", count, seconds, count / seconds, threads);
+			if (cache != null)
+				System.err.println("Cache: " + cache);
+		} else if (args[0].equalsIgnoreCase("generate") && !file.equals("-")) {
+			// The count is the only bare argument, and generated puzzles always go to stdout
+			long count;
+			try {
+				count = Long.parseLong(file);
+			} catch (NumberFormatException e) {
+				printUsage("Invalid count for generate: " + file);
+				return;
+			}
+			SudokuManipulator.setEngine(engine == null ? SudokuManipulator.Engine.ARRAY_DANCING_LINKS : engine);
+			GenerationPipeline pipeline = new GenerationPipeline(solvers, diggers, writers, queue).setBoxSize(boxSize).setDifficulty(difficulty).setSeedGrids(seedGrids).setProgress(System.err, 1000);
+			if (restartUnit > 0)
+				pipeline.setBranching(new BranchingStrategy().setRestartUnit(restartUnit));
+			if (seed != null)
+				pipeline.setSeed(seed);
+			if (out != null) {
+				try (PackedPuzzleWriter writer = new PackedPuzzleWriter(Paths.get(out), boxSize, true)) {
+					pipeline.run(count, clues, GenerationPipeline.packedSink(writer));
+				}
+			} else {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+				pipeline.run(count, clues, GenerationPipeline.lineSink(writer));
+				writer.flush();
+			}
+		} else if (args[0].equalsIgnoreCase("serve")) {
+			// GENERATE requests fill in their empty boards with this engine
+			SudokuManipulator.setEngine(engine == null ? SudokuManipulator.Engine.ARRAY_DANCING_LINKS : engine);
+			InetAddress address = host == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(host);
+			try (SudokuServer server = new SudokuServer(batchEngine, threads, queue).setCache(cache).setTimeout(timeoutMillis > 0 ? Duration.ofMillis(timeoutMillis) : null)) {
+				server.start(new InetSocketAddress(address, port));
+				System.err.printf("Listening on %s:%d with %d workers and %s threads per connection%n", address.getHostAddress(), server.getPort(),
+					threads, server.usesVirtualThreads() ? "virtual" : "platform");
+				server.awaitClose();
+			}
+		} else if (args[0].equalsIgnoreCase("pack") && out != null) {
+			BufferedReader reader = file.equals("-")
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII), 1 << 16)
+				: Files.newBufferedReader(Paths.get(file), StandardCharsets.US_ASCII);
+			long skipped = 0;
+			try (BufferedReader input = reader; PackedPuzzleWriter writer = new PackedPuzzleWriter(Paths.get(out), boxSize, false)) {
+				String line;
+				while ((line = input.readLine()) != null) {
+					int[][] puzzle = BatchSolver.parsePuzzle(line.strip());
+					if (puzzle != null && puzzle.length == boxSize * boxSize)
+						writer.write(puzzle);
+					else
+						skipped++;
+				}
+				System.err.printf("Packed %d puzzles, skipping %d lines%n", writer.size(), skipped);
+			}
+		} else if (args[0].equalsIgnoreCase("unpack") && !file.equals("-")) {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+			try (PackedPuzzleReader input = new PackedPuzzleReader(Paths.get(file))) {
+				int side = input.getBoxSize() * input.getBoxSize();
+				int[][] board = new int[side][side];
+				StringBuilder line = new StringBuilder();
+				for (long i = 0; i < input.size(); i++) {
+					line.setLength(0);
+					BatchSolver.appendPuzzle(line, input.readPuzzle(i, board));
+					if (input.hasSolutions()) {
+						int validity = input.readValidity(i);
+						line.append(' ').append(validity == PackedPuzzleFormat.UNKNOWN_VALIDITY ? "?" : String.valueOf(validity)).append(' ');
+						if (validity > 0)
+							BatchSolver.appendPuzzle(line, input.readSolution(i, board));
+						else
+							line.append('-');
+					}
+					writer.write(line.append('\n').toString());
+				}
+			}
+			writer.flush();
+		} else {
+			boolean known = args[0].matches("(?i)batch|generate|serve|pack|unpack");
+			printUsage((known ? "Missing arguments for " : "Unknown command: ") + args[0]);
+		}
+	}
+
+	/**
+	 * Static helper method which explains why a command can't run, followed by the usage of every command
+	 */
+	private static void printUsage(String problem) {
+		System.err.println(problem + "\nUsage: batch [file] [-threads N] [-engine ENGINE] [-out FILE] [-cache N] [-lockstep]"
+			+ "\n       generate COUNT [-clues K] [-difficulty D] [-seed S] [-seedgrids N] [-restarts N] [-solvers N] [-diggers N] [-writers N] [-queue N] [-box N] [-engine ENGINE] [-out FILE]"
+			+ "\n       serve [-host H] [-port P] [-threads N] [-queue N] [-engine ENGINE] [-cache N] [-timeout MS]"
+			+ "\n       pack [file] -out FILE [-box N]"
+			+ "\n       unpack FILE");
+	}
+
 	/**
 	 * Static helper method which runs the generation of a puzzle
 	 */
@@ -98,54 +361,57 @@ public class DavidWhiteSudokuUtilities {
 			// Prompt the user for input
 			System.out.println("Please input a sudoku puzzle to solve.\n" +
 				                   "Type the puzzle, separating each row with a line break. Type '0' for an empty cell.\n" +
-				                   "For example, if I wanted to type a row that was empty except for a 9 in the third cell, I would type '009000000'.");
-			puzzle = new int[9][9];
-			for (int i = 0; i < 9; i++) {
+				                   "For example, if I wanted to type a row that was empty except for a 9 in the third cell, I would type '009000000'.\n" +
+				                   "16x16 and 25x25 puzzles work the same way, using letters from A for the values after 9.");
+			puzzle = null;
+			int side = 0;
+			for (int i = 0; puzzle == null || i < side; i++) {
 				// Get user input
-				String line = input.nextLine();
+				String line = input.nextLine().strip();
+
+				// The first line sets the size of the board
+				if (puzzle == null) {
+					side = line.length();
+					if (side != 9 && side != 16 && side != 25) {
+						System.out.println("I'm sorry, but the first line needs to have 9, 16, or 25 cells.");
+						i--;
+						continue;
+					}
+					puzzle = new int[side][side];
+				}
 
 				// Validate input
 				boolean needsRefresh = false;
-				try {
-					if (line.length() != 9) {
-						System.out.println("I'm sorry, but you don't seen to have entered 9 digits.\nRemember, you need to type one entire line at a time!");
-						needsRefresh = true;
-					}
-				} catch (NumberFormatException e) {
-					System.out.println("I'm sorry, but please be sure to only enter numeric characters.\nRemember, use a 0 for an empty cell.");
+				if (line.length() != side) {
+					System.out.println("I'm sorry, but you don't seen to have entered " + side + " digits.\nRemember, you need to type one entire line at a time!");
 					needsRefresh = true;
+				} else {
+					for (int j = 0; j < side && !needsRefresh; j++) {
+						int val = BatchSolver.parseCell(line.charAt(j));
+						if (val < 0 || val > side) {
+							System.out.println("I'm sorry, but please be sure to only enter cell values.\nRemember, use a 0 for an empty cell, and letters from A for values after 9.");
+							needsRefresh = true;
+						} else {
+							puzzle[i][j] = val;
+						}
+					}
 				}
-				// If input is valid
+				// If input is invalid
 				if (needsRefresh) {
 					System.out.println("Please enter that line again." + (i > 0 ? " Here's everything else you've typed so far:" : ""));
 					for (int j = 0; j < i; j++) {
-						for (int k = 0; k < 9; k++)
-							System.out.print(puzzle[j][k]);
+						for (int k = 0; k < side; k++)
+							System.out.print(BatchSolver.toCellChar(puzzle[j][k]));
 						System.out.println();
 					}
 					i--;
-				} else for (int j = 0; j < 9; j++) puzzle[i][j] = Integer.parseInt(line.substring(j, j + 1));
+				}
 			}
 
 			// Validate the puzzle input
-			boolean[] presInRow, presInCol, presInBox;
-			haveValidInput = true;
-			validate:
-			for (int i = 0; i < 9; i++) {
-				presInRow = new boolean[] {false, false, false, false, false, false, false, false, false, false};
-				presInCol = new boolean[] {false, false, false, false, false, false, false, false, false, false};
-				presInBox = new boolean[] {false, false, false, false, false, false, false, false, false, false};
-				for (int j = 0; j < 9; j++) {
-					int boxRow = 3 * (i / 3) + (j / 3), boxCol = 3 * (i % 3) + (j % 3);
-					if ((puzzle[i][j] != 0 && presInRow[puzzle[i][j]])
-						|| (puzzle[j][i] != 0 && presInCol[puzzle[j][i]])
-						|| (puzzle[boxRow][boxCol] != 0 && presInBox[puzzle[boxRow][boxCol]])) {
-						System.out.println("This doesn't seem to be a valid sudoku puzzle.\nPlease make sure you haven't placed any duplicate numbers in the same region.\n");
-						haveValidInput = false;
-						break validate;
-					} else presInRow[puzzle[i][j]] = presInCol[puzzle[j][i]] = presInBox[puzzle[boxRow][boxCol]] = true;
-				}
-			}
+			haveValidInput = SudokuManipulator.hasValidGivens(puzzle);
+			if (!haveValidInput)
+				System.out.println("This doesn't seem to be a valid sudoku puzzle.\nPlease make sure you haven't placed any duplicate numbers in the same region.\n");
 		}
 
 		// Solve the sudoku puzzle
@@ -171,12 +437,13 @@ public class DavidWhiteSudokuUtilities {
 	 * @param puzzle The puzzle to print
 	 */
 	private static void printPuzzle(int[][] puzzle) {
+		int boxSize = SudokuManipulator.getBoxSize(puzzle.length);
 		System.out.println();
 		for (int i = 0; i < puzzle.length; i++) {
 			for (int j = 0; j < puzzle[i].length; j++) {
-				System.out.print((puzzle[i][j] == 0 ? "_" : puzzle[i][j]) + "    " + (j % 3 == 2 ? "  " : ""));
+				System.out.print((puzzle[i][j] == 0 ? '_' : BatchSolver.toCellChar(puzzle[i][j])) + "    " + (j % boxSize == boxSize - 1 ? "  " : ""));
 			}
-			System.out.println("\n" + (i % 3 == 2 ? "\n" : ""));
+			System.out.println("\n" + (i % boxSize == boxSize - 1 ? "\n" : ""));
 		}
 	}
 }
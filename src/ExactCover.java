@@ -0,0 +1,145 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * General exact cover problem, solved with the same flat dancing links search as the sudoku engines.
+ * <p>
+ * Every solution is a set of rows which covers each primary column exactly once and each secondary column at most once,
+ * so secondary columns express "never twice" without also requiring "at least once".
+ * <p>
+ * Rows are added up front, and the matrix is built on the first search and reused by every later one, so an instance
+ * isn't thread safe. SudokuVariant builds sudoku boards and their variants this way.
+ */
+public final class ExactCover {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final int primaryColumns, secondaryColumns;
+	// The matrix column headers of each row, which are the columns shifted up by one past the root
+	private final List<int[]> rows = new ArrayList<>();
+	private int rowNodes;
+	private DancingLinksMatrix matrix;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param primaryColumns   Number of columns which every solution covers exactly once, numbered from 0
+	 * @param secondaryColumns Number of columns which every solution covers at most once, numbered after the primary ones
+	 */
+	public ExactCover(int primaryColumns, int secondaryColumns) {
+		if (primaryColumns < 0 || secondaryColumns < 0)
+			throw new IllegalArgumentException("Column counts can't be negative");
+		this.primaryColumns = primaryColumns;
+		this.secondaryColumns = secondaryColumns;
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Adds a row covering some columns
+	 *
+	 * @param columns The columns the row covers, with no repeats and at least one primary column, since the search only
+	 *                ever chooses rows through their primary columns
+	 * @return The row's number, which counts up from 0 in the order rows are added
+	 * @throws IllegalArgumentException if the row covers no primary column, a column that doesn't exist, or one column twice
+	 */
+	public int addRow(int... columns) {
+		int[] headers = new int[columns.length];
+		boolean primary = false;
+		for (int i = 0; i < columns.length; i++) {
+			primary |= columns[i] >= 0 && columns[i] < primaryColumns;
+			if (columns[i] < 0 || columns[i] >= primaryColumns + secondaryColumns)
+				throw new IllegalArgumentException("No column " + columns[i] + " among " + (primaryColumns + secondaryColumns));
+			for (int j = 0; j < i; j++)
+				if (columns[j] == columns[i])
+					throw new IllegalArgumentException("Column " + columns[i] + " appears twice in one row");
+			headers[i] = columns[i] + 1;
+		}
+		if (!primary)
+			throw new IllegalArgumentException("A row has to cover at least one primary column");
+		rows.add(headers);
+		rowNodes += headers.length;
+		matrix = null;
+		return rows.size() - 1;
+	}
+
+	/**
+	 * Finds the first solution which includes a set of given rows
+	 *
+	 * @param givenRows Rows every solution has to include, like the givens of a puzzle
+	 * @return The solution's other rows in the order the search chose them, or null if there's no solution
+	 * @throws IllegalArgumentException if a given row doesn't exist
+	 */
+	public int[] solve(int... givenRows) {
+		return matrix().findCover(givenRows);
+	}
+
+	/**
+	 * Counts the solutions which include a set of given rows, up to a limit
+	 *
+	 * @param limit     The number of solutions after which counting stops
+	 * @param givenRows Rows every solution has to include, like the givens of a puzzle
+	 * @return The number of solutions found and whether that's all of them
+	 * @throws IllegalArgumentException if a given row doesn't exist
+	 */
+	public SolutionCount countSolutions(long limit, int... givenRows) {
+		return matrix().countCovers(givenRows, limit);
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the number of columns which every solution covers exactly once
+	 */
+	public int getPrimaryColumns() {
+		return primaryColumns;
+	}
+
+	/**
+	 * Gets the number of columns which every solution covers at most once
+	 */
+	public int getSecondaryColumns() {
+		return secondaryColumns;
+	}
+
+	/**
+	 * Gets the number of rows added so far
+	 */
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	//********************//
+	//***** Building *****//
+	//********************//
+
+	/**
+	 * Builds a new matrix holding every row added so far, with rows numbered in the order they were added
+	 */
+	DancingLinksMatrix buildMatrix() {
+		DancingLinksMatrix built = new DancingLinksMatrix(primaryColumns, secondaryColumns, rows.size(), rowNodes);
+		for (int i = 0; i < rows.size(); i++)
+			built.addRow(i, rows.get(i));
+		return built;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	private DancingLinksMatrix matrix() {
+		if (matrix == null)
+			matrix = buildMatrix();
+		return matrix;
+	}
+}
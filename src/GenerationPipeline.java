@@ -0,0 +1,410 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates puzzles in bulk as a three stage pipeline:
+ * solving empty boards in a random order (or transforming a few solved ones, see setSeedGrids()), removing clues from each solved board,
+ * and writing the results to a sink.
+ * Each stage has its own threads, and bounded queues between the stages keep a fast stage from running ahead.
+ * Per-stage metrics show which stage is the bottleneck.
+ * <p>
+ * With a seed, puzzle i is always generated from the same randomness no matter which threads handle it,
+ * so a run produces the same set of puzzles every time, although the sink may receive them in a different order.
+ */
+public class GenerationPipeline {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	/**
+	 * Most boards dug for each puzzle with a difficulty target unless told otherwise, which misses EXPERT,
+	 * the hardest target to dig down to, for about one puzzle in twenty
+	 */
+	public static final int DEFAULT_DIFFICULTY_ATTEMPTS = 32;
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final int solverThreads, diggerThreads, writerThreads, queueCapacity;
+	private int boxSize = 3;
+	private Long seed;
+	private LogicalSolver.Difficulty difficulty;
+	private int difficultyAttempts = DEFAULT_DIFFICULTY_ATTEMPTS;
+	private int seedGrids;
+	private BranchingStrategy branching;
+	private PrintStream progress;
+	private long progressIntervalMillis = 1000;
+	private final StageMetrics[] stages = {new StageMetrics("solve"), new StageMetrics("dig"), new StageMetrics("write")};
+	private final LongAdder difficultyMisses = new LongAdder();
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param solverThreads Threads solving empty boards
+	 * @param diggerThreads Threads removing clues from solved boards
+	 * @param writerThreads Threads handing finished puzzles to the sink
+	 * @param queueCapacity Number of boards each queue between stages can hold
+	 */
+	public GenerationPipeline(int solverThreads, int diggerThreads, int writerThreads, int queueCapacity) {
+		this.solverThreads = solverThreads;
+		this.diggerThreads = diggerThreads;
+		this.writerThreads = writerThreads;
+		this.queueCapacity = queueCapacity;
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Generates puzzles and hands each one to the sink, returning once every puzzle has been written
+	 *
+	 * @param count       The number of puzzles to generate
+	 * @param targetClues The number of clues to stop at, or SudokuGenerator.MINIMAL, unless a difficulty was set
+	 * @param sink        Destination for finished puzzles, called from every writer thread
+	 * @throws IOException if the sink fails, in which case the whole pipeline stops
+	 */
+	public void run(long count, int targetClues, PuzzleSink sink) throws IOException, InterruptedException {
+		BlockingQueue<Item> solved = new ArrayBlockingQueue<>(queueCapacity), dug = new ArrayBlockingQueue<>(queueCapacity);
+		AtomicLong solveTickets = new AtomicLong(), digTickets = new AtomicLong(), writeTickets = new AtomicLong();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		for (StageMetrics stage : stages)
+			stage.reset();
+		difficultyMisses.reset();
+		long start = System.nanoTime();
+		// Solved up front, so the seeds count toward the run's time but not toward the solve stage
+		SolvedGridFactory grids = seedGrids > 0 ? new SolvedGridFactory(boxSize, seedGrids, randomFor(-1)) : null;
+
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < solverThreads; i++)
+			threads.add(new Thread(() -> {
+				long index;
+				while ((index = solveTickets.getAndIncrement()) < count) {
+					long begin = System.nanoTime();
+					Item item = new Item(index, randomFor(index));
+					item.solution = grids != null ? grids.next(item.random) : SudokuGenerator.generateSolvedGrid(boxSize, item.random, branching);
+					long end = System.nanoTime();
+					stages[0].record(end - begin);
+					put(solved, item, stages[0]);
+				}
+			}, "pipeline-solve-" + i));
+		for (int i = 0; i < diggerThreads; i++)
+			threads.add(new Thread(() -> {
+				while (digTickets.getAndIncrement() < count) {
+					Item item = take(solved, stages[1]);
+					long begin = System.nanoTime();
+					SudokuGenerator generator = difficulty != null
+						? new SudokuGenerator(item.solution, difficulty, item.random)
+						: new SudokuGenerator(item.solution, targetClues, item.random);
+					if (difficulty != null) {
+						// Digging often stops short of the harder targets, so dig fresh boards until one grades right,
+						// keeping the hardest puzzle if none does
+						LogicalSolver.Difficulty grade = generator.getDifficulty();
+						for (int attempt = 1; grade != difficulty && attempt < difficultyAttempts; attempt++) {
+							int[][] board = grids != null ? grids.next(item.random) : SudokuGenerator.generateSolvedGrid(boxSize, item.random, branching);
+							SudokuGenerator retry = new SudokuGenerator(board, difficulty, item.random);
+							LogicalSolver.Difficulty retryGrade = retry.getDifficulty();
+							if (retryGrade.compareTo(grade) > 0) {
+								generator = retry;
+								grade = retryGrade;
+							}
+						}
+						if (grade != difficulty)
+							difficultyMisses.increment();
+						item.solution = generator.getSolvedPuzzle();
+					}
+					item.puzzle = generator.getUnsolvedPuzzle();
+					stages[1].record(System.nanoTime() - begin);
+					put(dug, item, stages[1]);
+				}
+			}, "pipeline-dig-" + i));
+		for (int i = 0; i < writerThreads; i++)
+			threads.add(new Thread(() -> {
+				while (writeTickets.getAndIncrement() < count) {
+					Item item = take(dug, stages[2]);
+					long begin = System.nanoTime();
+					try {
+						sink.accept(item.puzzle, item.solution);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+					stages[2].record(System.nanoTime() - begin);
+				}
+			}, "pipeline-write-" + i));
+
+		// Any failure stops every stage, since the others would otherwise wait forever on the queues
+		for (Thread thread : threads) {
+			thread.setDaemon(true);
+			thread.setUncaughtExceptionHandler((t, e) -> {
+				failure.compareAndSet(null, e);
+				threads.forEach(Thread::interrupt);
+			});
+			thread.start();
+		}
+		try {
+			for (Thread thread : threads) {
+				thread.join(progressIntervalMillis);
+				while (thread.isAlive()) {
+					if (progress != null)
+						printReport(progress, count, System.nanoTime() - start, solved.size(), dug.size());
+					thread.join(progressIntervalMillis);
+				}
+			}
+		} finally {
+			threads.forEach(Thread::interrupt);
+		}
+
+		Throwable cause = failure.get();
+		if (cause instanceof RuntimeException && cause.getCause() instanceof IOException)
+			throw (IOException) cause.getCause();
+		if (cause != null && !(cause.getCause() instanceof InterruptedException))
+			throw new IllegalStateException("Puzzle generation failed", cause);
+		if (progress != null)
+			printReport(progress, count, System.nanoTime() - start, solved.size(), dug.size());
+	}
+
+	/**
+	 * Gets the metrics of the solve, dig, and write stages from the latest run
+	 */
+	public StageMetrics[] getStageMetrics() {
+		return stages.clone();
+	}
+
+	/**
+	 * Gets the number of puzzles from the latest run which missed the difficulty target, since none of the boards dug
+	 * for them graded right. Each was written at the hardest grade reached, which is easier than the target
+	 */
+	public long getDifficultyMisses() {
+		return difficultyMisses.sum();
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Sets the size of the boards generated, so 4 generates 16x16 boards. The default is 3 for 9x9 boards
+	 */
+	public GenerationPipeline setBoxSize(int boxSize) {
+		this.boxSize = boxSize;
+		return this;
+	}
+
+	/**
+	 * Makes every later run generate the same set of puzzles
+	 */
+	public GenerationPipeline setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Makes every later run dig each board down to a target difficulty, ignoring the clue target, or goes back to clue targets if difficulty is null
+	 */
+	public GenerationPipeline setDifficulty(LogicalSolver.Difficulty difficulty) {
+		this.difficulty = difficulty;
+		return this;
+	}
+
+	/**
+	 * Sets the most boards dug for each puzzle with a difficulty target before giving up on the target (see getDifficultyMisses())
+	 *
+	 * @throws IllegalArgumentException if attempts is less than 1
+	 */
+	public GenerationPipeline setDifficultyAttempts(int attempts) {
+		if (attempts < 1)
+			throw new IllegalArgumentException("There must be at least 1 attempt, not " + attempts);
+		difficultyAttempts = attempts;
+		return this;
+	}
+
+	/**
+	 * Makes every later run transform seedGrids solved boards into its boards with a SolvedGridFactory,
+	 * instead of solving an empty board for every puzzle, or goes back to solving if seedGrids is 0
+	 */
+	public GenerationPipeline setSeedGrids(int seedGrids) {
+		this.seedGrids = seedGrids;
+		return this;
+	}
+
+	/**
+	 * Makes every later run solve its empty boards with a branching strategy, such as one which restarts unlucky searches,
+	 * or goes back to the engine's default if branching is null. Boards made from seed grids aren't searched, so it doesn't apply to them
+	 */
+	public GenerationPipeline setBranching(BranchingStrategy branching) {
+		this.branching = branching;
+		return this;
+	}
+
+	/**
+	 * Prints progress and per-stage throughput to a stream while running, or stops if progress is null
+	 */
+	public GenerationPipeline setProgress(PrintStream progress, long intervalMillis) {
+		this.progress = progress;
+		this.progressIntervalMillis = intervalMillis;
+		return this;
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which creates a sink writing "puzzle solution" lines of one character per cell each.
+	 * Writes are synchronized on the writer, so any number of writer threads can share it
+	 */
+	public static PuzzleSink lineSink(Writer writer) {
+		return (puzzle, solution) -> {
+			StringBuilder line = new StringBuilder((2 * puzzle.length * puzzle.length) + 2);
+			BatchSolver.appendPuzzle(line, puzzle).append(' ');
+			BatchSolver.appendPuzzle(line, solution).append('\n');
+			synchronized (writer) {
+				writer.write(line.toString());
+			}
+		};
+	}
+
+	/**
+	 * Static helper method which creates a sink appending each puzzle to a packed file along with its solution,
+	 * marked as having exactly one. Writes are synchronized on the writer, so any number of writer threads can share it
+	 *
+	 * @param writer A writer for boards of the pipeline's size which holds solutions
+	 */
+	public static PuzzleSink packedSink(PackedPuzzleWriter writer) {
+		return (puzzle, solution) -> {
+			synchronized (writer) {
+				writer.write(puzzle, solution, 1);
+			}
+		};
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	private SplittableRandom randomFor(long index) {
+		// Mix the index into the seed so neighboring puzzles get unrelated streams
+		return seed == null ? new SplittableRandom(ThreadLocalRandom.current().nextLong()) : new SplittableRandom(seed + (index * 0x9E3779B97F4A7C15L));
+	}
+
+	private void printReport(PrintStream out, long count, long elapsedNanos, int solvedQueued, int dugQueued) {
+		double seconds = elapsedNanos / 1e9;
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%d/%d puzzles in %.1f s (%.0f/s)", stages[2].getProcessed(), count, seconds, stages[2].getProcessed() / seconds));
+		for (StageMetrics stage : stages)
+			report.append(String.format(" | %s %.0f/s busy %.0f%% waiting %.0f%%", stage.getName(), stage.getProcessed() / seconds,
+				100.0 * stage.getBusyNanos() / (elapsedNanos * threadsIn(stage)), 100.0 * stage.getWaitingNanos() / (elapsedNanos * threadsIn(stage))));
+		report.append(String.format(" | queued %d/%d, %d/%d", solvedQueued, queueCapacity, dugQueued, queueCapacity));
+		if (difficulty != null)
+			report.append(String.format(" | %d easier than %s", difficultyMisses.sum(), difficulty));
+		out.println(report);
+	}
+
+	private int threadsIn(StageMetrics stage) {
+		return stage == stages[0] ? solverThreads : stage == stages[1] ? diggerThreads : writerThreads;
+	}
+
+	private static void put(BlockingQueue<Item> queue, Item item, StageMetrics stage) {
+		long begin = System.nanoTime();
+		try {
+			queue.put(item);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		stage.waitingNanos.add(System.nanoTime() - begin);
+	}
+
+	private static Item take(BlockingQueue<Item> queue, StageMetrics stage) {
+		long begin = System.nanoTime();
+		try {
+			Item item = queue.take();
+			stage.waitingNanos.add(System.nanoTime() - begin);
+			return item;
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	//*************************//
+	//***** Inner Classes *****//
+	//*************************//
+
+	/**
+	 * Destination for finished puzzles
+	 */
+	public interface PuzzleSink {
+		void accept(int[][] puzzle, int[][] solution) throws IOException;
+	}
+
+	/**
+	 * Counts of the work done by one stage. Busy time is spent on the stage's own work,
+	 * and waiting time is spent blocked on an empty input queue or a full output queue
+	 */
+	public static class StageMetrics {
+		private final String name;
+		private final LongAdder processed = new LongAdder(), busyNanos = new LongAdder(), waitingNanos = new LongAdder();
+
+		StageMetrics(String name) {
+			this.name = name;
+		}
+
+		void record(long nanos) {
+			processed.increment();
+			busyNanos.add(nanos);
+		}
+
+		void reset() {
+			processed.reset();
+			busyNanos.reset();
+			waitingNanos.reset();
+		}
+
+		//***** Accessors *****//
+
+		public String getName() {
+			return name;
+		}
+
+		public long getProcessed() {
+			return processed.sum();
+		}
+
+		public long getBusyNanos() {
+			return busyNanos.sum();
+		}
+
+		public long getWaitingNanos() {
+			return waitingNanos.sum();
+		}
+	}
+
+	/**
+	 * A puzzle moving through the pipeline
+	 */
+	private static class Item {
+		final long index;
+		final SplittableRandom random;
+		int[][] solution, puzzle;
+
+		Item(long index, SplittableRandom random) {
+			this.index = index;
+			this.random = random;
+		}
+	}
+}
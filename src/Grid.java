@@ -0,0 +1,257 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Immutable sudoku board which stores each cell in one byte, so a 9x9 board is a single 81 byte array instead of
+ * the ten arrays of 32 bit cells an int[][] takes. Cells are numbered row by row and hold 0 for empty or 1 to N^2.
+ * <p>
+ * Grids convert straight to and from the line format BatchSolver reads and writes, one character per cell with '0' or '.'
+ * for empty and 'A' onwards for 10 and up, without building an int[][] on the way. Equality compares the cells,
+ * and the hash code is computed once, so grids work well as keys.
+ * <p>
+ * Grids hold the boards the line format can: 9x9, 16x16, and 25x25.
+ */
+public final class Grid {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final byte[] cells;
+	private final int boxSize, side;
+	private final int hash;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor, which takes ownership of the cells rather than copying them
+	 *
+	 * @param cells   The value of each cell, row by row, already checked to be between 0 and N^2
+	 * @param boxSize The side length of each box
+	 */
+	private Grid(byte[] cells, int boxSize) {
+		this.cells = cells;
+		this.boxSize = boxSize;
+		side = boxSize * boxSize;
+		hash = (31 * side) + Arrays.hashCode(cells);
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which copies a board into a grid
+	 *
+	 * @param board N^2xN^2 2D int array with 0 for empty cells
+	 * @return A new grid holding the same cells
+	 * @throws IllegalArgumentException if the board isn't 9x9, 16x16, or 25x25, or a cell isn't between 0 and N^2
+	 */
+	public static Grid of(int[][] board) {
+		int side = board.length, boxSize = checkBoxSize(SudokuManipulator.getBoxSize(side));
+		byte[] cells = new byte[side * side];
+		for (int row = 0; row < side; row++) {
+			if (board[row].length != side)
+				throw new IllegalArgumentException("The board must be square");
+			for (int col = 0; col < side; col++) {
+				int val = board[row][col];
+				if (val < 0 || val > side)
+					throw new IllegalArgumentException("Cell (" + row + ", " + col + ") holds " + val + ", which isn't between 0 and " + side);
+				cells[(row * side) + col] = (byte) val;
+			}
+		}
+		return new Grid(cells, boxSize);
+	}
+
+	/**
+	 * Static helper method which reads a grid from a puzzle line of 81, 256, or 625 characters
+	 *
+	 * @param line One character per cell, row by row
+	 * @return A new grid
+	 * @throws IllegalArgumentException if the line is the wrong length or a character isn't a cell of that size
+	 */
+	public static Grid parse(CharSequence line) {
+		Grid grid = read(line);
+		if (grid == null)
+			throw new IllegalArgumentException("Not a puzzle line of 81, 256, or 625 cells: " + line);
+		return grid;
+	}
+
+	/**
+	 * Static helper method which reads a grid from a puzzle line like parse(), for callers that skip lines which aren't puzzles
+	 *
+	 * @return A new grid, or null if the line isn't a puzzle
+	 */
+	static Grid read(CharSequence line) {
+		int boxSize = 0;
+		for (int size = 3; size <= BatchSolver.MAX_BOX_SIZE; size++)
+			if (size * size * size * size == line.length())
+				boxSize = size;
+		if (boxSize == 0)
+			return null;
+		int side = boxSize * boxSize;
+		byte[] cells = new byte[side * side];
+		for (int i = 0; i < cells.length; i++) {
+			int val = BatchSolver.parseCell(line.charAt(i));
+			if (val < 0 || val > side)
+				return null;
+			cells[i] = (byte) val;
+		}
+		return new Grid(cells, boxSize);
+	}
+
+	/**
+	 * Static helper method which makes a board with every cell empty
+	 *
+	 * @param boxSize The side length of each box, so 3 for a 9x9 board
+	 * @throws IllegalArgumentException if boxSize isn't 3, 4, or 5
+	 */
+	public static Grid empty(int boxSize) {
+		checkBoxSize(boxSize);
+		return new Grid(new byte[boxSize * boxSize * boxSize * boxSize], boxSize);
+	}
+
+	/**
+	 * Static helper method which checks that a box size is one the line format can write
+	 *
+	 * @return The box size
+	 * @throws IllegalArgumentException if boxSize isn't from 3 to BatchSolver.MAX_BOX_SIZE
+	 */
+	private static int checkBoxSize(int boxSize) {
+		if (boxSize < 3 || boxSize > BatchSolver.MAX_BOX_SIZE)
+			throw new IllegalArgumentException("A grid's box size must be from 3 to " + BatchSolver.MAX_BOX_SIZE + ", not " + boxSize);
+		return boxSize;
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Gets the value of a cell
+	 *
+	 * @return The value, or 0 if the cell is empty
+	 * @throws IndexOutOfBoundsException if row or col isn't between 0 and N^2 - 1
+	 */
+	public int get(int row, int col) {
+		return cells[cellIndex(row, col)];
+	}
+
+	/**
+	 * Makes a grid which differs from this one in a single cell
+	 *
+	 * @param val The cell's new value, or 0 to empty it
+	 * @return A new grid, or this one if the cell already holds val
+	 * @throws IndexOutOfBoundsException if row or col isn't between 0 and N^2 - 1
+	 * @throws IllegalArgumentException  if val isn't between 0 and N^2
+	 */
+	public Grid with(int row, int col, int val) {
+		int cell = cellIndex(row, col);
+		if (val < 0 || val > side)
+			throw new IllegalArgumentException(val + " isn't between 0 and " + side);
+		if (cells[cell] == val)
+			return this;
+		byte[] changed = cells.clone();
+		changed[cell] = (byte) val;
+		return new Grid(changed, boxSize);
+	}
+
+	/**
+	 * Makes a board holding the same cells, for the methods that take an int[][]
+	 *
+	 * @return A new N^2xN^2 2D int array
+	 */
+	public int[][] toArray() {
+		int[][] board = new int[side][side];
+		copyInto(board);
+		return board;
+	}
+
+	/**
+	 * Writes the cells into a board the caller owns, which saves allocating one for every grid
+	 *
+	 * @param board N^2xN^2 2D int array
+	 * @throws IllegalArgumentException if the board is a different size
+	 */
+	public void copyInto(int[][] board) {
+		if (board.length != side)
+			throw new IllegalArgumentException("Expected a " + side + "x" + side + " board, not " + board.length + " rows");
+		for (int row = 0; row < side; row++)
+			for (int col = 0; col < side; col++)
+				board[row][col] = cells[(row * side) + col];
+	}
+
+	/**
+	 * Appends the grid in the line format, which saves building a separate string when it's part of a longer line
+	 */
+	public StringBuilder appendTo(StringBuilder builder) {
+		for (byte val : cells)
+			builder.append(BatchSolver.toCellChar(val));
+		return builder;
+	}
+
+	/**
+	 * Gets the grid in the line format, one character per cell with '0' for empty
+	 */
+	@Override
+	public String toString() {
+		return appendTo(new StringBuilder(cells.length)).toString();
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof Grid))
+			return false;
+		Grid grid = (Grid) other;
+		return hash == grid.hash && side == grid.side && Arrays.equals(cells, grid.cells);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the side length of each box, so 3 for a 9x9 board
+	 */
+	public int getBoxSize() {
+		return boxSize;
+	}
+
+	/**
+	 * Gets the side length of the board
+	 */
+	public int getSide() {
+		return side;
+	}
+
+	/**
+	 * Counts the cells which aren't empty
+	 */
+	public int getClueCount() {
+		int clues = 0;
+		for (byte val : cells)
+			if (val != 0)
+				clues++;
+		return clues;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Gets the position of a cell in cells, checking that it's on the board
+	 */
+	private int cellIndex(int row, int col) {
+		return (Objects.checkIndex(row, side) * side) + Objects.checkIndex(col, side);
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * Solves many 9x9 puzzles at once by loading them into the lanes of a BatchPropagator and filling in singles across
+ * all of them in lockstep, which finishes most easy puzzles without any search. Puzzles that propagation can't finish
+ * are solved one at a time by a ReusableSudokuSolver from their original givens.
+ * <p>
+ * Every deduction is forced, so a lane that propagation fills in completely has exactly one solution, and a lane
+ * left with a cell that has no candidates, or a unit missing a value, has none.
+ * <p>
+ * An instance holds mutable state and isn't thread safe, so keep one per thread.
+ */
+public class LockstepSolver {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final BatchPropagator propagator;
+	private final ReusableSudokuSolver solver;
+	private final int lanes;
+	private final short[] masks;
+	// Lanes whose givens can't be loaded as masks and go straight to the solver
+	private final boolean[] unloadable;
+	private long propagated, searched;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Default constructor, which vectorizes when it can and searches with the bitboard engine
+	 */
+	public LockstepSolver() {
+		this(SudokuManipulator.Engine.BITBOARD, true);
+	}
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param engine     The engine which solves the puzzles propagation can't finish (any engine other than LINKED_NODES)
+	 * @param vectorized Whether to use the Vector API when the runtime has it (see BatchPropagator)
+	 */
+	public LockstepSolver(SudokuManipulator.Engine engine, boolean vectorized) {
+		propagator = BatchPropagator.create(vectorized);
+		// Propagation already did what the logical fast path would start with
+		solver = new ReusableSudokuSolver(engine).setLogicFirst(false);
+		lanes = propagator.lanes();
+		masks = new short[81 * lanes];
+		unloadable = new boolean[lanes];
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Solves a run of puzzles, a group of lanes at a time
+	 *
+	 * @param puzzles    9x9 2D int arrays with all known puzzle cells filled in
+	 * @param count      The number of puzzles to solve, from the start of puzzles
+	 * @param validities Receives 0, 1, or 2 for each puzzle, like SudokuSolver.checkValidity()
+	 * @param solutions  9x9 2D int arrays which receive the first solution of each puzzle, left alone where there isn't one
+	 * @throws IllegalArgumentException if a puzzle isn't 9x9
+	 */
+	public void solve(int[][][] puzzles, int count, int[] validities, int[][][] solutions) {
+		for (int first = 0; first < count; first += lanes) {
+			int size = Math.min(lanes, count - first);
+			for (int lane = 0; lane < lanes; lane++)
+				load(lane, lane < size ? puzzles[first + lane] : null);
+			propagator.propagate(masks);
+			for (int lane = 0; lane < size; lane++) {
+				int i = first + lane, validity = unloadable[lane] ? -1 : check(lane);
+				if (validity == 1)
+					unload(lane, solutions[i]);
+				if (validity >= 0) {
+					propagated++;
+				} else {
+					validity = solver.solve(puzzles[i]);
+					solver.getSolvedPuzzle(solutions[i]);
+					searched++;
+				}
+				validities[i] = validity;
+			}
+		}
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Checks whether the puzzles are propagated with the Vector API
+	 */
+	public boolean isVectorized() {
+		return !(propagator instanceof ScalarBatchPropagator);
+	}
+
+	/**
+	 * Gets the number of puzzles propagated together
+	 */
+	public int getLanes() {
+		return lanes;
+	}
+
+	/**
+	 * Gets the number of puzzles so far which propagation settled on its own
+	 */
+	public long getPropagated() {
+		return propagated;
+	}
+
+	/**
+	 * Gets the number of puzzles so far which had to be searched
+	 */
+	public long getSearched() {
+		return searched;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Loads a puzzle into a lane, with every value possible in each empty cell. A missing puzzle leaves the lane
+	 * with no singles, so it costs nothing to propagate
+	 *
+	 * @throws IllegalArgumentException if the puzzle isn't 9x9
+	 */
+	private void load(int lane, int[][] puzzle) {
+		unloadable[lane] = false;
+		if (puzzle != null && puzzle.length != 9)
+			throw new IllegalArgumentException("Only 9x9 puzzles can be solved in lockstep");
+		for (int row = 0; row < 9; row++) {
+			if (puzzle != null && puzzle[row].length != 9)
+				throw new IllegalArgumentException("Only 9x9 puzzles can be solved in lockstep");
+			for (int col = 0; col < 9; col++) {
+				int val = puzzle == null ? 0 : puzzle[row][col];
+				if (val < 0 || val > 9) {
+					unloadable[lane] = true;
+					val = 0;
+				}
+				masks[(((row * 9) + col) * lanes) + lane] = val == 0 ? BatchPropagator.ALL : (short) (1 << (val - 1));
+			}
+		}
+	}
+
+	/**
+	 * Checks how propagation left a lane
+	 *
+	 * @return 1 if it's solved, 0 if it has no solution, or -1 if it needs a search
+	 */
+	private int check(int lane) {
+		boolean solved = true;
+		for (int[] unit : BitboardEngine.UNITS) {
+			int values = 0;
+			for (int cell : unit) {
+				int mask = masks[(cell * lanes) + lane];
+				if (mask == 0)
+					return 0;
+				if ((mask & (mask - 1)) != 0)
+					solved = false;
+				values |= mask;
+			}
+			if (values != BatchPropagator.ALL)
+				return 0;
+		}
+		return solved ? 1 : -1;
+	}
+
+	private void unload(int lane, int[][] solution) {
+		for (int cell = 0; cell < 81; cell++)
+			solution[cell / 9][cell % 9] = Integer.numberOfTrailingZeros(masks[(cell * lanes) + lane]) + 1;
+	}
+}
@@ -0,0 +1,588 @@
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Solves puzzles the way a person would, with a fixed set of techniques tried from simplest to hardest,
+ * and grades each puzzle by the hardest technique it needed.
+ * <p>
+ * Every cell holds a bitmask of the values still possible there. After any technique makes progress the simplest ones
+ * are tried again, so a harder technique only counts when nothing simpler would do. Most puzzles fall to singles
+ * and locked candidates alone, which takes far less work than building a matrix and searching it. Every deduction is
+ * forced, so a puzzle the techniques finish has exactly one solution, and one they can't finish is left STUCK for a search.
+ * <p>
+ * An instance holds mutable state and isn't thread safe, so keep one per thread.
+ */
+public class LogicalSolver {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	// Largest box size handled, since a cell's candidates are packed into the bits of an int
+	static final int MAX_BOX_SIZE = 5;
+
+	private static final Technique[] TECHNIQUES = Technique.values();
+
+	// Unit tables for each box size, built the first time a solver of that size is created. Two threads may both build
+	// one, which is harmless since the tables are immutable
+	private static final Units[] UNITS = new Units[MAX_BOX_SIZE + 1];
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final int boxSize, side;
+	private final Units units;
+	private final int[] values, candidates;
+	// Per unit scratch space for the positions of each value
+	private final int[] positions;
+	private final int[] uses = new int[TECHNIQUES.length];
+	private int empty;
+	private boolean contradiction;
+	private Outcome outcome;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Default constructor, which solves 9x9 boards
+	 */
+	public LogicalSolver() {
+		this(3);
+	}
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param boxSize The side length of each box of the boards to solve, which is 3 for a 9x9 board
+	 * @throws IllegalArgumentException if the box size isn't between 1 and MAX_BOX_SIZE
+	 */
+	public LogicalSolver(int boxSize) {
+		if (boxSize < 1 || boxSize > MAX_BOX_SIZE)
+			throw new IllegalArgumentException("The box size must be between 1 and " + MAX_BOX_SIZE + ", not " + boxSize);
+		this.boxSize = boxSize;
+		side = boxSize * boxSize;
+		units = getUnits(boxSize);
+		values = new int[side * side];
+		candidates = new int[side * side];
+		positions = new int[side];
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Solves a puzzle with every technique, replacing the results of the previous call
+	 *
+	 * @param givens N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @return SOLVED, CONTRADICTION if the givens can't lead to a solution, or STUCK if the techniques ran out first
+	 * @throws IllegalArgumentException if the board is the wrong size for this solver
+	 */
+	public Outcome solve(int[][] givens) {
+		return solve(givens, Difficulty.EXTREME);
+	}
+
+	/**
+	 * Solves a puzzle with only the techniques up to some difficulty, replacing the results of the previous call
+	 *
+	 * @param givens        N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param maxDifficulty The difficulty of the hardest technique to use
+	 * @return SOLVED, CONTRADICTION if the givens can't lead to a solution, or STUCK if the techniques ran out first
+	 * @throws IllegalArgumentException if the board is the wrong size for this solver
+	 */
+	public Outcome solve(int[][] givens, Difficulty maxDifficulty) {
+		load(givens);
+		while (!contradiction && empty > 0 && step(maxDifficulty)) {
+		}
+		outcome = contradiction ? Outcome.CONTRADICTION : empty == 0 ? Outcome.SOLVED : Outcome.STUCK;
+		return outcome;
+	}
+
+	/**
+	 * Static helper method which grades a puzzle of any size up to MAX_BOX_SIZE
+	 *
+	 * @param puzzle N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @return The difficulty of the puzzle (see getDifficulty()), or null if it has no solution
+	 */
+	public static Difficulty grade(int[][] puzzle) {
+		LogicalSolver solver = new LogicalSolver(SudokuManipulator.getBoxSize(puzzle.length));
+		solver.solve(puzzle);
+		return solver.getDifficulty();
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets how the last solve ended
+	 *
+	 * @return The outcome, or null if nothing has been solved yet
+	 */
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * Gets the grade of the last puzzle solved: the difficulty of the hardest technique it needed,
+	 * or EXTREME if the techniques allowed couldn't finish it
+	 *
+	 * @return The difficulty, or null if the puzzle had no solution or nothing has been solved yet
+	 */
+	public Difficulty getDifficulty() {
+		if (outcome == null || outcome == Outcome.CONTRADICTION)
+			return null;
+		if (outcome == Outcome.STUCK)
+			return Difficulty.EXTREME;
+		Difficulty difficulty = Difficulty.EASY;
+		for (Technique technique : TECHNIQUES)
+			if (uses[technique.ordinal()] > 0 && technique.getDifficulty().compareTo(difficulty) > 0)
+				difficulty = technique.getDifficulty();
+		return difficulty;
+	}
+
+	/**
+	 * Gets the techniques which made progress on the last puzzle solved
+	 */
+	public Set<Technique> getTechniques() {
+		Set<Technique> techniques = EnumSet.noneOf(Technique.class);
+		for (Technique technique : TECHNIQUES)
+			if (uses[technique.ordinal()] > 0)
+				techniques.add(technique);
+		return techniques;
+	}
+
+	/**
+	 * Gets the number of times a technique made progress on the last puzzle solved
+	 */
+	public int getUses(Technique technique) {
+		return uses[technique.ordinal()];
+	}
+
+	/**
+	 * Returns the last puzzle solved in its fully solved form
+	 *
+	 * @return A new N^2xN^2 2D int array, or null if the last solve wasn't SOLVED
+	 */
+	public int[][] getSolvedPuzzle() {
+		if (outcome != Outcome.SOLVED)
+			return null;
+		int[][] board = new int[side][side];
+		getSolvedPuzzle(board);
+		return board;
+	}
+
+	/**
+	 * Copies the last puzzle solved in its fully solved form into a board the caller owns
+	 *
+	 * @param board N^2xN^2 2D int array which the solution is written into
+	 * @return false, leaving the board alone, if the last solve wasn't SOLVED
+	 */
+	public boolean getSolvedPuzzle(int[][] board) {
+		if (outcome != Outcome.SOLVED)
+			return false;
+		for (int row = 0; row < side; row++)
+			System.arraycopy(values, row * side, board[row], 0, side);
+		return true;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Fills in the givens, starting every other cell with all of its values possible
+	 */
+	private void load(int[][] givens) {
+		if (givens.length != side)
+			throw new IllegalArgumentException("The board must be " + side + "x" + side);
+		Arrays.fill(values, 0);
+		Arrays.fill(candidates, (1 << side) - 1);
+		Arrays.fill(uses, 0);
+		empty = side * side;
+		contradiction = false;
+		for (int row = 0; row < side; row++) {
+			if (givens[row].length != side)
+				throw new IllegalArgumentException("The board must be " + side + "x" + side);
+			for (int col = 0; col < side; col++) {
+				int val = givens[row][col], cell = (row * side) + col;
+				if (val == 0)
+					continue;
+				// A value out of range or ruled out by an earlier given can't be placed
+				if (val < 0 || val > side || (candidates[cell] & (1 << (val - 1))) == 0) {
+					contradiction = true;
+					return;
+				}
+				place(cell, val);
+			}
+		}
+	}
+
+	/**
+	 * Makes progress with the simplest technique that can
+	 *
+	 * @return false if no technique up to the maximum difficulty made progress
+	 */
+	private boolean step(Difficulty maxDifficulty) {
+		for (Technique technique : TECHNIQUES) {
+			if (technique.getDifficulty().compareTo(maxDifficulty) > 0)
+				return false;
+			if (apply(technique)) {
+				uses[technique.ordinal()]++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean apply(Technique technique) {
+		switch (technique) {
+			case NAKED_SINGLE:
+				return nakedSingles();
+			case HIDDEN_SINGLE:
+				return hiddenSingles();
+			case LOCKED_CANDIDATES:
+				return lockedCandidates();
+			case NAKED_PAIR:
+				return nakedPairs();
+			case HIDDEN_PAIR:
+				return hiddenPairs();
+			case X_WING:
+				return xWing(0, side) || xWing(side, 0);
+			default:
+				throw new AssertionError(technique);
+		}
+	}
+
+	/**
+	 * Places a value, ruling it out of every cell that shares a row, column, or box
+	 */
+	private void place(int cell, int val) {
+		values[cell] = val;
+		candidates[cell] = 0;
+		empty--;
+		int bit = 1 << (val - 1);
+		for (int unit : units.unitsOf[cell])
+			for (int peer : units.cells[unit])
+				eliminate(peer, bit);
+	}
+
+	/**
+	 * Rules values out of a cell, noting a contradiction if it has none left
+	 *
+	 * @return Whether any of the values were still possible there
+	 */
+	private boolean eliminate(int cell, int mask) {
+		if ((candidates[cell] & mask) == 0)
+			return false;
+		candidates[cell] &= ~mask;
+		if (candidates[cell] == 0)
+			contradiction = true;
+		return true;
+	}
+
+	//**********************//
+	//***** Techniques *****//
+	//**********************//
+
+	/**
+	 * Fills in every cell with only one value left
+	 */
+	private boolean nakedSingles() {
+		boolean progress = false;
+		for (int cell = 0; cell < candidates.length; cell++) {
+			int mask = candidates[cell];
+			if (mask != 0 && (mask & (mask - 1)) == 0) {
+				place(cell, Integer.numberOfTrailingZeros(mask) + 1);
+				progress = true;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Fills in every value with only one place left in some unit
+	 */
+	private boolean hiddenSingles() {
+		int full = (1 << side) - 1;
+		boolean progress = false;
+		for (int[] unit : units.cells) {
+			// Values seen once and more than once among the unit's candidates, and values already placed in it
+			int once = 0, twice = 0, placed = 0;
+			for (int cell : unit) {
+				if (values[cell] != 0)
+					placed |= 1 << (values[cell] - 1);
+				twice |= once & candidates[cell];
+				once |= candidates[cell];
+			}
+			if ((once | placed) != full) {
+				contradiction = true;
+				return true;
+			}
+			for (int singles = once & ~twice; singles != 0; singles &= singles - 1) {
+				int bit = singles & -singles, cell = find(unit, bit);
+				// One cell can't be the only place for two values
+				if (cell < 0) {
+					contradiction = true;
+					return true;
+				}
+				place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+				progress = true;
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * Checks every intersection of a box with a row or column. A value the box only has in the intersection
+	 * can't go anywhere else along the line (pointing), and a value the line only has there can't go anywhere
+	 * else in the box (claiming)
+	 */
+	private boolean lockedCandidates() {
+		for (int line = 0; line < 2 * side; line++) {
+			int[] lineCells = units.cells[line];
+			for (int k = 0; k < side; k += boxSize) {
+				int box = units.unitsOf[lineCells[k]][2];
+				int inside = 0, lineRest = 0, boxRest = 0;
+				for (int cell : lineCells)
+					if (units.unitsOf[cell][2] == box)
+						inside |= candidates[cell];
+					else
+						lineRest |= candidates[cell];
+				for (int cell : units.cells[box])
+					if (units.unitsOf[cell][line / side] != line)
+						boxRest |= candidates[cell];
+
+				int pointing = inside & ~boxRest & lineRest, claiming = inside & ~lineRest & boxRest;
+				if (pointing != 0) {
+					for (int cell : lineCells)
+						if (units.unitsOf[cell][2] != box)
+							eliminate(cell, pointing);
+					return true;
+				}
+				if (claiming != 0) {
+					for (int cell : units.cells[box])
+						if (units.unitsOf[cell][line / side] != line)
+							eliminate(cell, claiming);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds two cells in a unit with the same two values left, which rules those values out of the rest of the unit
+	 */
+	private boolean nakedPairs() {
+		for (int[] unit : units.cells)
+			for (int i = 0; i < side; i++) {
+				int pair = candidates[unit[i]];
+				if (Integer.bitCount(pair) != 2)
+					continue;
+				for (int j = i + 1; j < side; j++) {
+					if (candidates[unit[j]] != pair)
+						continue;
+					boolean progress = false;
+					for (int k = 0; k < side; k++)
+						if (k != i && k != j)
+							progress |= eliminate(unit[k], pair);
+					if (progress)
+						return true;
+				}
+			}
+		return false;
+	}
+
+	/**
+	 * Finds two values with the same two places left in a unit, which rules every other value out of those two cells
+	 */
+	private boolean hiddenPairs() {
+		for (int[] unit : units.cells) {
+			findPositions(unit);
+			for (int v = 0; v < side; v++) {
+				if (Integer.bitCount(positions[v]) != 2)
+					continue;
+				for (int w = v + 1; w < side; w++) {
+					if (positions[w] != positions[v])
+						continue;
+					int others = ~((1 << v) | (1 << w));
+					boolean progress = false;
+					for (int places = positions[v]; places != 0; places &= places - 1)
+						progress |= eliminate(unit[Integer.numberOfTrailingZeros(places)], others);
+					if (progress)
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds a value with the same two places left in two base units (rows or columns), which rules it out of the rest
+	 * of the two cover units (columns or rows) crossing those places. Index k of base unit b sits in cover unit k at index b
+	 *
+	 * @param baseStart  The index of the first base unit
+	 * @param coverStart The index of the first cover unit
+	 */
+	private boolean xWing(int baseStart, int coverStart) {
+		for (int bit = 1; bit < (1 << side); bit <<= 1) {
+			for (int b = 0; b < side; b++)
+				positions[b] = findPlaces(units.cells[baseStart + b], bit);
+			for (int b1 = 0; b1 < side; b1++) {
+				if (Integer.bitCount(positions[b1]) != 2)
+					continue;
+				for (int b2 = b1 + 1; b2 < side; b2++) {
+					if (positions[b2] != positions[b1])
+						continue;
+					boolean progress = false;
+					for (int places = positions[b1]; places != 0; places &= places - 1) {
+						int[] cover = units.cells[coverStart + Integer.numberOfTrailingZeros(places)];
+						for (int b = 0; b < side; b++)
+							if (b != b1 && b != b2)
+								progress |= eliminate(cover[b], bit);
+					}
+					if (progress)
+						return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the first cell of a unit where a value is still possible
+	 *
+	 * @return The cell, or -1 if there isn't one
+	 */
+	private int find(int[] unit, int bit) {
+		for (int cell : unit)
+			if ((candidates[cell] & bit) != 0)
+				return cell;
+		return -1;
+	}
+
+	/**
+	 * Finds every index of a unit where a value is still possible
+	 *
+	 * @return A bitmask of the indices
+	 */
+	private int findPlaces(int[] unit, int bit) {
+		int places = 0;
+		for (int k = 0; k < unit.length; k++)
+			if ((candidates[unit[k]] & bit) != 0)
+				places |= 1 << k;
+		return places;
+	}
+
+	/**
+	 * Fills positions with a bitmask of the indices of a unit where each value is still possible
+	 */
+	private void findPositions(int[] unit) {
+		Arrays.fill(positions, 0);
+		for (int k = 0; k < unit.length; k++)
+			for (int mask = candidates[unit[k]]; mask != 0; mask &= mask - 1)
+				positions[Integer.numberOfTrailingZeros(mask)] |= 1 << k;
+	}
+
+	/**
+	 * Static helper method which gets the unit tables for a box size, building them the first time
+	 */
+	private static Units getUnits(int boxSize) {
+		Units tables = UNITS[boxSize];
+		if (tables == null)
+			UNITS[boxSize] = tables = new Units(boxSize);
+		return tables;
+	}
+
+	//*************************//
+	//***** Inner Classes *****//
+	//*************************//
+
+	/**
+	 * How hard a puzzle is for a person, from the hardest technique needed to solve it
+	 */
+	public enum Difficulty {
+		/** Singles alone */
+		EASY,
+		/** Locked candidates */
+		MEDIUM,
+		/** Naked or hidden pairs */
+		HARD,
+		/** X-wings */
+		EXPERT,
+		/** More than any of the techniques can do, so some guessing is needed */
+		EXTREME
+	}
+
+	/**
+	 * The techniques tried, from simplest to hardest
+	 */
+	public enum Technique {
+		/** A cell with only one value left */
+		NAKED_SINGLE(Difficulty.EASY),
+		/** A value with only one place left in a row, column, or box */
+		HIDDEN_SINGLE(Difficulty.EASY),
+		/** A value confined to where a box meets a row or column, in one of the two */
+		LOCKED_CANDIDATES(Difficulty.MEDIUM),
+		/** Two cells of a unit with the same two values left */
+		NAKED_PAIR(Difficulty.HARD),
+		/** Two values of a unit with the same two places left */
+		HIDDEN_PAIR(Difficulty.HARD),
+		/** A value with the same two places left in two rows, or in two columns */
+		X_WING(Difficulty.EXPERT);
+
+		private final Difficulty difficulty;
+
+		Technique(Difficulty difficulty) {
+			this.difficulty = difficulty;
+		}
+
+		/**
+		 * Gets the difficulty of a puzzle which needs this technique
+		 */
+		public Difficulty getDifficulty() {
+			return difficulty;
+		}
+	}
+
+	/**
+	 * How a solve ended
+	 */
+	public enum Outcome {
+		/** Every cell was filled in, so the puzzle has exactly one solution */
+		SOLVED,
+		/** The givens rule out every value of some cell or every place of some value, so the puzzle has no solution */
+		CONTRADICTION,
+		/** The techniques ran out before the board was filled in */
+		STUCK
+	}
+
+	/**
+	 * The cells of every row, column, and box of a board, which never change once built and so are shared freely
+	 */
+	private static final class Units {
+		// The cells of each unit: the rows, then the columns, then the boxes
+		final int[][] cells;
+		// The row, column, and box unit of each cell
+		final int[][] unitsOf;
+
+		Units(int boxSize) {
+			int side = boxSize * boxSize;
+			cells = new int[3 * side][side];
+			unitsOf = new int[side * side][];
+			for (int row = 0; row < side; row++)
+				for (int col = 0; col < side; col++) {
+					int cell = (row * side) + col, box = ((row / boxSize) * boxSize) + (col / boxSize);
+					int index = ((row % boxSize) * boxSize) + (col % boxSize);
+					cells[row][col] = cell;
+					cells[side + col][row] = cell;
+					cells[(2 * side) + box][index] = cell;
+					unitsOf[cell] = new int[] {row, side + col, (2 * side) + box};
+				}
+		}
+	}
+}
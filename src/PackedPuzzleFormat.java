@@ -0,0 +1,171 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary format for puzzle corpora, read by PackedPuzzleReader and written by PackedPuzzleWriter.
+ * <p>
+ * A file starts with a HEADER_SIZE byte header: the magic number, the format version, the box size, the flags,
+ * the bits per cell, the record size, and the number of records. Every record after it is the same size, so a record's
+ * position follows from its index and no separate index is stored. A record is a validity byte (0, 1, or 2 like
+ * checkValidity(), or UNKNOWN_VALIDITY), the packed puzzle, and the packed solution if the file has FLAG_SOLUTIONS.
+ * <p>
+ * Boards are packed row by row with each cell taking just enough bits to hold the side length, least significant bits
+ * first, so a 9x9 board takes 4 bits per cell and 41 bytes. Multi-byte header fields are big-endian.
+ */
+public final class PackedPuzzleFormat {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	static final int MAGIC = 0x53444B50; // "SDKP"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+
+	// Header field offsets
+	static final int VERSION_OFFSET = 4, BOX_SIZE_OFFSET = 5, FLAGS_OFFSET = 6, BITS_OFFSET = 7, RECORD_SIZE_OFFSET = 8, COUNT_OFFSET = 16;
+
+	// Set in the flags when every record holds a solution after its puzzle
+	static final int FLAG_SOLUTIONS = 1;
+
+	// Validity byte of a record whose puzzle hasn't been solved
+	public static final int UNKNOWN_VALIDITY = -1;
+
+	// Largest box size whose values fit in a byte per cell
+	static final int MAX_BOX_SIZE = 15;
+
+	private PackedPuzzleFormat() {
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Packs a board into a new array of boardBytes(board.length) bytes
+	 *
+	 * @param board N^2xN^2 2D int array with 0 for empty cells
+	 * @return The packed board
+	 */
+	public static byte[] pack(int[][] board) {
+		byte[] packed = new byte[boardBytes(board.length)];
+		packBoard(board, ByteBuffer.wrap(packed), 0);
+		return packed;
+	}
+
+	/**
+	 * Unpacks a board packed by pack()
+	 *
+	 * @param packed The packed board
+	 * @param side   The side length of the board, which is 9 for a 9x9 board
+	 * @return A new N^2xN^2 2D int array
+	 * @throws IllegalArgumentException if a cell holds a value larger than the side length
+	 */
+	public static int[][] unpack(byte[] packed, int side) {
+		return unpackBoard(ByteBuffer.wrap(packed), 0, new int[side][side]);
+	}
+
+	/**
+	 * Gets the number of bits each cell of a board takes, which is 4 for a 9x9 board and 5 for 16x16 or 25x25
+	 */
+	public static int bitsPerCell(int side) {
+		return 32 - Integer.numberOfLeadingZeros(side);
+	}
+
+	/**
+	 * Gets the number of bytes a packed board takes, which is 41 for a 9x9 board
+	 */
+	public static int boardBytes(int side) {
+		return ((side * side * bitsPerCell(side)) + 7) / 8;
+	}
+
+	/**
+	 * Gets the number of bytes each record takes: the validity byte, the puzzle, and the solution if there is one
+	 */
+	public static int recordSize(int side, boolean withSolutions) {
+		return 1 + boardBytes(side) * (withSolutions ? 2 : 1);
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which packs a board into a buffer at an absolute offset, leaving the buffer's position alone
+	 */
+	static void packBoard(int[][] board, ByteBuffer dst, int offset) {
+		int bits = bitsPerCell(board.length), pending = 0, pendingBits = 0, pos = offset;
+		for (int[] row : board)
+			for (int val : row) {
+				pending |= val << pendingBits;
+				pendingBits += bits;
+				if (pendingBits >= 8) {
+					dst.put(pos++, (byte) pending);
+					pending >>>= 8;
+					pendingBits -= 8;
+				}
+			}
+		if (pendingBits > 0)
+			dst.put(pos, (byte) pending);
+	}
+
+	/**
+	 * Static helper method which unpacks a board from a buffer at an absolute offset into a board the caller owns,
+	 * leaving the buffer's position alone
+	 *
+	 * @param board N^2xN^2 2D int array which is overwritten
+	 * @return The board
+	 * @throws IllegalArgumentException if a cell holds a value larger than the side length
+	 */
+	static int[][] unpackBoard(ByteBuffer src, int offset, int[][] board) {
+		int side = board.length, bits = bitsPerCell(side), mask = (1 << bits) - 1, pending = 0, pendingBits = 0, pos = offset;
+		for (int[] row : board)
+			for (int col = 0; col < side; col++) {
+				if (pendingBits < bits) {
+					pending |= (src.get(pos++) & 0xFF) << pendingBits;
+					pendingBits += 8;
+				}
+				int val = pending & mask;
+				if (val > side)
+					throw new IllegalArgumentException("A packed cell holds " + val + ", which doesn't fit on a " + side + "x" + side + " board");
+				row[col] = val;
+				pending >>>= bits;
+				pendingBits -= bits;
+			}
+		return board;
+	}
+
+	/**
+	 * Static helper method which writes a whole record at an absolute offset
+	 *
+	 * @param solution The solution, or null to leave it empty. Ignored unless withSolutions is set
+	 * @param validity 0, 1, 2, or UNKNOWN_VALIDITY
+	 */
+	static void packRecord(ByteBuffer dst, int offset, int[][] puzzle, int[][] solution, int validity, boolean withSolutions) {
+		int side = puzzle.length, boardBytes = boardBytes(side);
+		dst.put(offset, (byte) validity);
+		packBoard(puzzle, dst, offset + 1);
+		if (!withSolutions)
+			return;
+		if (solution != null)
+			packBoard(solution, dst, offset + 1 + boardBytes);
+		else
+			for (int i = 0; i < boardBytes; i++)
+				dst.put(offset + 1 + boardBytes + i, (byte) 0);
+	}
+
+	/**
+	 * Static helper method which builds a file header
+	 */
+	static ByteBuffer header(int boxSize, boolean withSolutions, long count) {
+		int side = boxSize * boxSize;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(0, MAGIC);
+		header.put(VERSION_OFFSET, (byte) VERSION);
+		header.put(BOX_SIZE_OFFSET, (byte) boxSize);
+		header.put(FLAGS_OFFSET, (byte) (withSolutions ? FLAG_SOLUTIONS : 0));
+		header.put(BITS_OFFSET, (byte) bitsPerCell(side));
+		header.putInt(RECORD_SIZE_OFFSET, recordSize(side, withSolutions));
+		header.putLong(COUNT_OFFSET, count);
+		return header;
+	}
+}
@@ -0,0 +1,174 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file in PackedPuzzleFormat through memory mapped segments, so records are unpacked straight from the page cache
+ * with no read buffers or parsing. Boards are unpacked into arrays the caller owns and reuses.
+ * <p>
+ * A mapping can't exceed 2 GB, so the records are mapped in segments of at most SEGMENT_BYTES, each holding a whole
+ * number of records. Reads don't move any buffer's position, so any number of threads can read one reader at once.
+ * The mappings are released by the garbage collector rather than by close().
+ */
+public final class PackedPuzzleReader implements Closeable {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	static final int SEGMENT_BYTES = 1 << 30;
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final FileChannel channel;
+	private final int boxSize, side, recordSize, boardBytes, recordsPerSegment;
+	private final boolean hasSolutions;
+	private final long count;
+	private final MappedByteBuffer[] segments;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor, which checks the header and maps the records
+	 *
+	 * @param file A file written by PackedPuzzleWriter
+	 * @throws IOException if the file can't be read, isn't in PackedPuzzleFormat, or is shorter than its header says
+	 */
+	public PackedPuzzleReader(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(PackedPuzzleFormat.HEADER_SIZE);
+			channel.read(header, 0);
+			if (header.hasRemaining() || header.getInt(0) != PackedPuzzleFormat.MAGIC)
+				throw new IOException(file + " isn't a packed puzzle file");
+			if (header.get(PackedPuzzleFormat.VERSION_OFFSET) != PackedPuzzleFormat.VERSION)
+				throw new IOException(file + " has unsupported format version " + header.get(PackedPuzzleFormat.VERSION_OFFSET));
+			boxSize = header.get(PackedPuzzleFormat.BOX_SIZE_OFFSET);
+			side = boxSize * boxSize;
+			hasSolutions = (header.get(PackedPuzzleFormat.FLAGS_OFFSET) & PackedPuzzleFormat.FLAG_SOLUTIONS) != 0;
+			recordSize = header.getInt(PackedPuzzleFormat.RECORD_SIZE_OFFSET);
+			count = header.getLong(PackedPuzzleFormat.COUNT_OFFSET);
+			if (boxSize < 1 || boxSize > PackedPuzzleFormat.MAX_BOX_SIZE || recordSize != PackedPuzzleFormat.recordSize(side, hasSolutions)
+				|| header.get(PackedPuzzleFormat.BITS_OFFSET) != PackedPuzzleFormat.bitsPerCell(side) || count < 0)
+				throw new IOException(file + " has a corrupt header");
+			if (channel.size() < PackedPuzzleFormat.HEADER_SIZE + (count * recordSize))
+				throw new IOException(file + " is truncated: its header lists " + count + " records");
+			boardBytes = PackedPuzzleFormat.boardBytes(side);
+
+			// Map the records in segments which each start on a record boundary
+			recordsPerSegment = SEGMENT_BYTES / recordSize;
+			segments = new MappedByteBuffer[(int) ((count + recordsPerSegment - 1) / recordsPerSegment)];
+			for (int i = 0; i < segments.length; i++) {
+				long first = (long) i * recordsPerSegment, records = Math.min(recordsPerSegment, count - first);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, PackedPuzzleFormat.HEADER_SIZE + (first * recordSize), records * recordSize);
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Unpacks a record's puzzle
+	 *
+	 * @param index The record's index, from 0 to size() - 1
+	 * @param board N^2xN^2 2D int array which the puzzle is written into
+	 * @return The board
+	 * @throws IllegalArgumentException if the board isn't the size of this file's boards or the record is corrupt
+	 */
+	public int[][] readPuzzle(long index, int[][] board) {
+		checkBoard(board);
+		return PackedPuzzleFormat.unpackBoard(segmentOf(index), offsetOf(index) + 1, board);
+	}
+
+	/**
+	 * Unpacks a record's solution, which is all zeros if the record's puzzle has no solution or hasn't been solved
+	 *
+	 * @param index The record's index, from 0 to size() - 1
+	 * @param board N^2xN^2 2D int array which the solution is written into
+	 * @return The board
+	 * @throws IllegalStateException if the file doesn't hold solutions
+	 */
+	public int[][] readSolution(long index, int[][] board) {
+		if (!hasSolutions)
+			throw new IllegalStateException("This file doesn't hold solutions");
+		checkBoard(board);
+		return PackedPuzzleFormat.unpackBoard(segmentOf(index), offsetOf(index) + 1 + boardBytes, board);
+	}
+
+	/**
+	 * Gets the validity stored with a record
+	 *
+	 * @param index The record's index, from 0 to size() - 1
+	 * @return 0, 1, or 2 like checkValidity(), or PackedPuzzleFormat.UNKNOWN_VALIDITY if the puzzle hasn't been solved
+	 */
+	public int readValidity(long index) {
+		return segmentOf(index).get(offsetOf(index));
+	}
+
+	/**
+	 * Releases the file. Mappings live on until they're garbage collected, but nothing can be read after this
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the number of records in the file
+	 */
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * Gets the box size of every board in the file, which is 3 for 9x9 boards
+	 */
+	public int getBoxSize() {
+		return boxSize;
+	}
+
+	/**
+	 * Checks whether every record holds a solution after its puzzle
+	 */
+	public boolean hasSolutions() {
+		return hasSolutions;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	private ByteBuffer segmentOf(long index) {
+		if (index < 0 || index >= count)
+			throw new IndexOutOfBoundsException("Record " + index + " out of " + count);
+		if (!channel.isOpen())
+			throw new IllegalStateException("The reader is closed");
+		return segments[(int) (index / recordsPerSegment)];
+	}
+
+	private int offsetOf(long index) {
+		return (int) (index % recordsPerSegment) * recordSize;
+	}
+
+	private void checkBoard(int[][] board) {
+		if (board.length != side)
+			throw new IllegalArgumentException("Expected a " + side + "x" + side + " board, not " + board.length + " rows");
+	}
+}
@@ -0,0 +1,176 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends records in PackedPuzzleFormat to a new file through memory mapped segments, packing each board straight into
+ * the mapping with no intermediate buffers or text.
+ * <p>
+ * The file grows a segment of up to SEGMENT_BYTES at a time. close() writes the record count into the header and cuts
+ * off the unused end of the last segment, so a file that was never closed reads as holding no records.
+ * A writer isn't thread safe, so threads sharing one must synchronize on it.
+ */
+public final class PackedPuzzleWriter implements Closeable {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	static final int SEGMENT_BYTES = 1 << 26;
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final FileChannel channel;
+	private final int boxSize, side, recordSize, recordsPerSegment;
+	private final boolean withSolutions;
+	private MappedByteBuffer segment;
+	private int segmentRecords;
+	private long count;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor, which creates the file or replaces whatever was there
+	 *
+	 * @param file          The file to write
+	 * @param boxSize       The box size of every board written, which is 3 for 9x9 boards
+	 * @param withSolutions Whether each record holds a solution after its puzzle
+	 * @throws IllegalArgumentException if the box size is less than 1 or more than 15
+	 */
+	public PackedPuzzleWriter(Path file, int boxSize, boolean withSolutions) throws IOException {
+		if (boxSize < 1 || boxSize > PackedPuzzleFormat.MAX_BOX_SIZE)
+			throw new IllegalArgumentException("Packed boards must have a box size from 1 to " + PackedPuzzleFormat.MAX_BOX_SIZE + ", not " + boxSize);
+		this.boxSize = boxSize;
+		this.withSolutions = withSolutions;
+		side = boxSize * boxSize;
+		recordSize = PackedPuzzleFormat.recordSize(side, withSolutions);
+		recordsPerSegment = Math.max(1, SEGMENT_BYTES / recordSize);
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			writeHeader();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Appends an unsolved puzzle, with an empty solution if the file holds solutions
+	 *
+	 * @param puzzle N^2xN^2 2D int array with 0 for empty cells
+	 */
+	public void write(int[][] puzzle) throws IOException {
+		write(puzzle, null, PackedPuzzleFormat.UNKNOWN_VALIDITY);
+	}
+
+	/**
+	 * Appends a puzzle along with what's known about its solutions
+	 *
+	 * @param puzzle   N^2xN^2 2D int array with 0 for empty cells
+	 * @param solution N^2xN^2 2D int array, or null if there's no solution. Ignored if the file doesn't hold solutions
+	 * @param validity 0, 1, or 2 like checkValidity(), or PackedPuzzleFormat.UNKNOWN_VALIDITY
+	 * @throws IllegalArgumentException if a board isn't the size of this file's boards
+	 */
+	public void write(int[][] puzzle, int[][] solution, int validity) throws IOException {
+		if (puzzle.length != side || (withSolutions && solution != null && solution.length != side))
+			throw new IllegalArgumentException("Expected a " + side + "x" + side + " board, not " + puzzle.length + " rows");
+		PackedPuzzleFormat.packRecord(nextRecord(), segmentRecords++ * recordSize, puzzle, solution, validity, withSolutions);
+		count++;
+	}
+
+	/**
+	 * Finishes the file by writing the record count into its header and trimming it to its records
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!channel.isOpen())
+			return;
+		try {
+			if (segment != null)
+				segment.force();
+			segment = null;
+			writeHeader();
+			channel.truncate(PackedPuzzleFormat.HEADER_SIZE + (count * recordSize));
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the number of records written so far
+	 */
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * Gets the box size of every board in the file, which is 3 for 9x9 boards
+	 */
+	public int getBoxSize() {
+		return boxSize;
+	}
+
+	/**
+	 * Checks whether every record holds a solution after its puzzle
+	 */
+	public boolean hasSolutions() {
+		return withSolutions;
+	}
+
+	//***********************//
+	//***** Bulk Writes *****//
+	//***********************//
+
+	/**
+	 * Appends records which were already packed with PackedPuzzleFormat.packRecord() for a file like this one
+	 *
+	 * @param records     The records, one after another
+	 * @param recordCount The number of records to copy from the start of the array
+	 */
+	void writeRecords(byte[] records, int recordCount) throws IOException {
+		for (int i = 0; i < recordCount; i++) {
+			nextRecord().put(segmentRecords++ * recordSize, records, i * recordSize, recordSize);
+			count++;
+		}
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Gets the segment the next record goes in, mapping a new one at the end of the file if the current one is full
+	 */
+	private ByteBuffer nextRecord() throws IOException {
+		if (!channel.isOpen())
+			throw new IOException("The writer is closed");
+		if (segment == null || segmentRecords == recordsPerSegment) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, PackedPuzzleFormat.HEADER_SIZE + (count * recordSize), (long) recordsPerSegment * recordSize);
+			segmentRecords = 0;
+		}
+		return segment;
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = PackedPuzzleFormat.header(boxSize, withSolutions, count);
+		while (header.hasRemaining())
+			channel.write(header, header.position());
+	}
+}
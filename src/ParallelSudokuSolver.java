@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Solver which splits the top levels of the dancing links search into fork/join tasks, so a single hard puzzle
+ * can keep every core busy. Each task searches its own copy of the matrix, while the solution count and the
+ * first solution are shared so every task stops as soon as the answer is known.
+ * <p>
+ * If a puzzle has more than one solution, which one is reported depends on which task finds one first.
+ */
+public class ParallelSudokuSolver {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	// Branches deeper than this are always searched sequentially
+	private static final int MAX_SPLIT_DEPTH = 8;
+
+	// A task only splits while its worker has fewer queued tasks than this that other workers could steal
+	private static final int SURPLUS_THRESHOLD = 2;
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final ForkJoinPool pool;
+	private int[][] solution;
+	private int solutionValidity;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Default constructor, which runs on the common fork/join pool
+	 */
+	public ParallelSudokuSolver() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor which runs every search on a particular pool
+	 *
+	 * @param pool The pool the search tasks are run in
+	 */
+	public ParallelSudokuSolver(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Solves a puzzle using every worker of the pool, replacing the results of the previous call
+	 *
+	 * @param givens N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution
+	 */
+	public int solve(int[][] givens) {
+		solution = null;
+		solutionValidity = 0;
+
+		int side = givens.length;
+		DancingLinksMatrix matrix = DancingLinksMatrix.sudoku(SudokuManipulator.getBoxSize(side));
+		if (!matrix.placeSudokuGivens(givens))
+			return solutionValidity;
+
+		Search search = new Search(2, side);
+		pool.invoke(new BranchTask(search, matrix, new int[0]));
+
+		solutionValidity = Math.min(search.solutions.get(), search.limit);
+		if (solutionValidity > 0) {
+			solution = SudokuManipulator.copyArray2D(givens);
+			int[] filled = search.firstSolution.get();
+			for (int i = 0; i < filled.length; i++)
+				if (filled[i] != 0)
+					solution[i / side][i % side] = filled[i];
+		}
+		return solutionValidity;
+	}
+
+	/**
+	 * Checks whether the last puzzle solved had a valid number of solutions
+	 *
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution
+	 */
+	public int checkValidity() {
+		return solutionValidity;
+	}
+
+	/**
+	 * Returns the last puzzle solved in its fully solved form
+	 *
+	 * @return The fully solved puzzle in the form of an int array or null if no valid solution was found
+	 */
+	public int[][] getSolvedPuzzle() {
+		return solution;
+	}
+
+	//*************************//
+	//***** Inner Classes *****//
+	//*************************//
+
+	/**
+	 * State shared by every task searching the same puzzle
+	 */
+	private static class Search {
+		final int limit, side;
+		final AtomicInteger solutions = new AtomicInteger();
+
+		// Cells filled in by the first solution found, indexed by (side * row) + col
+		final AtomicReference<int[]> firstSolution = new AtomicReference<>();
+
+		Search(int limit, int side) {
+			this.limit = limit;
+			this.side = side;
+		}
+	}
+
+	/**
+	 * Task which owns a matrix with some rows already chosen and either splits its next column's rows into
+	 * subtasks or searches the rest of the tree itself
+	 */
+	private static class BranchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+		private final DancingLinksMatrix matrix;
+		private final int[] chosenRows;
+
+		BranchTask(Search search, DancingLinksMatrix matrix, int[] chosenRows) {
+			this.search = search;
+			this.matrix = matrix;
+			this.chosenRows = chosenRows;
+		}
+
+		@Override
+		protected void compute() {
+			if (search.solutions.get() >= search.limit)
+				return;
+
+			int lowest = matrix.chooseColumn();
+			if (lowest == DancingLinksMatrix.ROOT || chosenRows.length >= MAX_SPLIT_DEPTH || getSurplusQueuedTaskCount() >= SURPLUS_THRESHOLD) {
+				// Search the rest of this branch sequentially
+				if (matrix.searchShared(search.limit, SudokuEngine.NATURAL_ORDER, search.solutions)) {
+					int side = search.side;
+					int[][] board = new int[side][side];
+					matrix.fillSudokuSolution(board);
+					int[] filled = new int[side * side];
+					for (int i = 0; i < filled.length; i++)
+						filled[i] = board[i / side][i % side];
+					for (int rowId : chosenRows)
+						filled[rowId / side] = (rowId % side) + 1;
+					search.firstSolution.set(filled);
+				}
+				return;
+			}
+
+			// Give each row of the smallest column its own copy of the matrix with that row chosen
+			int[] rows = new int[matrix.size[lowest]];
+			int count = matrix.collectRows(lowest, rows);
+			List<BranchTask> subtasks = new ArrayList<>(count);
+			for (int k = 0; k < count; k++) {
+				// The last branch can take over this task's matrix since every other copy has already been made
+				DancingLinksMatrix branch = k == count - 1 ? matrix : matrix.copy();
+				branch.coverRow(rows[k]);
+				int[] branchRows = new int[chosenRows.length + 1];
+				System.arraycopy(chosenRows, 0, branchRows, 0, chosenRows.length);
+				branchRows[chosenRows.length] = rows[k];
+				subtasks.add(new BranchTask(search, branch, branchRows));
+			}
+			invokeAll(subtasks);
+		}
+	}
+}
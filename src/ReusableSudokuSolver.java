@@ -0,0 +1,294 @@
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Solver which keeps one SudokuEngine and reuses it for every puzzle it's given,
+ * rather than rebuilding the matrix the way each new SudokuSolver does.
+ * <p>
+ * An instance holds mutable search state and isn't thread safe, so keep one per thread.
+ * Separate instances share nothing but immutable templates and can be used concurrently.
+ */
+public class ReusableSudokuSolver {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final SudokuEngine engine;
+	private final String engineName;
+	// The engine writes each solution into found, which is only copied once someone asks for it
+	private final int[][] found;
+	// Board which grids are copied into for the engine, only created once a grid is first solved
+	private int[][] gridGivens;
+	private int[][] solution;
+	private int solutionValidity;
+	private SolutionCount.Status solveStatus = SolutionCount.Status.EXACT;
+	private SolveBudget budget;
+	private boolean collectStats;
+	private SolveStats stats;
+	// How the engine branches, or null for its default, and the order solve() gives it
+	private BranchingStrategy branching;
+	private SudokuEngine.PossibilityOrder order = SudokuEngine.NATURAL_ORDER;
+	// Tried before the engine unless turned off, and only created once it's first needed
+	private boolean logicFirst = true;
+	private LogicalSolver logic;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Default constructor, which uses the flat array dancing links engine
+	 */
+	public ReusableSudokuSolver() {
+		this(SudokuManipulator.Engine.ARRAY_DANCING_LINKS);
+	}
+
+	/**
+	 * Constructor which solves every puzzle with a particular engine
+	 *
+	 * @param engine Any engine other than LINKED_NODES
+	 */
+	public ReusableSudokuSolver(SudokuManipulator.Engine engine) {
+		this(engine, 3);
+	}
+
+	/**
+	 * Constructor which solves every puzzle of a particular size with a particular engine.
+	 * BITBOARD only handles 9x9 boards, so ARRAY_DANCING_LINKS is used in its place for other sizes
+	 *
+	 * @param engine  Any engine other than LINKED_NODES
+	 * @param boxSize The side length of each box of the boards to solve, which is 3 for a 9x9 board
+	 */
+	public ReusableSudokuSolver(SudokuManipulator.Engine engine, int boxSize) {
+		engine = engine.forBoxSize(boxSize);
+		this.engine = engine.newEngine(boxSize);
+		engineName = engine.name();
+		found = new int[boxSize * boxSize][boxSize * boxSize];
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Solves a puzzle, replacing the results of the previous call.
+	 * Possibilities are tried in their natural order like SudokuSolver, unless a branching strategy says otherwise,
+	 * after trying a LogicalSolver unless that's turned off
+	 *
+	 * @param givens N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution
+	 */
+	public int solve(int[][] givens) {
+		startStats();
+		if (logicFirst && solveLogically(givens)) {
+			solutionValidity = 1;
+			solveStatus = SolutionCount.Status.EXACT;
+		} else if (branching != null) {
+			solveStatus = branching.searchWithRestarts(budget, false, stats, tryBudget -> {
+				engine.setBudget(tryBudget);
+				solutionValidity = engine.solve(givens, found, order);
+				return engine.getLastStatus();
+			});
+			engine.setBudget(budget);
+		} else {
+			solutionValidity = engine.solve(givens, found, order);
+			solveStatus = engine.getLastStatus();
+		}
+		SolveMetrics.record(stats);
+		solution = null;
+		return solutionValidity;
+	}
+
+	/**
+	 * Solves a puzzle held in a Grid like solve(int[][]), copying it into a board the solver keeps for every grid
+	 *
+	 * @param givens The puzzle, with 0s for the empty cells
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution
+	 * @throws IllegalArgumentException if the grid isn't the size of board this solver was made for
+	 */
+	public int solve(Grid givens) {
+		if (givens.getSide() != found.length)
+			throw new IllegalArgumentException("This solver takes " + found.length + "x" + found.length + " boards, not " + givens.getSide() + "x" + givens.getSide());
+		if (gridGivens == null)
+			gridGivens = new int[found.length][found.length];
+		givens.copyInto(gridGivens);
+		return solve(gridGivens);
+	}
+
+	/**
+	 * Counts every solution to a puzzle, up to a limit. Solutions are counted rather than stored,
+	 * and this doesn't change what checkValidity() and getSolvedPuzzle() return
+	 *
+	 * @param givens N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param limit  The number of solutions after which counting stops
+	 * @return The number of solutions and whether counting finished
+	 */
+	public SolutionCount countSolutions(int[][] givens, long limit) {
+		return countSolutions(givens, limit, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Counts every solution to a puzzle, up to a limit or until time runs out.
+	 * The solver's budget still applies, so counting stops at whichever runs out first
+	 *
+	 * @param givens  N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param limit   The number of solutions after which counting stops
+	 * @param timeout How long counting may run
+	 * @return The number of solutions and whether counting finished
+	 */
+	public SolutionCount countSolutions(int[][] givens, long limit, Duration timeout) {
+		return countSolutions(givens, limit, timeout.toNanos());
+	}
+
+	/**
+	 * Checks whether the last puzzle solved had a valid number of solutions
+	 *
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution.
+	 *         If the budget ran out (see getSolveStatus()), this is only the number of solutions found before then
+	 */
+	public int checkValidity() {
+		return solutionValidity;
+	}
+
+	/**
+	 * Gets why the last solve stopped, which is TIMED_OUT, NODE_LIMIT_REACHED, or CANCELLED if the budget ran out first
+	 *
+	 * @return The status of the last solve, or EXACT if nothing has been solved yet
+	 */
+	public SolutionCount.Status getSolveStatus() {
+		return solveStatus;
+	}
+
+	/**
+	 * Returns the last puzzle solved in its fully solved form
+	 *
+	 * @return The fully solved puzzle in the form of an int array or null if no valid solution was found
+	 */
+	public int[][] getSolvedPuzzle() {
+		if (solution == null && solutionValidity > 0)
+			solution = SudokuManipulator.copyArray2D(found);
+		return solution;
+	}
+
+	/**
+	 * Returns the last puzzle solved in its fully solved form as a compact Grid
+	 *
+	 * @return A new grid, or null if no valid solution was found
+	 * @throws IllegalArgumentException if the board isn't a size Grid holds: 9x9, 16x16, or 25x25
+	 */
+	public Grid getSolvedGrid() {
+		return solutionValidity == 0 ? null : Grid.of(found);
+	}
+
+	/**
+	 * Copies the last puzzle solved in its fully solved form into a board the caller owns,
+	 * which saves allocating a new board for every puzzle when solving many of them
+	 *
+	 * @param board N^2xN^2 2D int array which the solution is written into
+	 * @return false, leaving the board alone, if no valid solution was found
+	 */
+	public boolean getSolvedPuzzle(int[][] board) {
+		if (solutionValidity == 0)
+			return false;
+		for (int i = 0; i < found.length; i++)
+			System.arraycopy(found[i], 0, board[i], 0, found.length);
+		return true;
+	}
+
+	/**
+	 * Gets the counts of the work done by the last solve or solution count
+	 *
+	 * @return The counts, or null if the last call wasn't instrumented
+	 */
+	public SolveStats getSolveStats() {
+		return stats;
+	}
+
+	/**
+	 * Limits every later call on this solver to a budget. Calls with a budget are always instrumented,
+	 * so getSolveStats() shows the work done before the budget ran out
+	 *
+	 * @param budget The limits to search within, or null for none
+	 */
+	public ReusableSudokuSolver setBudget(SolveBudget budget) {
+		this.budget = budget;
+		engine.setBudget(budget);
+		return this;
+	}
+
+	/**
+	 * Makes later calls to solve() branch with a strategy, restarting randomized searches if it says to.
+	 * Counting solutions chooses columns the same way, but never restarts, since every branch is visited anyway
+	 *
+	 * @param branching How the engine branches, or null for its default
+	 * @param random    The source of randomness for the strategy's random choices, which is only used by the calling thread
+	 */
+	public ReusableSudokuSolver setBranching(BranchingStrategy branching, RandomGenerator random) {
+		this.branching = branching;
+		engine.setBranching(branching, random);
+		order = branching == null ? SudokuEngine.NATURAL_ORDER : branching.order(SudokuEngine.NATURAL_ORDER, random);
+		return this;
+	}
+
+	/**
+	 * Chooses whether later calls to solve() try a LogicalSolver before the engine. Puzzles the techniques finish
+	 * skip the search entirely, and the rest go to the engine as before, so the results are the same either way
+	 *
+	 * @param logicFirst Whether to try the techniques first, which is on by default
+	 */
+	public ReusableSudokuSolver setLogicFirst(boolean logicFirst) {
+		this.logicFirst = logicFirst;
+		return this;
+	}
+
+	/**
+	 * Instruments every later call on this solver, even while SolveMetrics is disabled
+	 */
+	public ReusableSudokuSolver setCollectStats(boolean collectStats) {
+		this.collectStats = collectStats;
+		return this;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	private SolutionCount countSolutions(int[][] givens, long limit, long timeoutNanos) {
+		startStats();
+		SolutionCount count = engine.countSolutions(givens, limit, timeoutNanos);
+		SolveMetrics.record(stats);
+		return count;
+	}
+
+	/**
+	 * Solves a puzzle with the techniques alone, writing the solution into found if they finish it
+	 *
+	 * @return Whether the puzzle was solved
+	 */
+	private boolean solveLogically(int[][] givens) {
+		int boxSize = SudokuManipulator.getBoxSize(found.length);
+		if (boxSize > LogicalSolver.MAX_BOX_SIZE)
+			return false;
+		if (logic == null)
+			logic = new LogicalSolver(boxSize);
+		if (stats != null)
+			stats.startSetup();
+		if (logic.solve(givens) != LogicalSolver.Outcome.SOLVED)
+			return false;
+		logic.getSolvedPuzzle(found);
+		if (stats != null) {
+			stats.startSearch();
+			stats.endSearch(1);
+		}
+		return true;
+	}
+
+	/**
+	 * Gives the engine a fresh SolveStats for the next call if instrumentation is on or there's a budget, or clears it otherwise
+	 */
+	private void startStats() {
+		stats = collectStats || budget != null || SolveMetrics.isCollecting() ? new SolveStats(engineName, found.length) : null;
+		engine.setSolveStats(stats);
+	}
+}
@@ -0,0 +1,80 @@
+import java.util.Arrays;
+
+/**
+ * BatchPropagator which propagates each lane in turn with plain int arithmetic,
+ * for runtimes without the incubating Vector API
+ */
+final class ScalarBatchPropagator extends BatchPropagator {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	// Puzzles per group, which doesn't change the work per puzzle since each lane is propagated on its own
+	private static final int LANES = 8;
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	// Cells of the current lane whose single has already been ruled out of its peers
+	private final boolean[] placed = new boolean[81];
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	@Override
+	int lanes() {
+		return LANES;
+	}
+
+	@Override
+	void propagate(short[] masks) {
+		for (int lane = 0; lane < LANES; lane++)
+			propagate(masks, lane);
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	private void propagate(short[] masks, int lane) {
+		Arrays.fill(placed, false);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+
+			// Naked singles: rule each new single out of its peers
+			for (int cell = 0; cell < 81; cell++) {
+				int mask = masks[(cell * LANES) + lane];
+				if (!placed[cell] && mask != 0 && (mask & (mask - 1)) == 0) {
+					placed[cell] = true;
+					changed = true;
+					for (int peer : BitboardEngine.PEERS[cell])
+						masks[(peer * LANES) + lane] &= (short) ~mask;
+				}
+			}
+
+			// Hidden singles: narrow the only cell of a unit which can hold a value down to that value
+			for (int[] unit : BitboardEngine.UNITS) {
+				int once = 0, twice = 0;
+				for (int cell : unit) {
+					int mask = masks[(cell * LANES) + lane];
+					twice |= once & mask;
+					once |= mask;
+				}
+				int singles = once & ~twice;
+				if (singles == 0)
+					continue;
+				for (int cell : unit) {
+					int mask = masks[(cell * LANES) + lane], hit = mask & singles;
+					if (hit != 0 && hit != mask) {
+						masks[(cell * LANES) + lane] = (short) hit;
+						changed = true;
+					}
+				}
+			}
+		}
+	}
+}
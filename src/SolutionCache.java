@@ -0,0 +1,294 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe cache of solved 9x9 puzzles which sits in front of the solver, so a puzzle is only solved once however
+ * many times it (or any puzzle equivalent to it) comes back.
+ * <p>
+ * Each puzzle is looked up by its canonical form under the symmetries of the board (see Canonicalizer), so a puzzle
+ * which was relabeled, transposed, or had its rows and columns shuffled within the rules finds the entry of the original.
+ * Entries hold the validity and the first solution in canonical form, which is mapped back through the puzzle's own
+ * transform on a hit. For a puzzle with more than one solution, that may not be the solution a direct solve finds first.
+ * <p>
+ * Entries are spread over segments by the hash of their canonical form, each a LinkedHashMap in access order
+ * which evicts its least recently used entry once full, and each locked separately so threads rarely wait on each other.
+ * Misses are solved by the calling thread outside the lock, so two threads missing on the same puzzle at once both solve it.
+ * A hit costs a few microseconds of canonicalizing, which is less than solving all but the easiest puzzles takes.
+ * Boards other than 9x9 are solved directly without touching the cache or its counts, and so are boards with more than
+ * MAX_GIVENS givens, which solve almost at once but are slow to canonicalize since so many orders of their rows look alike.
+ */
+public class SolutionCache {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	private static final int MAX_SEGMENTS = 16;
+	// Fewest entries worth a segment of their own, since a small segment evicts early whenever the hashes bunch up
+	private static final int MIN_SEGMENT_CAPACITY = 64;
+	// Most givens a puzzle may have to go through the cache
+	static final int MAX_GIVENS = 72;
+	// Results of the solves which finished, by validity, so reporting one allocates nothing
+	private static final SolutionCount[] FINISHED = {new SolutionCount(0, SolutionCount.Status.EXACT),
+		new SolutionCount(1, SolutionCount.Status.EXACT), new SolutionCount(2, SolutionCount.Status.LIMIT_REACHED)};
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final Segment[] segments;
+	private final int capacity;
+	private final SudokuManipulator.Engine engine;
+	private final ThreadLocal<Canonicalizer> canonicalizers = ThreadLocal.withInitial(Canonicalizer::new);
+	// Each thread keeps one solver per board size, indexed by box size
+	private final ThreadLocal<ReusableSudokuSolver[]> solvers = ThreadLocal.withInitial(() -> new ReusableSudokuSolver[BatchSolver.MAX_BOX_SIZE + 1]);
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Default constructor, which solves misses with the flat array dancing links engine
+	 *
+	 * @param capacity The most entries to keep
+	 */
+	public SolutionCache(int capacity) {
+		this(capacity, SudokuManipulator.Engine.ARRAY_DANCING_LINKS);
+	}
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param capacity The most entries to keep
+	 * @param engine   The engine misses are solved with (any engine other than LINKED_NODES)
+	 * @throws IllegalArgumentException if the capacity is less than 1
+	 */
+	public SolutionCache(int capacity, SudokuManipulator.Engine engine) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity must be at least 1, not " + capacity);
+		this.capacity = capacity;
+		this.engine = engine;
+		// A power of two, so a segment can be picked by masking the hash, and the segments' capacities add up to the total
+		segments = new Segment[Math.max(1, Math.min(MAX_SEGMENTS, Integer.highestOneBit(capacity / MIN_SEGMENT_CAPACITY)))];
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = new Segment((capacity / segments.length) + (i < capacity % segments.length ? 1 : 0));
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Solves a puzzle, or finds the solution of the same or an equivalent puzzle solved before
+	 *
+	 * @param puzzle   N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param solution N^2xN^2 2D int array which the first solution is written into, left alone if there isn't one
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution
+	 */
+	public int solve(int[][] puzzle, int[][] solution) {
+		return (int) solve(puzzle, solution, null).getCount();
+	}
+
+	/**
+	 * Solves a puzzle like solve(int[][], int[][]), giving up on a miss once a budget runs out.
+	 * A solve which was cut short isn't cached, so the puzzle is solved again the next time it comes up
+	 *
+	 * @param puzzle   N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param solution N^2xN^2 2D int array which the first solution is written into, left alone if there isn't one
+	 * @param budget   The limits to search within, or null for none
+	 * @return The number of solutions up to 2, whose status is TIMED_OUT, NODE_LIMIT_REACHED, or CANCELLED if the budget ran out first
+	 */
+	public SolutionCount solve(int[][] puzzle, int[][] solution, SolveBudget budget) {
+		if (puzzle.length != 9 || countGivens(puzzle) > MAX_GIVENS)
+			return solve(puzzle, solution, SudokuManipulator.getBoxSize(puzzle.length), budget);
+
+		Canonicalizer canonicalizer = canonicalizers.get();
+		SudokuTransform transform = canonicalizer.canonicalize(puzzle);
+		String key = canonicalizer.getKey();
+		Segment segment = segments[spread(key.hashCode()) & (segments.length - 1)];
+		Entry entry;
+		synchronized (segment) {
+			entry = segment.get(key);
+		}
+		if (entry != null) {
+			hits.increment();
+			if (entry.solution != null)
+				transform.invert(entry.solution, solution);
+			return FINISHED[entry.validity];
+		}
+
+		misses.increment();
+		SolutionCount result = solve(puzzle, solution, 3, budget);
+		if (result.getStatus().isBudgetExhausted())
+			return result;
+		int validity = (int) result.getCount();
+		byte[] canonical = null;
+		if (validity > 0) {
+			canonical = new byte[81];
+			transform.apply(solution, canonical);
+		}
+		entry = new Entry(validity, canonical);
+		synchronized (segment) {
+			segment.put(key, entry);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes every entry, leaving the counts alone
+	 */
+	public void clear() {
+		for (Segment segment : segments)
+			synchronized (segment) {
+				segment.clear();
+			}
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the number of puzzles found in the cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of puzzles which weren't in the cache and had to be solved
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the number of entries evicted to make room for newer ones
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Gets the fraction of lookups which were hits, or 0 if there haven't been any
+	 */
+	public double getHitRate() {
+		long hits = getHits(), lookups = hits + getMisses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * Gets the number of entries currently held
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments)
+			synchronized (segment) {
+				size += segment.size();
+			}
+		return size;
+	}
+
+	/**
+	 * Gets the most entries the cache keeps
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions, %d of %d entries", getHits(), getMisses(), 100 * getHitRate(), getEvictions(), size(), capacity);
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Solves a puzzle with this thread's solver for its size, copying the first solution into the caller's board
+	 */
+	private SolutionCount solve(int[][] puzzle, int[][] solution, int boxSize, SolveBudget budget) {
+		ReusableSudokuSolver[] solversBySize = solvers.get();
+		if (solversBySize[boxSize] == null)
+			solversBySize[boxSize] = new ReusableSudokuSolver(engine, boxSize);
+		ReusableSudokuSolver solver = solversBySize[boxSize].setBudget(budget);
+		int validity = solver.solve(puzzle);
+		solver.getSolvedPuzzle(solution);
+		SolutionCount.Status status = solver.getSolveStatus();
+		return status.isBudgetExhausted() ? new SolutionCount(validity, status) : FINISHED[validity];
+	}
+
+	/**
+	 * Static helper method which counts the filled cells of a board
+	 */
+	private static int countGivens(int[][] board) {
+		int givens = 0;
+		for (int[] row : board)
+			for (int val : row)
+				if (val != 0)
+					givens++;
+		return givens;
+	}
+
+	/**
+	 * Static helper method which mixes the high bits of a hash into the low ones that pick the segment
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	//*************************//
+	//***** Inner Classes *****//
+	//*************************//
+
+	/**
+	 * What's known about a canonical puzzle: its validity and its first solution in canonical form, one byte per cell
+	 */
+	private static final class Entry {
+		final int validity;
+		final byte[] solution;
+
+		Entry(int validity, byte[] solution) {
+			this.validity = validity;
+			this.solution = solution;
+		}
+	}
+
+	/**
+	 * One lock's worth of entries, evicting the least recently used once it holds more than its capacity
+	 */
+	private final class Segment {
+		private final int capacity;
+		private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		Segment(int capacity) {
+			this.capacity = capacity;
+		}
+
+		Entry get(String key) {
+			return entries.get(key);
+		}
+
+		void put(String key, Entry entry) {
+			entries.put(key, entry);
+			if (entries.size() > capacity) {
+				// In access order the eldest entry is the least recently used
+				Iterator<Entry> eldest = entries.values().iterator();
+				eldest.next();
+				eldest.remove();
+				evictions.increment();
+			}
+		}
+
+		void clear() {
+			entries.clear();
+		}
+
+		int size() {
+			return entries.size();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * Result of counting the solutions to a puzzle, which may have stopped before every solution was found
+ */
+public final class SolutionCount {
+
+	/**
+	 * Why counting stopped
+	 */
+	public enum Status {
+		/** Every solution was counted */
+		EXACT,
+		/** Counting stopped at the limit, so there are at least that many solutions */
+		LIMIT_REACHED,
+		/** Counting stopped at the timeout or deadline, so there are at least that many solutions */
+		TIMED_OUT,
+		/** Counting stopped after visiting the SolveBudget's number of search nodes, so there are at least that many solutions */
+		NODE_LIMIT_REACHED,
+		/** Counting stopped because the SolveBudget's CancellationToken was cancelled, so there are at least that many solutions */
+		CANCELLED;
+
+		/**
+		 * Checks whether counting stopped because a timeout or SolveBudget ran out rather than because it was finished
+		 */
+		public boolean isBudgetExhausted() {
+			return this == TIMED_OUT || this == NODE_LIMIT_REACHED || this == CANCELLED;
+		}
+	}
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final long count;
+	private final Status status;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	SolutionCount(long count, Status status) {
+		this.count = count;
+		this.status = status;
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the number of solutions found before counting stopped
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets why counting stopped
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Checks whether the count covers every solution of the puzzle
+	 */
+	public boolean isExact() {
+		return status == Status.EXACT;
+	}
+
+	@Override
+	public String toString() {
+		return status == Status.EXACT ? Long.toString(count) : "at least " + count + " (" + status + ")";
+	}
+}
@@ -0,0 +1,131 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily enumerates every solution of a puzzle, in the order SudokuSolver's dancing links search finds them.
+ * Each solution is only searched for when it's pulled, and the search stops where it is in between, so the consumer
+ * sets the pace and can stop at any point, even on a board with billions of solutions.
+ * <p>
+ * By default every solution is a new board. Given an output buffer instead, every solution is written into it,
+ * so the buffer only holds the latest solution until the next call to hasNext() or next().
+ * <p>
+ * An enumerator holds its own search state and isn't thread safe, so consume it on one thread.
+ */
+public final class SolutionEnumerator implements Iterator<int[][]> {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final DancingLinksMatrix matrix;
+	private final int[][] givens, buffer;
+	private final int side;
+	// The next solution, found by hasNext() but not yet returned by next(), or null if there isn't one
+	private int[][] pending;
+	private boolean finished;
+	private long count;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Constructor which returns every solution as a new board
+	 *
+	 * @param puzzle N^2xN^2 2D int array with all known puzzle cells filled in, which is copied
+	 * @throws IllegalArgumentException if the board's side length isn't a square number
+	 */
+	public SolutionEnumerator(int[][] puzzle) {
+		this(puzzle, null);
+	}
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param puzzle N^2xN^2 2D int array with all known puzzle cells filled in, which is copied
+	 * @param buffer N^2xN^2 2D int array which receives every solution in turn and is returned by next(), or null for a new board each time
+	 * @throws IllegalArgumentException if the board's side length isn't a square number, or the buffer isn't the same size
+	 */
+	public SolutionEnumerator(int[][] puzzle, int[][] buffer) {
+		side = puzzle.length;
+		if (buffer != null && buffer.length != side)
+			throw new IllegalArgumentException("The buffer must be " + side + "x" + side + ", not " + buffer.length + " rows");
+		matrix = DancingLinksMatrix.sudoku(SudokuManipulator.getBoxSize(side));
+		givens = SudokuManipulator.copyArray2D(puzzle);
+		this.buffer = buffer;
+		finished = !matrix.startSudokuEnumeration(givens, SudokuEngine.NATURAL_ORDER);
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Checks whether there's another solution, searching for it if it hasn't been found yet
+	 */
+	@Override
+	public boolean hasNext() {
+		if (pending == null && !finished) {
+			int[][] board = buffer != null ? buffer : new int[side][side];
+			for (int row = 0; row < side; row++)
+				System.arraycopy(givens[row], 0, board[row], 0, side);
+			if (matrix.nextSudokuSolution(board))
+				pending = board;
+			else
+				finished = true;
+		}
+		return pending != null;
+	}
+
+	/**
+	 * Gets the next solution, searching for it if hasNext() hasn't already
+	 *
+	 * @return The solution, which is the buffer if one was given
+	 * @throws NoSuchElementException if every solution has already been returned
+	 */
+	@Override
+	public int[][] next() {
+		if (!hasNext())
+			throw new NoSuchElementException("Every solution has already been returned");
+		int[][] solution = pending;
+		pending = null;
+		count++;
+		return solution;
+	}
+
+	/**
+	 * Gets a sequential stream of the remaining solutions, which pulls each one from this enumerator as the stream needs it
+	 */
+	public Stream<int[][]> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the number of solutions returned by next() so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which streams every solution of a puzzle lazily, each as a new board
+	 *
+	 * @param puzzle N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @return A sequential stream, which only searches as far as its consumer pulls
+	 */
+	public static Stream<int[][]> solutions(int[][] puzzle) {
+		return new SolutionEnumerator(puzzle).stream();
+	}
+}
@@ -0,0 +1,233 @@
+import java.time.Duration;
+
+/**
+ * Limits on how much work a solve may do before it gives up: a timeout or deadline, a number of search nodes,
+ * and a CancellationToken. A solve that runs out of budget stops with the solutions it found so far and a status of
+ * TIMED_OUT, NODE_LIMIT_REACHED, or CANCELLED instead of an exact answer.
+ * <p>
+ * Searches count every node, but only read the clock and the token once every CHECK_INTERVAL nodes,
+ * so a budget costs one decrement per node. A budget holds no search state and can be shared between solves and threads.
+ */
+public final class SolveBudget {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	// Number of search nodes between reads of the clock and the cancellation token
+	static final int CHECK_INTERVAL = 1024;
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private long timeoutNanos = Long.MAX_VALUE;
+	private boolean hasDeadline;
+	private long deadlineNanos;
+	private long nodeLimit = Long.MAX_VALUE;
+	private CancellationToken cancellationToken;
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Limits each solve to a length of time, measured from when its search starts
+	 */
+	public SolveBudget setTimeout(Duration timeout) {
+		timeoutNanos = timeout.toNanos();
+		return this;
+	}
+
+	/**
+	 * Stops every solve at a fixed point in time, such as when the request being served is due
+	 *
+	 * @param deadlineNanos The deadline as a System.nanoTime() value
+	 */
+	public SolveBudget setDeadline(long deadlineNanos) {
+		this.deadlineNanos = deadlineNanos;
+		hasDeadline = true;
+		return this;
+	}
+
+	/**
+	 * Limits each solve to visiting a number of search nodes, which unlike a timeout gives the same result on every run
+	 */
+	public SolveBudget setNodeLimit(long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+		return this;
+	}
+
+	/**
+	 * Stops every solve once the token is cancelled
+	 */
+	public SolveBudget setCancellationToken(CancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+		return this;
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which makes the budget for one try of a restarted solve. The node limit and timeout cover
+	 * the whole solve, so the try stops at the earlier of the cutoff and the nodes the earlier tries left over,
+	 * and at the timeout counted from when the first try started
+	 *
+	 * @param budget     The budget of the whole solve, or null for none
+	 * @param startNanos When the first try started, as a System.nanoTime() value
+	 * @param nodesUsed  The nodes the earlier tries visited, which must be within the budget's node limit
+	 * @param nodeCutoff The most nodes the try may visit
+	 * @return A new budget with the same cancellation token
+	 */
+	static SolveBudget forRestart(SolveBudget budget, long startNanos, long nodesUsed, long nodeCutoff) {
+		SolveBudget restart = new SolveBudget().setNodeLimit(nodeCutoff);
+		if (budget == null)
+			return restart;
+		restart.nodeLimit = Math.min(nodeCutoff, budget.nodeLimit - nodesUsed);
+		restart.cancellationToken = budget.cancellationToken;
+		if (budget.timeoutNanos != Long.MAX_VALUE)
+			restart.setDeadline(startNanos + budget.timeoutNanos);
+		if (budget.hasDeadline && (!restart.hasDeadline || budget.deadlineNanos - restart.deadlineNanos < 0))
+			restart.setDeadline(budget.deadlineNanos);
+		return restart;
+	}
+
+	/**
+	 * Static helper method which gets the number of nodes a budget allows each solve
+	 *
+	 * @param budget The budget, or null for none
+	 * @return The node limit, or Long.MAX_VALUE if there isn't one
+	 */
+	static long nodeLimitOf(SolveBudget budget) {
+		return budget == null ? Long.MAX_VALUE : budget.nodeLimit;
+	}
+
+	/**
+	 * Static helper method which checks a budget's deadline and cancellation token between searches, for work like
+	 * grading which doesn't count nodes. A timeout is left alone, since it only starts when a search does
+	 *
+	 * @param budget The budget, or null for none
+	 * @return TIMED_OUT or CANCELLED if the budget has run out, or null if it hasn't
+	 */
+	static SolutionCount.Status checkExpired(SolveBudget budget) {
+		if (budget == null)
+			return null;
+		if (budget.cancellationToken != null && budget.cancellationToken.isCancelled())
+			return SolutionCount.Status.CANCELLED;
+		if (budget.hasDeadline && System.nanoTime() - budget.deadlineNanos >= 0)
+			return SolutionCount.Status.TIMED_OUT;
+		return null;
+	}
+
+	//*************************//
+	//***** Inner Classes *****//
+	//*************************//
+
+	/**
+	 * Search state for one engine which counts nodes against a budget and remembers why the search had to stop.
+	 * Engines call start() before each search and isExhausted() at each node
+	 */
+	static final class Tracker {
+		private boolean limited;
+		private boolean hasDeadline;
+		private long deadlineNanos, nodeLimit, nodesChecked;
+		private CancellationToken cancellationToken;
+		private int batch, nodesUntilCheck;
+		private SolutionCount.Status stopReason;
+
+		/**
+		 * Starts counting a new search against a budget
+		 *
+		 * @param budget       The budget, or null for no limits besides the timeout
+		 * @param timeoutNanos How long the search may run, or Long.MAX_VALUE for no time limit.
+		 *                     The search stops at whichever of this and the budget's deadline comes first
+		 */
+		void start(SolveBudget budget, long timeoutNanos) {
+			long now = System.nanoTime();
+			stopReason = null;
+			nodesChecked = 0;
+			hasDeadline = timeoutNanos != Long.MAX_VALUE;
+			deadlineNanos = now + timeoutNanos;
+			nodeLimit = Long.MAX_VALUE;
+			cancellationToken = null;
+			if (budget != null) {
+				if (budget.timeoutNanos != Long.MAX_VALUE && (!hasDeadline || budget.timeoutNanos < timeoutNanos)) {
+					hasDeadline = true;
+					deadlineNanos = now + budget.timeoutNanos;
+				}
+				if (budget.hasDeadline && (!hasDeadline || budget.deadlineNanos - deadlineNanos < 0)) {
+					hasDeadline = true;
+					deadlineNanos = budget.deadlineNanos;
+				}
+				nodeLimit = budget.nodeLimit;
+				cancellationToken = budget.cancellationToken;
+			}
+			limited = hasDeadline || nodeLimit != Long.MAX_VALUE || cancellationToken != null;
+			nextBatch();
+
+			// Check a token that's already cancelled at the first node instead of after a whole interval
+			if (cancellationToken != null && cancellationToken.isCancelled())
+				batch = nodesUntilCheck = 1;
+		}
+
+		/**
+		 * Counts a search node, and every CHECK_INTERVAL nodes (or when the node limit is due) checks the rest of the budget.
+		 * The node which finds the budget exhausted shouldn't be searched
+		 *
+		 * @return true once the budget has run out
+		 */
+		boolean isExhausted() {
+			if (!limited || --nodesUntilCheck > 0)
+				return false;
+			nodesChecked += batch;
+			if (nodesChecked > nodeLimit)
+				stopReason = SolutionCount.Status.NODE_LIMIT_REACHED;
+			else if (cancellationToken != null && cancellationToken.isCancelled())
+				stopReason = SolutionCount.Status.CANCELLED;
+			else if (hasDeadline && System.nanoTime() - deadlineNanos >= 0)
+				stopReason = SolutionCount.Status.TIMED_OUT;
+			else {
+				nextBatch();
+				return false;
+			}
+			limited = false;
+			return true;
+		}
+
+		/**
+		 * Checks whether the search has run out of budget and should only unwind
+		 */
+		boolean isStopped() {
+			return stopReason != null;
+		}
+
+		/**
+		 * Gets why the search ran out of budget
+		 *
+		 * @return TIMED_OUT, NODE_LIMIT_REACHED, or CANCELLED, or null if the budget hasn't run out
+		 */
+		SolutionCount.Status getStopReason() {
+			return stopReason;
+		}
+
+		/**
+		 * Gets the status of a finished search which counted solutions up to a limit
+		 */
+		SolutionCount.Status getStatus(long solutionsFound, long limit) {
+			if (stopReason != null)
+				return stopReason;
+			return solutionsFound >= limit ? SolutionCount.Status.LIMIT_REACHED : SolutionCount.Status.EXACT;
+		}
+
+		/**
+		 * Sets how many nodes to count before the next check, stopping short so the node past the limit is always checked
+		 */
+		private void nextBatch() {
+			long remaining = nodeLimit - nodesChecked;
+			batch = remaining < CHECK_INTERVAL ? (int) remaining + 1 : CHECK_INTERVAL;
+			nodesUntilCheck = batch;
+		}
+	}
+}
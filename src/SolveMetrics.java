@@ -0,0 +1,165 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Totals of the SolveStats of every instrumented solve in the JVM, for a metrics exporter to read with snapshot().
+ * <p>
+ * Solves are instrumented while setEnabled(true) is in effect (or the system property sudoku.stats is true),
+ * and while a JFR recording has the sudoku.Solve event enabled, in which case each solve is also recorded as an event.
+ * Otherwise the engines skip every count, which costs one null check per search node.
+ */
+public final class SolveMetrics {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private static volatile boolean enabled = Boolean.getBoolean("sudoku.stats");
+	private static final EventType SOLVE_EVENT_TYPE = EventType.getEventType(SolveEvent.class);
+
+	private static final LongAdder solves = new LongAdder(), nodes = new LongAdder(), covers = new LongAdder(), uncovers = new LongAdder(),
+		backtracks = new LongAdder(), setupNanos = new LongAdder(), searchNanos = new LongAdder();
+	private static final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+
+	private SolveMetrics() {
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Turns instrumentation of every later solve on or off
+	 */
+	public static void setEnabled(boolean enabled) {
+		SolveMetrics.enabled = enabled;
+	}
+
+	/**
+	 * Checks whether solves are currently instrumented, either because of setEnabled() or a JFR recording
+	 */
+	public static boolean isCollecting() {
+		return enabled || SOLVE_EVENT_TYPE.isEnabled();
+	}
+
+	/**
+	 * Gets the totals across every instrumented solve since the last reset, keyed by metric name
+	 */
+	public static Map<String, Long> snapshot() {
+		Map<String, Long> snapshot = new LinkedHashMap<>();
+		snapshot.put("sudoku.solves", solves.sum());
+		snapshot.put("sudoku.nodes", nodes.sum());
+		snapshot.put("sudoku.covers", covers.sum());
+		snapshot.put("sudoku.uncovers", uncovers.sum());
+		snapshot.put("sudoku.backtracks", backtracks.sum());
+		snapshot.put("sudoku.max_depth", maxDepth.get());
+		snapshot.put("sudoku.setup_nanos", setupNanos.sum());
+		snapshot.put("sudoku.search_nanos", searchNanos.sum());
+		return snapshot;
+	}
+
+	/**
+	 * Sets every total back to zero
+	 */
+	public static void reset() {
+		for (LongAdder adder : new LongAdder[] {solves, nodes, covers, uncovers, backtracks, setupNanos, searchNanos})
+			adder.reset();
+		maxDepth.reset();
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which adds a finished solve to the totals and records it as a JFR event if one is wanted
+	 *
+	 * @param stats The solve's counts, or null if the solve wasn't instrumented
+	 */
+	static void record(SolveStats stats) {
+		if (stats == null)
+			return;
+		solves.increment();
+		nodes.add(stats.getNodes());
+		covers.add(stats.getCovers());
+		uncovers.add(stats.getUncovers());
+		backtracks.add(stats.getBacktracks());
+		maxDepth.accumulate(stats.getMaxDepth());
+		setupNanos.add(stats.getSetupNanos());
+		searchNanos.add(stats.getSearchNanos());
+
+		SolveEvent event = new SolveEvent();
+		if (event.shouldCommit()) {
+			event.engine = stats.getEngine();
+			event.boardSide = stats.getBoardSide();
+			event.nodes = stats.getNodes();
+			event.covers = stats.getCovers();
+			event.uncovers = stats.getUncovers();
+			event.backtracks = stats.getBacktracks();
+			event.maxDepth = stats.getMaxDepth();
+			event.averageBranchingFactor = stats.getAverageBranchingFactor();
+			event.setupTime = stats.getSetupNanos();
+			event.searchTime = stats.getSearchNanos();
+			event.solutions = stats.getSolutions();
+			event.commit();
+		}
+	}
+
+	//*************************//
+	//***** Inner Classes *****//
+	//*************************//
+
+	/**
+	 * JFR event recorded for each instrumented solve
+	 */
+	@Name("sudoku.Solve")
+	@Label("Sudoku Solve")
+	@Category("Sudoku")
+	@Description("Counts of the work done by one sudoku solve")
+	static class SolveEvent extends Event {
+		@Label("Engine")
+		String engine;
+
+		@Label("Board Side")
+		int boardSide;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Covers")
+		long covers;
+
+		@Label("Uncovers")
+		long uncovers;
+
+		@Label("Backtracks")
+		long backtracks;
+
+		@Label("Max Depth")
+		int maxDepth;
+
+		@Label("Average Branching Factor")
+		double averageBranchingFactor;
+
+		@Label("Setup Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long setupTime;
+
+		@Label("Search Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long searchTime;
+
+		@Label("Solutions")
+		long solutions;
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * Counts of the work done by one solve, collected when instrumentation is turned on with SolveMetrics.setEnabled(),
+ * requested from a ReusableSudokuSolver, or recorded by a running JFR recording.
+ * <p>
+ * BitboardEngine has no matrix, so it counts each value placed as a cover, each restored snapshot as an uncover,
+ * and each contradiction found while filling in singles as a backtrack.
+ */
+public final class SolveStats {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final String engine;
+	private final int boardSide;
+
+	// Incremented directly by the engines, which only touch them when the stats object isn't null
+	long nodes, covers, uncovers, backtracks, solutions, restarts;
+	int maxDepth;
+
+	// Number of chosen columns (or cells) that had each number of rows (or candidates) left to branch on
+	private final long[] branching;
+
+	private long phaseStart, setupNanos, searchNanos;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param engine    Name of the engine doing the solve
+	 * @param boardSide Side length of the board, which bounds the branching factor
+	 */
+	SolveStats(String engine, int boardSide) {
+		this.engine = engine;
+		this.boardSide = boardSide;
+		branching = new long[boardSide + 1];
+	}
+
+	//*********************//
+	//***** Recording *****//
+	//*********************//
+
+	/**
+	 * Marks the start of setup: building the matrix or clearing the board, then applying the givens
+	 */
+	void startSetup() {
+		phaseStart = System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of setup and the start of the search
+	 */
+	void startSearch() {
+		long now = System.nanoTime();
+		setupNanos += now - phaseStart;
+		phaseStart = now;
+	}
+
+	/**
+	 * Marks the end of the search
+	 *
+	 * @param solutionsFound The number of solutions the search found
+	 */
+	void endSearch(long solutionsFound) {
+		searchNanos += System.nanoTime() - phaseStart;
+		solutions = solutionsFound;
+	}
+
+	/**
+	 * Records a visit to a search node at some depth
+	 */
+	void recordNode(int depth) {
+		nodes++;
+		if (depth > maxDepth)
+			maxDepth = depth;
+	}
+
+	/**
+	 * Records the number of rows of the column chosen to branch on, where 0 is a dead end
+	 */
+	void recordBranch(int rows) {
+		branching[Math.min(rows, branching.length - 1)]++;
+		if (rows == 0)
+			backtracks++;
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the name of the engine that did the solve
+	 */
+	public String getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Gets the side length of the board solved
+	 */
+	public int getBoardSide() {
+		return boardSide;
+	}
+
+	/**
+	 * Gets the number of search nodes visited
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Gets the number of columns covered, including the columns of the givens
+	 */
+	public long getCovers() {
+		return covers;
+	}
+
+	/**
+	 * Gets the number of columns uncovered
+	 */
+	public long getUncovers() {
+		return uncovers;
+	}
+
+	/**
+	 * Gets the number of dead ends, where the chosen column had no rows left
+	 */
+	public long getBacktracks() {
+		return backtracks;
+	}
+
+	/**
+	 * Gets the number of times the search gave up on a try and started again, which BranchingStrategy's restarts cause
+	 */
+	public long getRestarts() {
+		return restarts;
+	}
+
+	/**
+	 * Gets the deepest level the search reached, counting from 0 at the root
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Gets the number of solutions found, which stops at the search's limit
+	 */
+	public long getSolutions() {
+		return solutions;
+	}
+
+	/**
+	 * Gets how many chosen columns had each number of rows, indexed by the number of rows.
+	 * The last entry also counts any columns with more rows than the board's side length
+	 */
+	public long[] getBranchingHistogram() {
+		return branching.clone();
+	}
+
+	/**
+	 * Gets the average number of rows in the columns chosen to branch on, leaving out dead ends
+	 */
+	public double getAverageBranchingFactor() {
+		long branches = 0, rows = 0;
+		for (int i = 1; i < branching.length; i++) {
+			branches += branching[i];
+			rows += i * branching[i];
+		}
+		return branches == 0 ? 0 : (double) rows / branches;
+	}
+
+	/**
+	 * Gets the time spent building the matrix and applying the givens
+	 */
+	public long getSetupNanos() {
+		return setupNanos;
+	}
+
+	/**
+	 * Gets the time spent searching
+	 */
+	public long getSearchNanos() {
+		return searchNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %dx%d: %d nodes, %d covers, %d uncovers, %d backtracks, %d restarts, max depth %d, branching %.2f, setup %.3f ms, search %.3f ms, %d solutions",
+			engine, boardSide, boardSide, nodes, covers, uncovers, backtracks, restarts, maxDepth, getAverageBranchingFactor(), setupNanos / 1e6, searchNanos / 1e6, solutions);
+	}
+}
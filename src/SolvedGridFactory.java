@@ -0,0 +1,75 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Makes complete boards quickly by solving a few empty boards up front as seeds, then handing out a random
+ * SudokuTransform of a random seed each time. A transform costs one pass over the board, where solving an empty board
+ * is a whole randomized search, so this suits generating puzzles in bulk.
+ * <p>
+ * Every board comes from one of the seeds, so the boards only cover as many essentially different grids as there are seeds,
+ * although each seed has over a trillion distinct 9x9 variants. Use plain SudokuGenerator.generateSolvedGrid() where
+ * every board has to be independent of the others.
+ * <p>
+ * The seeds never change after construction, so one factory can be shared by any number of threads, each with its own RandomGenerator.
+ */
+public final class SolvedGridFactory {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final int boxSize;
+	private final int[][][] seeds;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor, which solves seedCount empty boards in a random order
+	 *
+	 * @param boxSize   The side length of each box, so 4 makes 16x16 boards
+	 * @param seedCount The number of seed boards to solve, at least 1
+	 * @param random    The source of randomness for the seeds, which is only used by the calling thread
+	 * @throws IllegalArgumentException if seedCount is less than 1
+	 */
+	public SolvedGridFactory(int boxSize, int seedCount, RandomGenerator random) {
+		if (seedCount < 1)
+			throw new IllegalArgumentException("A grid factory needs at least one seed");
+		this.boxSize = boxSize;
+		seeds = new int[seedCount][][];
+		for (int i = 0; i < seedCount; i++)
+			seeds[i] = SudokuGenerator.generateSolvedGrid(boxSize, random);
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Makes a complete board by transforming a random seed
+	 *
+	 * @param random The source of randomness, which is only used by the calling thread
+	 * @return A new complete, valid N^2xN^2 board
+	 */
+	public int[][] next(RandomGenerator random) {
+		return SudokuTransform.random(boxSize, random).apply(seeds[random.nextInt(seeds.length)]);
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the side length of each box of the boards made
+	 */
+	public int getBoxSize() {
+		return boxSize;
+	}
+
+	/**
+	 * Gets the number of seed boards, which bounds how many essentially different grids are made
+	 */
+	public int getSeedCount() {
+		return seeds.length;
+	}
+}
@@ -0,0 +1,78 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Method of finding the solutions to a sudoku puzzle which SudokuManipulator can delegate to.
+ * Each instance is built for one board size, which is 9x9 unless it was created with Engine.newEngine(int).
+ * Engines keep reusable search state, so an instance should only be used by one thread at a time
+ */
+public interface SudokuEngine {
+
+	/**
+	 * Ordering which leaves possibilities in the order the engine found them
+	 */
+	PossibilityOrder NATURAL_ORDER = (possibilities, count) -> {
+	};
+
+	/**
+	 * Finds up to two solutions to a puzzle
+	 *
+	 * @param givens   N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param solution N^2xN^2 2D int array which the first solution found is written into
+	 * @param order    Ordering applied to the possibilities of each branch before they're tried
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution
+	 */
+	int solve(int[][] givens, int[][] solution, PossibilityOrder order);
+
+	/**
+	 * Counts the solutions to a puzzle without recording any of them
+	 *
+	 * @param givens       N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param limit        The number of solutions after which counting stops
+	 * @param timeoutNanos How long counting may run, or Long.MAX_VALUE for no time limit
+	 * @return The number of solutions found and whether that's all of them
+	 */
+	SolutionCount countSolutions(int[][] givens, long limit, long timeoutNanos);
+
+	/**
+	 * Counts the work of every later solve and solution count into stats
+	 *
+	 * @param stats Destination for the counts, or null to stop counting
+	 */
+	void setSolveStats(SolveStats stats);
+
+	/**
+	 * Limits every later solve and solution count to a budget, on top of any timeout passed to countSolutions()
+	 *
+	 * @param budget The limits to search within, or null for none
+	 */
+	void setBudget(SolveBudget budget);
+
+	/**
+	 * Branches every later solve and solution count by a strategy's column choice and tie-break.
+	 * The strategy's value order and restarts are up to the caller, through the order passed to solve() and the budget
+	 *
+	 * @param branching The strategy, or null for the default of the first column with the fewest rows
+	 * @param random    The source of randomness for a RANDOM tie-break, which is only used by the thread using the engine
+	 */
+	void setBranching(BranchingStrategy branching, RandomGenerator random);
+
+	/**
+	 * Gets why the last solve or solution count stopped. A solve counts solutions up to a limit of two,
+	 * so EXACT means its result is 0 or 1 and LIMIT_REACHED means it's 2. Otherwise the budget ran out,
+	 * and the result is only the number of solutions found before that
+	 *
+	 * @return The status of the last call
+	 */
+	SolutionCount.Status getLastStatus();
+
+	/**
+	 * Strategy for ordering the possibilities of a branch before they are tried.
+	 * Possibilities are numbered (N^4 * row) + (N^2 * col) + (val - 1), which is (81 * row) + (9 * col) + (val - 1) on a 9x9 board
+	 */
+	interface PossibilityOrder {
+		/**
+		 * Reorders the first count entries of possibilities in place
+		 */
+		void order(int[] possibilities, int count);
+	}
+}
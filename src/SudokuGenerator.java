@@ -1,26 +1,454 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
 /**
- * Implementation of SudokuManipulator used for generating new sudoku puzzles
+ * Implementation of SudokuManipulator used for generating new sudoku puzzles.
+ * <p>
+ * Every random choice comes from the generator's own RandomGenerator, so generators on different threads never contend,
+ * and the same seed always produces the same puzzle with the same engine. To generate reproducibly in parallel,
+ * give each worker its own split of one seeded SplittableRandom.
  */
 public class SudokuGenerator extends SudokuManipulator {
+
+	/**
+	 * Clue target which keeps removing clues until every remaining one is needed for a unique solution
+	 */
+	public static final int MINIMAL = 0;
+
+	// Limits on the searches, or null for none, and why generation stopped
+	private SolveBudget budget;
+	private SolutionCount.Status generationStatus = SolutionCount.Status.EXACT;
+
 	/**
-	 * Primary (and only) constructor
+	 * Default constructor, which removes clues in a random order until it reaches one that's needed for a unique solution
 	 */
 	public SudokuGenerator() {
+		this(ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Constructor which removes clues like the default constructor, drawing every random choice from random
+	 *
+	 * @param random The source of randomness, which is only used by the calling thread
+	 */
+	public SudokuGenerator(RandomGenerator random) {
+		// Solve an empty board
+		super(random);
+		dig(MINIMAL, true);
+	}
+
+	/**
+	 * Constructor which removes clues in a random order, skipping any that are needed for a unique solution,
+	 * until no more than targetClues remain or every clue has been tried
+	 *
+	 * @param targetClues The number of clues to stop at, or MINIMAL for a puzzle where every clue is needed
+	 */
+	public SudokuGenerator(int targetClues) {
+		this(targetClues, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Constructor which generates the same puzzle every time it's given the same seed and targetClues
+	 *
+	 * @param targetClues The number of clues to stop at, or MINIMAL for a puzzle where every clue is needed
+	 * @param seed        Seed for a SplittableRandom which makes every random choice
+	 */
+	public SudokuGenerator(int targetClues, long seed) {
+		this(targetClues, new SplittableRandom(seed));
+	}
+
+	/**
+	 * Constructor which removes clues like SudokuGenerator(int), drawing every random choice from random
+	 *
+	 * @param targetClues The number of clues to stop at, or MINIMAL for a puzzle where every clue is needed
+	 * @param random      The source of randomness, which is only used by the calling thread
+	 */
+	public SudokuGenerator(int targetClues, RandomGenerator random) {
 		// Solve an empty board
-		super();
+		super(random);
+		dig(targetClues, false);
+	}
+
+	/**
+	 * Constructor which generates a board of any size, removing clues like SudokuGenerator(int)
+	 *
+	 * @param boxSize     The side length of each box, so 4 generates a 16x16 board
+	 * @param targetClues The number of clues to stop at, or MINIMAL for a puzzle where every clue is needed
+	 * @param random      The source of randomness, which is only used by the calling thread
+	 */
+	public SudokuGenerator(int boxSize, int targetClues, RandomGenerator random) {
+		this(boxSize, targetClues, random, null);
+	}
+
+	/**
+	 * Constructor which generates a board of any size like SudokuGenerator(int, int, RandomGenerator),
+	 * solving the empty board with a branching strategy, such as one which restarts unlucky searches
+	 *
+	 * @param boxSize     The side length of each box, so 4 generates a 16x16 board
+	 * @param targetClues The number of clues to stop at, or MINIMAL for a puzzle where every clue is needed
+	 * @param random      The source of randomness, which is only used by the calling thread
+	 * @param branching   How the search branches, or null for the engine's default
+	 */
+	public SudokuGenerator(int boxSize, int targetClues, RandomGenerator random, BranchingStrategy branching) {
+		this(boxSize, targetClues, random, branching, null);
+	}
 
-		// Remove numbers from the solved board until there's more than one valid solution, then add back one number to get the unsolved board
+	/**
+	 * Constructor which generates a board like SudokuGenerator(int, int, RandomGenerator, BranchingStrategy),
+	 * stopping early once a budget runs out (see getGenerationStatus())
+	 *
+	 * @param boxSize     The side length of each box, so 4 generates a 16x16 board
+	 * @param targetClues The number of clues to stop at, or MINIMAL for a puzzle where every clue is needed
+	 * @param random      The source of randomness, which is only used by the calling thread
+	 * @param branching   How the search branches, or null for the engine's default
+	 * @param budget      The limits on each search, or null for none. Only a deadline or a CancellationToken bounds generation as a whole
+	 */
+	public SudokuGenerator(int boxSize, int targetClues, RandomGenerator random, BranchingStrategy branching, SolveBudget budget) {
+		// Solve an empty board
+		super(boxSize, random, branching, budget);
+		this.budget = budget;
+		if (foundSolvedGrid())
+			dig(targetClues, false);
+	}
+
+	/**
+	 * Constructor which skips solving an empty board and removes clues from a board that's already solved
+	 *
+	 * @param solvedGrid  N^2xN^2 2D int array with exactly one solution, normally a complete board
+	 * @param targetClues The number of clues to stop at, or MINIMAL for a puzzle where every clue is needed
+	 * @param random      The source of randomness, which is only used by the calling thread
+	 * @throws IllegalArgumentException if solvedGrid doesn't have exactly one solution
+	 */
+	public SudokuGenerator(int[][] solvedGrid, int targetClues, RandomGenerator random) {
+		super(solvedGrid, getEngine(), random);
+		if (solutionValidity != 1)
+			throw new IllegalArgumentException("The grid to remove clues from must have exactly one solution");
+		dig(targetClues, false);
+	}
+
+	/**
+	 * Constructor which removes clues from a board held in a Grid, like SudokuGenerator(int[][], int, RandomGenerator)
+	 *
+	 * @param solvedGrid  The board to remove clues from, with exactly one solution
+	 * @param targetClues The number of clues to stop at, or MINIMAL for a puzzle where every clue is needed
+	 * @param random      The source of randomness, which is only used by the calling thread
+	 * @throws IllegalArgumentException if solvedGrid doesn't have exactly one solution
+	 */
+	public SudokuGenerator(Grid solvedGrid, int targetClues, RandomGenerator random) {
+		this(solvedGrid.toArray(), targetClues, random);
+	}
+
+	/**
+	 * Constructor which generates a 9x9 puzzle graded at a target difficulty by LogicalSolver. Clues are removed in
+	 * a random order, skipping any whose removal would need a harder technique, so the puzzle is built at the target
+	 * rather than generating puzzles until one happens to grade right. A board that can't reach the target gives an easier puzzle
+	 *
+	 * @param difficulty The difficulty to aim for, where EXTREME starts from a puzzle like SudokuGenerator(MINIMAL, random)
+	 * @param random     The source of randomness, which is only used by the calling thread
+	 */
+	public SudokuGenerator(LogicalSolver.Difficulty difficulty, RandomGenerator random) {
+		this(3, difficulty, random);
+	}
+
+	/**
+	 * Constructor which generates a board of any size up to 25x25, removing clues like SudokuGenerator(Difficulty, RandomGenerator)
+	 *
+	 * @param boxSize    The side length of each box, so 4 generates a 16x16 board
+	 * @param difficulty The difficulty to aim for, where EXTREME starts from a puzzle like SudokuGenerator(MINIMAL, random)
+	 * @param random     The source of randomness, which is only used by the calling thread
+	 */
+	public SudokuGenerator(int boxSize, LogicalSolver.Difficulty difficulty, RandomGenerator random) {
+		this(boxSize, difficulty, random, null);
+	}
+
+	/**
+	 * Constructor which generates a board like SudokuGenerator(int, Difficulty, RandomGenerator),
+	 * stopping early once a budget runs out (see getGenerationStatus())
+	 *
+	 * @param boxSize    The side length of each box, so 4 generates a 16x16 board
+	 * @param difficulty The difficulty to aim for, where EXTREME starts from a puzzle like SudokuGenerator(MINIMAL, random)
+	 * @param random     The source of randomness, which is only used by the calling thread
+	 * @param budget     The limits on each search, or null for none. Only a deadline or a CancellationToken bounds generation as a whole
+	 */
+	public SudokuGenerator(int boxSize, LogicalSolver.Difficulty difficulty, RandomGenerator random, SolveBudget budget) {
+		// Solve an empty board
+		super(boxSize, random, null, budget);
+		this.budget = budget;
+		if (foundSolvedGrid())
+			dig(difficulty);
+	}
+
+	/**
+	 * Constructor which skips solving an empty board and removes clues from a board that's already solved,
+	 * like SudokuGenerator(Difficulty, RandomGenerator)
+	 *
+	 * @param solvedGrid N^2xN^2 2D int array with exactly one solution, normally a complete board
+	 * @param difficulty The difficulty to aim for, where EXTREME starts from a puzzle like SudokuGenerator(MINIMAL, random)
+	 * @param random     The source of randomness, which is only used by the calling thread
+	 * @throws IllegalArgumentException if solvedGrid doesn't have exactly one solution
+	 */
+	public SudokuGenerator(int[][] solvedGrid, LogicalSolver.Difficulty difficulty, RandomGenerator random) {
+		super(solvedGrid, getEngine(), random);
+		if (solutionValidity != 1)
+			throw new IllegalArgumentException("The grid to remove clues from must have exactly one solution");
+		dig(difficulty);
+	}
+
+	/**
+	 * Grades the generated puzzle by the hardest technique LogicalSolver needs to finish it
+	 *
+	 * @return The difficulty, which is EXTREME if the puzzle needs guessing
+	 * @throws IllegalArgumentException if the board is larger than 25x25
+	 */
+	public LogicalSolver.Difficulty getDifficulty() {
+		return LogicalSolver.grade(unsolved);
+	}
+
+	/**
+	 * Gets whether generation finished or was stopped by its SolveBudget. A puzzle whose digging was stopped still has
+	 * exactly one solution, but more clues than the target or an easier grade. If the budget ran out before the empty board
+	 * was solved, there's no puzzle at all, and getUnsolvedPuzzle() and getSolvedPuzzle() return null
+	 *
+	 * @return EXACT if generation finished, otherwise TIMED_OUT, NODE_LIMIT_REACHED, or CANCELLED
+	 */
+	public SolutionCount.Status getGenerationStatus() {
+		return generationStatus;
+	}
+
+	/**
+	 * Static helper method which solves an empty board in a random order without removing any clues
+	 *
+	 * @param random The source of randomness, which is only used by the calling thread
+	 * @return A complete, valid 9x9 board
+	 */
+	public static int[][] generateSolvedGrid(RandomGenerator random) {
+		return generateSolvedGrid(3, random);
+	}
+
+	/**
+	 * Static helper method which solves an empty board of any size in a random order without removing any clues
+	 *
+	 * @param boxSize The side length of each box, so 4 generates a 16x16 board
+	 * @param random  The source of randomness, which is only used by the calling thread
+	 * @return A complete, valid N^2xN^2 board
+	 */
+	public static int[][] generateSolvedGrid(int boxSize, RandomGenerator random) {
+		return generateSolvedGrid(boxSize, random, null);
+	}
+
+	/**
+	 * Static helper method which solves an empty board of any size in a random order with a branching strategy
+	 *
+	 * @param boxSize   The side length of each box, so 4 generates a 16x16 board
+	 * @param random    The source of randomness, which is only used by the calling thread
+	 * @param branching How the search branches, or null for the engine's default
+	 * @return A complete, valid N^2xN^2 board
+	 */
+	public static int[][] generateSolvedGrid(int boxSize, RandomGenerator random, BranchingStrategy branching) {
+		int side = boxSize * boxSize;
+		return new SudokuGenerator(boxSize, side * side, random, branching).getSolvedPuzzle();
+	}
+
+	/**
+	 * Removes clues from the solved board in a random order, visiting each cell at most once.
+	 * <p>
+	 * Every uniqueness check runs on one live matrix holding the clues as covered rows.
+	 * The clues are covered so that the next cell to try sits just under the clues already found to be needed.
+	 * To try removing a clue, the needed clues above it are uncovered, then the clue itself, and the needed clues
+	 * are covered again. The clue's row is then hidden. If the rest of the matrix still has a solution, the puzzle
+	 * has a second solution without that clue, so the clue is covered again on top of the needed ones.
+	 */
+	private void dig(int targetClues, boolean stopAtFirstNeededClue) {
 		unsolved = copyArray2D(solution);
-		int row, col, val;
-		SudokuSolver tester;
-		do {
-			row = (int) (Math.random() * 9);
-			col = (int) (Math.random() * 9);
-			val = unsolved[row][col];
+		int cellCount = side * side;
+		if (targetClues >= cellCount)
+			return;
+
+		int[] cells = shuffleCells();
+
+		// Cover every clue, last visited first, so the first cell to visit ends up on top
+		DancingLinksMatrix matrix = DancingLinksMatrix.sudoku(boxSize);
+		matrix.setBudget(budget);
+		int[] rows = new int[cellCount];
+		for (int i = 0; i < cellCount; i++)
+			rows[i] = (side * cells[i]) + solution[cells[i] / side][cells[i] % side] - 1;
+		for (int i = cellCount - 1; i >= 0; i--)
+			matrix.coverRow(rows[i]);
+
+		int[] neededRows = new int[cellCount];
+		int neededCount = 0, clues = cellCount;
+		for (int i = 0; i < cellCount && clues > targetClues; i++) {
+			// Bring the clue to the top of the matrix without disturbing the needed clues
+			for (int k = neededCount - 1; k >= 0; k--)
+				matrix.uncoverRow(neededRows[k]);
+			matrix.uncoverRow(rows[i]);
+			for (int k = 0; k < neededCount; k++)
+				matrix.coverRow(neededRows[k]);
+
+			// Look for a solution that puts a different value in the cell
+			matrix.hideRow(rows[i]);
+			boolean needed = matrix.search(1, SudokuEngine.NATURAL_ORDER) > 0;
+			matrix.unhideRow(rows[i]);
+
+			// A search cut short without a solution proves nothing, so the clue stays and digging stops
+			if (!needed && matrix.getStopReason() != null) {
+				generationStatus = matrix.getStopReason();
+				break;
+			}
+
+			if (needed) {
+				matrix.coverRow(rows[i]);
+				neededRows[neededCount++] = rows[i];
+				if (stopAtFirstNeededClue)
+					break;
+			} else {
+				unsolved[cells[i] / side][cells[i] % side] = 0;
+				clues--;
+			}
+		}
+	}
+
+	/**
+	 * Removes clues from the solved board in a random order, visiting each cell once and keeping a removal only if
+	 * LogicalSolver still finishes the puzzle without a technique harder than the target. A puzzle the techniques finish
+	 * has exactly one solution, so no search is needed to check. For EXTREME, the clues are removed like MINIMAL instead.
+	 * <p>
+	 * A removal which would need the target's techniques often needs harder ones too, so the first pass tends to stop
+	 * short of the target. In that case a kept clue is traded for a removed one that makes the puzzle harder without
+	 * going past the target, and since taking clues away never makes a puzzle easier, another pass removes what it can
+	 * at the new difficulty. This repeats until the puzzle grades at the target or no trade helps, in which case it ends up easier
+	 */
+	private void dig(LogicalSolver.Difficulty difficulty) {
+		LogicalSolver logic = new LogicalSolver(boxSize);
+		ReusableSudokuSolver checker = null;
+		if (difficulty == LogicalSolver.Difficulty.EXTREME) {
+			dig(MINIMAL, false);
+			if (generationStatus != SolutionCount.Status.EXACT)
+				return;
+			checker = new ReusableSudokuSolver(Engine.ARRAY_DANCING_LINKS, boxSize).setLogicFirst(false).setBudget(budget);
+		} else {
+			unsolved = copyArray2D(solution);
+		}
+		int[] cells = shuffleCells();
+		if (checker == null)
+			removeClues(cells, logic, checker, difficulty);
+		LogicalSolver.Difficulty grade = grade(logic, checker, difficulty);
+		// No grade means the budget ran out checking the puzzle
+		while (grade != null && grade.compareTo(difficulty) < 0 && !isOutOfBudget() && tradeClues(cells, logic, checker, difficulty, grade)) {
+			removeClues(cells, logic, checker, difficulty);
+			grade = grade(logic, checker, difficulty);
+		}
+	}
+
+	/**
+	 * Removes every clue, in order, which leaves a puzzle with one solution no harder than the target
+	 */
+	private void removeClues(int[] cells, LogicalSolver logic, ReusableSudokuSolver checker, LogicalSolver.Difficulty difficulty) {
+		for (int cell : cells) {
+			int row = cell / side, col = cell % side;
+			if (unsolved[row][col] == 0)
+				continue;
+			if (isOutOfBudget())
+				return;
 			unsolved[row][col] = 0;
-			tester = new SudokuSolver(unsolved);
-		} while (tester.checkValidity() < 2);
-		unsolved[row][col] = val;
+			if (grade(logic, checker, difficulty) == null)
+				unsolved[row][col] = solution[row][col];
+		}
+	}
+
+	/**
+	 * Swaps one kept clue for one removed clue, trying each pair in order until the puzzle grades harder than it did
+	 * without going past the target
+	 *
+	 * @return false, leaving the puzzle as it was, if no swap does
+	 */
+	private boolean tradeClues(int[] cells, LogicalSolver logic, ReusableSudokuSolver checker, LogicalSolver.Difficulty difficulty, LogicalSolver.Difficulty current) {
+		for (int kept : cells) {
+			int keptRow = kept / side, keptCol = kept % side;
+			if (unsolved[keptRow][keptCol] == 0)
+				continue;
+			unsolved[keptRow][keptCol] = 0;
+			for (int removed : cells) {
+				int row = removed / side, col = removed % side;
+				if (removed == kept || unsolved[row][col] != 0)
+					continue;
+				if (isOutOfBudget()) {
+					unsolved[keptRow][keptCol] = solution[keptRow][keptCol];
+					return false;
+				}
+				unsolved[row][col] = solution[row][col];
+				LogicalSolver.Difficulty grade = grade(logic, checker, difficulty);
+				if (grade != null && grade.compareTo(current) > 0)
+					return true;
+				unsolved[row][col] = 0;
+			}
+			unsolved[keptRow][keptCol] = solution[keptRow][keptCol];
+		}
+		return false;
+	}
+
+	/**
+	 * Grades the puzzle with the techniques up to the target. Puzzles the techniques can't finish only
+	 * count as EXTREME if a search confirms they have exactly one solution, so checker is only given for that target
+	 *
+	 * @return The difficulty, or null if the puzzle needs more than the target or doesn't have exactly one solution
+	 */
+	private LogicalSolver.Difficulty grade(LogicalSolver logic, ReusableSudokuSolver checker, LogicalSolver.Difficulty difficulty) {
+		LogicalSolver.Outcome outcome = logic.solve(unsolved, difficulty);
+		if (outcome == LogicalSolver.Outcome.SOLVED)
+			return logic.getDifficulty();
+		if (outcome == LogicalSolver.Outcome.STUCK && checker != null) {
+			int validity = checker.solve(unsolved);
+			// A check cut short proves nothing, so the puzzle is treated like one without a unique solution
+			if (checker.getSolveStatus().isBudgetExhausted())
+				generationStatus = checker.getSolveStatus();
+			else if (validity == 1)
+				return LogicalSolver.Difficulty.EXTREME;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether a search has run out of budget or the budget's deadline has passed since, remembering why
+	 */
+	private boolean isOutOfBudget() {
+		if (generationStatus == SolutionCount.Status.EXACT) {
+			SolutionCount.Status expired = SolveBudget.checkExpired(budget);
+			if (expired != null)
+				generationStatus = expired;
+		}
+		return generationStatus != SolutionCount.Status.EXACT;
+	}
+
+	/**
+	 * Checks that solving the empty board finished before the budget ran out, clearing the boards if it didn't
+	 */
+	private boolean foundSolvedGrid() {
+		if (solution != null)
+			return true;
+		generationStatus = getSolveStatus();
+		unsolved = null;
+		return false;
+	}
+
+	/**
+	 * Picks a random order to visit the cells in
+	 *
+	 * @return Every cell index, row by row, shuffled
+	 */
+	private int[] shuffleCells() {
+		int cellCount = side * side;
+		int[] cells = new int[cellCount];
+		for (int i = 0; i < cellCount; i++)
+			cells[i] = i;
+		for (int i = 0; i < cellCount - 1; i++) {
+			int rand = i + random.nextInt(cellCount - i);
+			int temp = cells[i];
+			cells[i] = cells[rand];
+			cells[rand] = temp;
+		}
+		return cells;
 	}
 
 	/**
@@ -32,14 +460,29 @@ public class SudokuGenerator extends SudokuManipulator {
 	 */
 	@Override
 	protected PossibilityHeader[] orderPossibilities(ConditionHeader condition) {
-		PossibilityHeader[] possibilities = condition.getNodes().stream().map(Node::getPossibility).toArray(PossibilityHeader[]::new);
+		PossibilityHeader[] possibilities = condition.getPossibilities();
 		for (int i = 0; i < possibilities.length - 1; i++) {
-			int rand = (int) (Math.random() * (possibilities.length - i));
+			int rand = i + random.nextInt(possibilities.length - i);
 			PossibilityHeader temp = possibilities[i];
 			possibilities[i] = possibilities[rand];
 			possibilities[rand] = temp;
 		}
 		return possibilities;
 	}
-}
 
+	/**
+	 * Shuffles the provided possibility indices into a random order
+	 *
+	 * @param possibilities The possibility indices being checked
+	 * @param count         The number of valid entries in possibilities
+	 */
+	@Override
+	protected void orderPossibilities(int[] possibilities, int count) {
+		for (int i = 0; i < count - 1; i++) {
+			int rand = i + random.nextInt(count - i);
+			int temp = possibilities[i];
+			possibilities[i] = possibilities[rand];
+			possibilities[rand] = temp;
+		}
+	}
+}
@@ -1,8 +1,12 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
 
 /**
- * Abstract class containing code for solving sudoku puzzles
+ * Abstract class containing code for solving sudoku puzzles.
+ * <p>
+ * Boards are N^2xN^2 for any box size N, so a 9x9 board has 3x3 boxes, a 16x16 board has 4x4 boxes, and so on.
+ * The size is taken from the array passed in, and cells hold values from 1 to N^2 with 0 for an empty cell.
  */
 public abstract class SudokuManipulator {
 
@@ -14,6 +18,31 @@ public abstract class SudokuManipulator {
 	int[][] unsolved;
 	protected int solutionValidity;
 
+	// Why the search stopped, which is only something other than EXACT or LIMIT_REACHED if a SolveBudget ran out
+	private SolutionCount.Status solveStatus;
+
+	// Randomness for subclasses which order possibilities randomly. It's set before solving because the constructor does all the work
+	protected final RandomGenerator random;
+
+	// Box size N and side length N^2 of the board
+	protected final int boxSize, side;
+
+	// Whether the caller lets the solve try a LogicalSolver before searching, where the subclass does (see triesLogicFirst())
+	private final boolean logicFirst;
+
+	// Counts of the work done solving, or null if the solve wasn't instrumented
+	private SolveStats stats;
+
+	// How the search branches, or null for the engines' defaults, and the randomness its random choices draw on
+	private final BranchingStrategy branching;
+	private RandomGenerator branchingRandom;
+
+	// Sentinel heading the ring of live conditions, and sentinels heading the lists of live conditions of each size
+	private ConditionHeader root;
+	private ConditionHeader[] sizeBuckets;
+
+	private static volatile Engine engine = Engine.valueOf(System.getProperty("sudoku.engine", Engine.LINKED_NODES.name()));
+
 	//**************************//
 	//***** Public Methods *****//
 	//**************************//
@@ -22,51 +51,177 @@ public abstract class SudokuManipulator {
 	 * Default constructor (solves an empty board)
 	 */
 	public SudokuManipulator() {
-		this(new int[][] {{0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}, {0, 0, 0, 0, 0, 0, 0, 0, 0}});
+		this((RandomGenerator) null);
+	}
+
+	/**
+	 * Constructor which solves an empty 9x9 board using a particular source of randomness
+	 *
+	 * @param random The randomness available to orderPossibilities()
+	 */
+	protected SudokuManipulator(RandomGenerator random) {
+		this(3, random);
+	}
+
+	/**
+	 * Constructor which solves an empty board of any size using a particular source of randomness
+	 *
+	 * @param boxSize The side length of each box, which is 3 for a 9x9 board
+	 * @param random  The randomness available to orderPossibilities()
+	 */
+	protected SudokuManipulator(int boxSize, RandomGenerator random) {
+		this(boxSize, random, null);
+	}
+
+	/**
+	 * Constructor which solves an empty board of any size using a particular source of randomness and branching strategy
+	 *
+	 * @param boxSize   The side length of each box, which is 3 for a 9x9 board
+	 * @param random    The randomness available to orderPossibilities()
+	 * @param branching How the search branches, or null for the engine's default
+	 */
+	protected SudokuManipulator(int boxSize, RandomGenerator random, BranchingStrategy branching) {
+		this(boxSize, random, branching, null);
+	}
+
+	/**
+	 * Constructor which solves an empty board of any size like SudokuManipulator(int, RandomGenerator, BranchingStrategy),
+	 * giving up once a budget runs out
+	 *
+	 * @param boxSize   The side length of each box, which is 3 for a 9x9 board
+	 * @param random    The randomness available to orderPossibilities()
+	 * @param branching How the search branches, or null for the engine's default
+	 * @param budget    The limits to search within, or null for none
+	 */
+	protected SudokuManipulator(int boxSize, RandomGenerator random, BranchingStrategy branching, SolveBudget budget) {
+		this(new int[boxSize * boxSize][boxSize * boxSize], engine, random, budget, branching, true);
 	}
 
 	/**
-	 * Primary constructor
+	 * Primary constructor, which uses the engine selected with setEngine()
 	 *
-	 * @param initialInfo 9x9 2D int array with all known puzzle cells filled in
+	 * @param initialInfo N^2xN^2 2D int array with all known puzzle cells filled in
 	 */
 	public SudokuManipulator(int[][] initialInfo) {
+		this(initialInfo, engine);
+	}
+
+	/**
+	 * Constructor which solves the puzzle with a particular engine
+	 *
+	 * @param initialInfo N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 */
+	public SudokuManipulator(int[][] initialInfo, Engine engine) {
+		this(initialInfo, engine, (RandomGenerator) null);
+	}
+
+	/**
+	 * Constructor which solves the puzzle with a particular engine, giving up once a budget runs out
+	 *
+	 * @param initialInfo N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 * @param budget      The limits to search within, or null for none
+	 */
+	public SudokuManipulator(int[][] initialInfo, Engine engine, SolveBudget budget) {
+		this(initialInfo, engine, null, budget);
+	}
+
+	/**
+	 * Constructor which solves the puzzle with a particular engine and source of randomness
+	 *
+	 * @param initialInfo N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 * @param random      The randomness available to orderPossibilities()
+	 */
+	protected SudokuManipulator(int[][] initialInfo, Engine engine, RandomGenerator random) {
+		this(initialInfo, engine, random, null);
+	}
+
+	/**
+	 * Constructor which solves the puzzle with a particular engine, source of randomness, and budget.
+	 * Solves with a budget are always instrumented, so getSolveStats() shows the work done before the budget ran out
+	 *
+	 * @param initialInfo N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 * @param random      The randomness available to orderPossibilities()
+	 * @param budget      The limits to search within, or null for none
+	 * @throws IllegalArgumentException if the board isn't square with a side length of N^2 for some box size N
+	 */
+	protected SudokuManipulator(int[][] initialInfo, Engine engine, RandomGenerator random, SolveBudget budget) {
+		this(initialInfo, engine, random, budget, null, true);
+	}
+
+	/**
+	 * Constructor which solves the puzzle like SudokuManipulator(int[][], Engine, RandomGenerator, SolveBudget)
+	 * with a branching strategy, optionally without the LogicalSolver that subclasses overriding triesLogicFirst()
+	 * try before searching
+	 *
+	 * @param initialInfo N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 * @param random      The randomness available to orderPossibilities()
+	 * @param budget      The limits to search within, or null for none
+	 * @param branching   How the search branches, or null for the engine's default
+	 * @param logicFirst  false to always search, so the engine does all the work
+	 * @throws IllegalArgumentException if the board isn't square with a side length of N^2 for some box size N
+	 */
+	protected SudokuManipulator(int[][] initialInfo, Engine engine, RandomGenerator random, SolveBudget budget, BranchingStrategy branching, boolean logicFirst) {
+		this.random = random;
+		this.logicFirst = logicFirst;
+		side = initialInfo.length;
+		boxSize = getBoxSize(side);
+		for (int[] row : initialInfo)
+			if (row.length != side)
+				throw new IllegalArgumentException("The board must be square");
 		unsolved = copyArray2D(initialInfo);
 		solution = null;
 		solutionValidity = 0;
+		engine = engine.forBoxSize(boxSize);
+		stats = budget != null || SolveMetrics.isCollecting() ? new SolveStats(engine.name(), side) : null;
+		this.branching = branching;
+		if (branching != null)
+			branchingRandom = random != null ? random : ThreadLocalRandom.current();
+
+		// Puzzles which simple techniques finish don't need a matrix at all
+		if (logicFirst && triesLogicFirst() && solveLogically()) {
+			SolveMetrics.record(stats);
+			return;
+		}
 
-		// Create the conditions
-		ConditionHeader[] conditions = new ConditionHeader[324];
-		List<ConditionHeader> conditionsRemaining = new ArrayList<>();
-		for (int i = 0; i < 324; i++) {
-			conditions[i] = new ConditionHeader();
-			conditionsRemaining.add(conditions[i]);
+		// Hand the puzzle to a separate SudokuEngine unless the node matrix is selected
+		if (engine != Engine.LINKED_NODES) {
+			solveWithEngine(engine.newEngine(boxSize), budget);
+			SolveMetrics.record(stats);
+			return;
 		}
-		for (int i = 1; i < 324; i++) {
-			ConditionHeader previousC = conditions[i - 1], currentC = conditions[i];
-			previousC.setNextH(currentC);
-			currentC.setPreviousH(previousC);
+		if (stats != null)
+			stats.startSetup();
+
+		// Create the conditions, linked into a ring along with the root
+		int cells = side * side;
+		ConditionHeader[] conditions = new ConditionHeader[4 * cells];
+		root = new ConditionHeader();
+		ConditionHeader previousC = root;
+		for (int i = 0; i < conditions.length; i++) {
+			conditions[i] = new ConditionHeader();
+			previousC.setNextH(conditions[i]);
+			conditions[i].setPreviousH(previousC);
+			previousC = conditions[i];
 		}
-		conditions[0].setPreviousH(conditions[323]);
-		conditions[323].setNextH(conditions[0]);
+		previousC.setNextH(root);
+		root.setPreviousH(previousC);
 
 		// Create the possibilities and flesh out the matrix
-		PossibilityHeader[] possibilities = new PossibilityHeader[729];
-		for (int row = 0; row < 9; row++)
-			for (int col = 0; col < 9; col++)
-				for (int val = 1; val <= 9; val++) {
+		PossibilityHeader[] possibilities = new PossibilityHeader[cells * side];
+		for (int row = 0; row < side; row++)
+			for (int col = 0; col < side; col++)
+				for (int val = 1; val <= side; val++) {
 					// Create possibility header
 					PossibilityHeader possibility = new PossibilityHeader(row, col, val);
-					possibilities[getPossibilityIndex(row, col, val)] = possibility;
+					possibilities[getPossibilityIndex(row, col, val, side)] = possibility;
 
 					// List the conditions fulfilled by placing a particular val in the cell at (row, col)
-					int[] conditionsFulfilled = new int[] {
-						/* Cell */   col + (row * 9),
-						/* Row */    80 + val + (row * 9),
-						/* Column */ 161 + val + (col * 9),
-						/* Box */    242 + val + ((col / 3) + 3 * (row / 3)) * 9
-						/* "Box" refers to the 3x3 regions of the game board */
-					};
+					int[] conditionsFulfilled = getConditionsFulfilled(row, col, val, boxSize);
 
 					// Create a new Node for each fulfilled condition and add it to the matrix
 					for (int cIndex : conditionsFulfilled) {
@@ -77,44 +232,39 @@ public abstract class SudokuManipulator {
 					}
 				}
 
+		// Group the conditions by size so the smallest can be found without scanning them all
+		sizeBuckets = new ConditionHeader[side + 1];
+		for (int i = 0; i < sizeBuckets.length; i++)
+			sizeBuckets[i] = new ConditionHeader();
+		for (ConditionHeader condition : conditions)
+			condition.joinBucket(sizeBuckets[condition.getSize()]);
+
 		// Fill in the known information
-		for (int row = 0; row < 9; row++) {
-			for (int col = 0; col < 9; col++) {
+		for (int row = 0; row < side; row++) {
+			for (int col = 0; col < side; col++) {
 				int val = initialInfo[row][col];
 
 				// Check that a value was selected for the cell
 				if (val != 0) {
-					// Get the correct possibility header
-					PossibilityHeader poss = possibilities[getPossibilityIndex(row, col, val)];
-
 					// Update the possibility matrix
-					Node currPrimaryN = poss.getFirstNode();
-					do {
-						ConditionHeader conditionToRemove = currPrimaryN.getCondition();
-						conditionsRemaining.remove(conditionToRemove);
-						conditionToRemove.getPreviousH().setNextH(conditionToRemove.getNextH());
-						conditionToRemove.getNextH().setPreviousH(conditionToRemove.getPreviousH());
-						for (Node currSecondaryN = currPrimaryN.getDown(); currSecondaryN != currPrimaryN; currSecondaryN = currSecondaryN.getDown()) {
-							for (Node currTertiaryN = currSecondaryN.getRight(); currTertiaryN != currSecondaryN; currTertiaryN = currTertiaryN.getRight()) {
-								currTertiaryN.getCondition().getNodes().remove(currTertiaryN);
-								currTertiaryN.getUp().setDown(currTertiaryN.getDown());
-								currTertiaryN.getDown().setUp(currTertiaryN.getUp());
-							}
-						}
-						currPrimaryN = currPrimaryN.getRight();
-					} while (currPrimaryN != poss.getFirstNode());
+					coverPossibility(possibilities[getPossibilityIndex(row, col, val, side)]);
 				}
 			}
 		}
 
 		// Find the solutions, check how many there are, and store one of them
-		solve(copyArray2D(unsolved), conditionsRemaining);
+		if (stats != null)
+			stats.startSearch();
+		solveStatus = searchWithRestarts(budget, tryBudget -> solve(copyArray2D(unsolved), tryBudget));
+		if (stats != null)
+			stats.endSearch(solutionValidity);
+		SolveMetrics.record(stats);
 	}
 
 	/**
 	 * Gets the unsolved version of a puzzle.
 	 *
-	 * @return 9x9 int array containing the unsolved version of this sudoku puzzle with 0s used to represent empty cells
+	 * @return N^2xN^2 int array containing the unsolved version of this sudoku puzzle with 0s used to represent empty cells
 	 */
 	public int[][] getUnsolvedPuzzle() {
 		return unsolved;
@@ -129,85 +279,364 @@ public abstract class SudokuManipulator {
 		return solution;
 	}
 
+	/**
+	 * Gets the unsolved version of a puzzle as a compact Grid
+	 *
+	 * @return A new grid with 0s for the empty cells
+	 * @throws IllegalArgumentException if the board isn't a size Grid holds: 9x9, 16x16, or 25x25
+	 */
+	public Grid getUnsolvedGrid() {
+		return Grid.of(unsolved);
+	}
+
+	/**
+	 * Gets the fully solved puzzle as a compact Grid
+	 *
+	 * @return A new grid, or null if no valid solution was found
+	 * @throws IllegalArgumentException if the board isn't a size Grid holds: 9x9, 16x16, or 25x25
+	 */
+	public Grid getSolvedGrid() {
+		return solution == null ? null : Grid.of(solution);
+	}
+
+	/**
+	 * Enumerates the puzzle's solutions lazily, for callers who need more than the first one getSolvedPuzzle() keeps
+	 *
+	 * @return A new enumerator over every solution of the unsolved puzzle
+	 */
+	public SolutionEnumerator enumerateSolutions() {
+		return new SolutionEnumerator(unsolved);
+	}
+
+	/**
+	 * Gets why solving stopped. EXACT and LIMIT_REACHED mean the search finished, finding at most one solution
+	 * or more than one respectively. TIMED_OUT, NODE_LIMIT_REACHED, and CANCELLED mean the budget ran out first,
+	 * so the solution count and solved puzzle are only what was found before then
+	 *
+	 * @return The status of the search
+	 */
+	public SolutionCount.Status getSolveStatus() {
+		return solveStatus;
+	}
+
+	/**
+	 * Gets the counts of the work done solving the puzzle
+	 *
+	 * @return The counts, or null if the puzzle was solved without a budget while instrumentation was off (see SolveMetrics.setEnabled())
+	 */
+	public SolveStats getSolveStats() {
+		return stats;
+	}
+
+	/**
+	 * Selects the exact cover engine used by every SudokuManipulator constructed afterwards.
+	 * The default can also be set with the system property sudoku.engine
+	 *
+	 * @param engine The engine to use
+	 */
+	public static void setEngine(Engine engine) {
+		SudokuManipulator.engine = engine;
+	}
+
+	/**
+	 * Gets the exact cover engine currently used for new puzzles
+	 *
+	 * @return The selected engine
+	 */
+	public static Engine getEngine() {
+		return engine;
+	}
+
 	//*************************************************************************************//
 	//***** Abstract methods which change behavior when generating vs solving puzzles *****//
 	//*************************************************************************************//
 
 	protected abstract PossibilityHeader[] orderPossibilities(ConditionHeader condition);
 
+	protected abstract void orderPossibilities(int[] possibilities, int count);
+
+	/**
+	 * Whether to try solving with a LogicalSolver before building a matrix. A puzzle the techniques finish has only
+	 * one solution, which a search would find too, but subclasses that draw on random while searching leave this off
+	 * so a seed keeps making the same choices
+	 *
+	 * @return false unless overridden
+	 */
+	protected boolean triesLogicFirst() {
+		return false;
+	}
+
 	//***************************//
 	//***** Private Methods *****//
 	//***************************//
 
-	private void solve(int[][] currentData, List<ConditionHeader> conditionsRemaining) {
-		// Check if the current state is a solution or if too many solutions have already been found
-		if (conditionsRemaining.isEmpty()) {
-			solutionValidity++;
-			if (solutionValidity < 2)
-				solution = copyArray2D(currentData);
-			return;
+	/**
+	 * Searches for solutions with a loop over a stack of choices, one level per cell filled in, instead of recursing.
+	 * Each level holds the ordered possibilities of the condition chosen there and how many of them have been tried,
+	 * so the last one tried is the one currently covered. If the budget runs out the search only unwinds,
+	 * which leaves the matrix ready for a restart
+	 *
+	 * @return Why the search stopped
+	 */
+	private SolutionCount.Status solve(int[][] currentData, SolveBudget budget) {
+		SolveBudget.Tracker tracker = new SolveBudget.Tracker();
+		tracker.start(budget, Long.MAX_VALUE);
+		solutionValidity = 0;
+		solution = null;
+		PossibilityHeader[][] choices = new PossibilityHeader[side * side + 1][];
+		int[] tried = new int[choices.length];
+		int depth = 0;
+		boolean descending = true;
+		while (depth >= 0) {
+			if (descending) {
+				descending = false;
+				if (tracker.isExhausted()) {
+					depth--;
+					continue;
+				}
+				if (stats != null)
+					stats.recordNode(depth);
+
+				// Check if the current state is a solution or if too many solutions have already been found
+				if (root.getNextH() == root) {
+					solutionValidity++;
+					if (solutionValidity < 2)
+						solution = copyArray2D(currentData);
+					depth--;
+					continue;
+				}
+				if (solutionValidity > 1) {
+					depth--;
+					continue;
+				}
+
+				// Get the next ConditionHeader from the first non-empty size bucket, unless a strategy says otherwise
+				ConditionHeader lowest = null;
+				if (branching != null)
+					lowest = chooseCondition();
+				else
+					for (int size = 0; lowest == null; size++)
+						lowest = sizeBuckets[size].getFirstInBucket();
+				if (stats != null)
+					stats.recordBranch(lowest.getSize());
+
+				// Get the ordered list of PossibilityHeaders to iterate through
+				choices[depth] = branching != null ? orderByStrategy(lowest) : orderPossibilities(lowest);
+				tried[depth] = 0;
+			} else {
+				// Revert the matrix after coming back up from the level below
+				uncoverPossibility(choices[depth][tried[depth] - 1]);
+			}
+
+			if (tried[depth] < choices[depth].length && !tracker.isStopped()) {
+				PossibilityHeader poss = choices[depth][tried[depth]++];
+
+				// Update the puzzle
+				currentData[poss.getRow()][poss.getColumn()] = poss.getValue();
+
+				// Update the possibility matrix and move down a level
+				coverPossibility(poss);
+				depth++;
+				descending = true;
+			} else {
+				choices[depth] = null;
+				depth--;
+			}
 		}
-		if (solutionValidity > 1)
-			return;
+		return tracker.getStatus(solutionValidity, 2);
+	}
 
-		// Get the next ConditionHeader
-		ConditionHeader initial = conditionsRemaining.get(0), current = initial.getNextH(), lowest = initial;
-		while (current != initial) {
-			if (current.getNodes().size() < lowest.getNodes().size())
-				lowest = current;
-			current = current.getNextH();
-		}
-		// Get the ordered list of PossibilityHeaders and iterate through it
-		PossibilityHeader[] possibilitiesToTest = orderPossibilities(lowest);
-		for (PossibilityHeader poss : possibilitiesToTest) {
-			// Update the puzzle
-			currentData[poss.getRow()][poss.getColumn()] = poss.getValue();
-
-			// Update the possibility matrix
-			Node currPrimaryN = poss.getFirstNode();
-			do {
-				// Update the matrix
-				ConditionHeader conditionToRemove = currPrimaryN.getCondition();
-				conditionsRemaining.remove(conditionToRemove);
-				conditionToRemove.getPreviousH().setNextH(conditionToRemove.getNextH());
-				conditionToRemove.getNextH().setPreviousH(conditionToRemove.getPreviousH());
-				for (Node currSecondaryN = currPrimaryN.getDown(); currSecondaryN != currPrimaryN; currSecondaryN = currSecondaryN.getDown()) {
-					for (Node currTertiaryN = currSecondaryN.getRight(); currTertiaryN != currSecondaryN; currTertiaryN = currTertiaryN.getRight()) {
-						currTertiaryN.getCondition().getNodes().remove(currTertiaryN);
-						currTertiaryN.getUp().setDown(currTertiaryN.getDown());
-						currTertiaryN.getDown().setUp(currTertiaryN.getUp());
-					}
+	/**
+	 * Removes every condition fulfilled by a possibility, along with every other possibility that fulfills one of them
+	 */
+	private void coverPossibility(PossibilityHeader poss) {
+		Node currPrimaryN = poss.getFirstNode();
+		do {
+			ConditionHeader conditionToRemove = currPrimaryN.getCondition();
+			if (stats != null)
+				stats.covers++;
+			conditionToRemove.getPreviousH().setNextH(conditionToRemove.getNextH());
+			conditionToRemove.getNextH().setPreviousH(conditionToRemove.getPreviousH());
+			conditionToRemove.leaveBucket();
+			for (Node currSecondaryN = currPrimaryN.getDown(); currSecondaryN != currPrimaryN; currSecondaryN = currSecondaryN.getDown()) {
+				for (Node currTertiaryN = currSecondaryN.getRight(); currTertiaryN != currSecondaryN; currTertiaryN = currTertiaryN.getRight()) {
+					currTertiaryN.getCondition().removeNode(currTertiaryN);
 				}
-				currPrimaryN = currPrimaryN.getRight();
-			} while (currPrimaryN != poss.getFirstNode());
-
-			// Call this method recursively
-			solve(currentData, conditionsRemaining);
-
-			// Revert the matrix
-			Node currPrimaryN2 = poss.getFirstNode().getLeft();
-			do {
-				ConditionHeader conditionToRemove = currPrimaryN2.getCondition();
-				conditionsRemaining.add(conditionToRemove);
-				conditionToRemove.getPreviousH().setNextH(conditionToRemove);
-				conditionToRemove.getNextH().setPreviousH(conditionToRemove);
-				for (Node currSecondaryN = currPrimaryN2.getUp(); currSecondaryN != currPrimaryN2; currSecondaryN = currSecondaryN.getUp()) {
-					for (Node currTertiaryN = currSecondaryN.getLeft(); currTertiaryN != currSecondaryN; currTertiaryN = currTertiaryN.getLeft()) {
-						currTertiaryN.getCondition().getNodes().add(currTertiaryN);
-						currTertiaryN.getUp().setDown(currTertiaryN);
-						currTertiaryN.getDown().setUp(currTertiaryN);
-					}
+			}
+			currPrimaryN = currPrimaryN.getRight();
+		} while (currPrimaryN != poss.getFirstNode());
+	}
+
+	/**
+	 * Exactly reverses coverPossibility(poss)
+	 */
+	private void uncoverPossibility(PossibilityHeader poss) {
+		Node currPrimaryN = poss.getFirstNode().getLeft();
+		do {
+			ConditionHeader conditionToRestore = currPrimaryN.getCondition();
+			if (stats != null)
+				stats.uncovers++;
+			for (Node currSecondaryN = currPrimaryN.getUp(); currSecondaryN != currPrimaryN; currSecondaryN = currSecondaryN.getUp()) {
+				for (Node currTertiaryN = currSecondaryN.getLeft(); currTertiaryN != currSecondaryN; currTertiaryN = currTertiaryN.getLeft()) {
+					currTertiaryN.getCondition().restoreNode(currTertiaryN);
 				}
-				currPrimaryN2 = currPrimaryN2.getLeft();
-			} while (currPrimaryN2 != poss.getFirstNode().getLeft());
-		}
+			}
+			conditionToRestore.getPreviousH().setNextH(conditionToRestore);
+			conditionToRestore.getNextH().setPreviousH(conditionToRestore);
+			conditionToRestore.joinBucket(sizeBuckets[conditionToRestore.getSize()]);
+			currPrimaryN = currPrimaryN.getLeft();
+		} while (currPrimaryN != poss.getFirstNode().getLeft());
+	}
+
+	/**
+	 * Chooses the condition to branch on by the branching strategy's column choice and tie-break
+	 */
+	private ConditionHeader chooseCondition() {
+		if (branching.getColumnChoice() == BranchingStrategy.ColumnChoice.FIRST_REMAINING)
+			return root.getNextH();
+		ConditionHeader bucket = null;
+		for (int size = 0; bucket == null; size++)
+			if (sizeBuckets[size].getFirstInBucket() != null)
+				bucket = sizeBuckets[size];
+		if (branching.getTieBreak() == BranchingStrategy.TieBreak.FIRST)
+			return bucket.getFirstInBucket();
+		return bucket.getInBucket(BranchingStrategy.pickTie(branching.getTieBreak(), bucket.countInBucket(), branchingRandom));
+	}
+
+	/**
+	 * Lists a condition's possibilities in the branching strategy's value order
+	 */
+	private PossibilityHeader[] orderByStrategy(ConditionHeader condition) {
+		if (branching.getValueOrder() == BranchingStrategy.ValueOrder.GIVEN)
+			return orderPossibilities(condition);
+		PossibilityHeader[] possibilities = condition.getPossibilities();
+		int[] indices = new int[possibilities.length];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = i;
+		branching.order(SudokuEngine.NATURAL_ORDER, branchingRandom).order(indices, indices.length);
+		PossibilityHeader[] ordered = new PossibilityHeader[possibilities.length];
+		for (int i = 0; i < indices.length; i++)
+			ordered[i] = possibilities[indices[i]];
+		return ordered;
+	}
+
+	/**
+	 * Runs tries of a search until one finishes, restarting it if the branching strategy restarts. A subclass drawing
+	 * on random makes the search randomized even if the strategy doesn't
+	 *
+	 * @param budget The budget of the whole solve, or null for none
+	 * @param search One try of the search within a budget, which leaves everything ready for the next try
+	 * @return Why the last try stopped
+	 */
+	private SolutionCount.Status searchWithRestarts(SolveBudget budget, Function<SolveBudget, SolutionCount.Status> search) {
+		if (branching == null)
+			return search.apply(budget);
+		return branching.searchWithRestarts(budget, random != null, stats, search);
+	}
+
+	private void solveWithEngine(SudokuEngine sudokuEngine, SolveBudget budget) {
+		// Find the solutions, check how many there are, and store one of them
+		int[][] found = new int[side][side];
+		sudokuEngine.setSolveStats(stats);
+		SudokuEngine.PossibilityOrder order = this::orderPossibilities;
+		if (branching != null) {
+			sudokuEngine.setBranching(branching, branchingRandom);
+			order = branching.order(order, branchingRandom);
+		}
+		SudokuEngine.PossibilityOrder tryOrder = order;
+		solveStatus = searchWithRestarts(budget, tryBudget -> {
+			sudokuEngine.setBudget(tryBudget);
+			solutionValidity = sudokuEngine.solve(unsolved, found, tryOrder);
+			return sudokuEngine.getLastStatus();
+		});
+		if (solutionValidity > 0)
+			solution = found;
+	}
+
+	/**
+	 * Solves the puzzle with a LogicalSolver, keeping the result unless the techniques got stuck.
+	 * Contradictions are left to the search as well, so invalid givens are handled the same either way
+	 *
+	 * @return Whether the puzzle was solved
+	 */
+	private boolean solveLogically() {
+		if (boxSize > LogicalSolver.MAX_BOX_SIZE)
+			return false;
+		if (stats != null)
+			stats.startSetup();
+		LogicalSolver logic = new LogicalSolver(boxSize);
+		if (logic.solve(unsolved) != LogicalSolver.Outcome.SOLVED)
+			return false;
+		solution = logic.getSolvedPuzzle();
+		solutionValidity = 1;
+		solveStatus = SolutionCount.Status.EXACT;
+		if (stats != null) {
+			stats.startSearch();
+			stats.endSearch(solutionValidity);
+		}
+		return true;
+	}
+
+	/**
+	 * Static helper method which returns the index of the possibility corresponding to a given row, column, and value.
+	 * On a 9x9 board this is (81 * row) + (9 * col) + (val - 1)
+	 */
+	static int getPossibilityIndex(int row, int col, int val, int side) {
+		return (side * side * row) + (side * col) + (val - 1);
 	}
 
 	/**
-	 * Static helper method which returns the index of the possibility corresponding to a given row, column, and value
+	 * Static helper method which lists the conditions fulfilled by placing val in the cell at (row, col).
+	 * The cell conditions come first, followed by the row, column, and box conditions, each block holding
+	 * one condition per value for each row, column, or box
 	 */
-	private static int getPossibilityIndex(int row, int col, int val) {
-		return (81 * row) + (9 * col) + (val - 1);
+	static int[] getConditionsFulfilled(int row, int col, int val, int boxSize) {
+		int side = boxSize * boxSize, cells = side * side;
+		return new int[] {
+			/* Cell */   col + (row * side),
+			/* Row */    cells + (val - 1) + (row * side),
+			/* Column */ (2 * cells) + (val - 1) + (col * side),
+			/* Box */    (3 * cells) + (val - 1) + ((col / boxSize) + boxSize * (row / boxSize)) * side
+			/* "Box" refers to the NxN regions of the game board */
+		};
+	}
+
+	/**
+	 * Static helper method which finds the box size of a board from its side length
+	 *
+	 * @return N for a board with a side length of N^2
+	 * @throws IllegalArgumentException if the side length isn't a square of at least 1
+	 */
+	static int getBoxSize(int side) {
+		int boxSize = (int) Math.round(Math.sqrt(side));
+		if (side < 1 || boxSize * boxSize != side)
+			throw new IllegalArgumentException("A board's side length must be a square number, not " + side);
+		return boxSize;
+	}
+
+	/**
+	 * Static helper method which checks that a board's givens don't repeat a value within any row, column, or box
+	 *
+	 * @return false if some value appears twice in a region or a cell holds a value outside of 0 to N^2
+	 */
+	static boolean hasValidGivens(int[][] puzzle) {
+		int side = puzzle.length, boxSize = getBoxSize(side);
+		boolean[] present = new boolean[4 * side * side];
+		for (int row = 0; row < side; row++)
+			for (int col = 0; col < side; col++) {
+				int val = puzzle[row][col];
+				if (val == 0)
+					continue;
+				if (val < 0 || val > side)
+					return false;
+				int[] conditions = getConditionsFulfilled(row, col, val, boxSize);
+				for (int i = 1; i < conditions.length; i++) {
+					if (present[conditions[i]])
+						return false;
+					present[conditions[i]] = true;
+				}
+			}
+		return true;
 	}
 
 	/**
@@ -224,6 +653,60 @@ public abstract class SudokuManipulator {
 	//***** Inner Classes (matrix elements) *****//
 	//*******************************************//
 
+	/**
+	 * The exact cover engines a SudokuManipulator can solve with
+	 */
+	public enum Engine {
+		/** The original matrix made of Node and Header objects */
+		LINKED_NODES,
+		/** DancingLinksMatrix, which keeps the matrix in flat int arrays */
+		ARRAY_DANCING_LINKS,
+		/** BitboardEngine, which propagates singles over candidate bitmasks before branching */
+		BITBOARD;
+
+		/**
+		 * Creates a new instance of this engine for 9x9 boards
+		 *
+		 * @return A SudokuEngine with its own search state
+		 * @throws UnsupportedOperationException for LINKED_NODES, which only runs inside a SudokuManipulator
+		 */
+		public SudokuEngine newEngine() {
+			return newEngine(3);
+		}
+
+		/**
+		 * Creates a new instance of this engine for boards of a particular box size
+		 *
+		 * @param boxSize The side length of each box, which is 3 for a 9x9 board
+		 * @return A SudokuEngine with its own search state
+		 * @throws UnsupportedOperationException for LINKED_NODES, which only runs inside a SudokuManipulator,
+		 *                                       and for BITBOARD on anything other than a 9x9 board
+		 */
+		public SudokuEngine newEngine(int boxSize) {
+			switch (this) {
+				case ARRAY_DANCING_LINKS:
+					return DancingLinksMatrix.sudoku(boxSize);
+				case BITBOARD:
+					if (boxSize != 3)
+						throw new UnsupportedOperationException(this + " only solves 9x9 boards");
+					return new BitboardEngine();
+				default:
+					throw new UnsupportedOperationException(this + " is not available as a separate SudokuEngine");
+			}
+		}
+
+		/**
+		 * Gets the engine which stands in for this one on boards of a particular box size.
+		 * BITBOARD packs a cell's candidates into 9 bits, so ARRAY_DANCING_LINKS takes over on every other size
+		 *
+		 * @param boxSize The side length of each box, which is 3 for a 9x9 board
+		 * @return This engine, or the one used in its place
+		 */
+		public Engine forBoxSize(int boxSize) {
+			return this == BITBOARD && boxSize != 3 ? ARRAY_DANCING_LINKS : this;
+		}
+	}
+
 	class Node {
 		private Node up, down, left, right;
 		private ConditionHeader condition;
@@ -293,29 +776,14 @@ public abstract class SudokuManipulator {
 	}
 
 	protected abstract class Header {
-		private List<Node> nodes;
-
-		Header() {
-			setNodes(new ArrayList<>());
-		}
-
-		Node getFirstNode() {
-			return getNodes().get(0);
-		}
+		abstract Node getFirstNode();
 
 		public abstract void addNode(Node node);
-
-		List<Node> getNodes() {
-			return nodes;
-		}
-
-		Header setNodes(List<Node> nodes) {
-			this.nodes = nodes;
-			return this;
-		}
 	}
 
 	protected class PossibilityHeader extends Header {
+		// The rest of the possibility's Nodes are reached through the ring starting here, so no list of them is kept
+		private Node firstNode;
 		private int row, column, value;
 
 		PossibilityHeader(int row, int column, int value) {
@@ -324,10 +792,17 @@ public abstract class SudokuManipulator {
 			this.setValue(value);
 		}
 
+		@Override
+		Node getFirstNode() {
+			return firstNode;
+		}
+
 		@Override
 		public void addNode(Node node) {
-			getNodes().add(node);
-			Node firstNode = getNodes().get(0);
+			if (firstNode == null) {
+				firstNode = node;
+				return;
+			}
 			firstNode.getLeft().setRight(node);
 			node.setLeft(firstNode.getLeft());
 			node.setRight(firstNode);
@@ -365,24 +840,115 @@ public abstract class SudokuManipulator {
 	}
 
 	protected class ConditionHeader extends Header {
-		private ConditionHeader previousH, nextH;
+		private ConditionHeader previousH, nextH, previousB, nextB;
+		private final Node head;
+		private int size;
 
 		ConditionHeader() {
 			setPreviousH(setNextH(null));
+			previousB = nextB = this;
+			head = new Node(this, null);
+		}
+
+		@Override
+		Node getFirstNode() {
+			return head.getDown();
 		}
 
 		@Override
 		public void addNode(Node node) {
-			getNodes().add(node);
-			Node firstNode = getNodes().get(0);
-			firstNode.getUp().setDown(node);
-			node.setUp(firstNode.getUp());
-			node.setDown(firstNode);
-			firstNode.setUp(node);
+			head.getUp().setDown(node);
+			node.setUp(head.getUp());
+			node.setDown(head);
+			head.setUp(node);
+			size++;
+		}
+
+		/**
+		 * Gets the possibilities that still fulfill this condition, in the order their Nodes appear in it
+		 */
+		PossibilityHeader[] getPossibilities() {
+			PossibilityHeader[] possibilities = new PossibilityHeader[size];
+			int i = 0;
+			for (Node node = head.getDown(); node != head; node = node.getDown())
+				possibilities[i++] = node.getPossibility();
+			return possibilities;
+		}
+
+		/**
+		 * Unlinks a Node from this condition and moves the condition to the bucket for its new size
+		 */
+		void removeNode(Node node) {
+			node.getUp().setDown(node.getDown());
+			node.getDown().setUp(node.getUp());
+			leaveBucket();
+			joinBucket(sizeBuckets[--size]);
+		}
+
+		/**
+		 * Exactly reverses removeNode(node)
+		 */
+		void restoreNode(Node node) {
+			node.getUp().setDown(node);
+			node.getDown().setUp(node);
+			leaveBucket();
+			joinBucket(sizeBuckets[++size]);
+		}
+
+		/**
+		 * Appends this condition to the end of a size bucket
+		 */
+		void joinBucket(ConditionHeader bucket) {
+			previousB = bucket.previousB;
+			nextB = bucket;
+			bucket.previousB.nextB = this;
+			bucket.previousB = this;
+		}
+
+		/**
+		 * Removes this condition from whatever size bucket it's in
+		 */
+		void leaveBucket() {
+			previousB.nextB = nextB;
+			nextB.previousB = previousB;
+			previousB = nextB = this;
+		}
+
+		/**
+		 * Gets the first condition in the bucket headed by this sentinel
+		 *
+		 * @return The first condition or null if the bucket is empty
+		 */
+		ConditionHeader getFirstInBucket() {
+			return nextB == this ? null : nextB;
+		}
+
+		/**
+		 * Counts the conditions in the bucket headed by this sentinel
+		 */
+		int countInBucket() {
+			int count = 0;
+			for (ConditionHeader condition = nextB; condition != this; condition = condition.nextB)
+				count++;
+			return count;
+		}
+
+		/**
+		 * Gets a condition by its position in the bucket headed by this sentinel, counting from 0
+		 */
+		ConditionHeader getInBucket(int index) {
+			ConditionHeader condition = nextB;
+			while (index-- > 0)
+				condition = condition.nextB;
+			return condition;
 		}
 
 		//***** Accessors *****//
 
+		int getSize() {
+			return size;
+		}
+
 		ConditionHeader getPreviousH() {
 			return previousH;
 		}
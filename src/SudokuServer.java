@@ -0,0 +1,529 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves solve and generate requests over TCP with a line protocol, one request per line:
+ * <pre>
+ * SOLVE puzzle              the validity (0, 1, or 2) followed by a space and the solution, or "-" if there isn't one,
+ *                           or "x -" if the puzzle isn't one (puzzles are written like BatchSolver's lines)
+ * BATCH n                   followed by n puzzle lines, which are solved as one request with a result line each
+ * GENERATE [target] [box]   a new puzzle and its solution separated by a space, where the target is a clue count
+ *                           or a LogicalSolver.Difficulty (MINIMAL by default) and the box size is from 3 to 5 (3 by default)
+ * METRICS                   the server's counts and SolveMetrics.snapshot() as space separated name=value pairs
+ * QUIT                      closes the connection
+ * </pre>
+ * A request that can't be handled gets "ERR" followed by the reason. With a timeout (see setTimeout()), a SOLVE, BATCH,
+ * or GENERATE request which runs out of time on its worker gets "ERR timed out", and the worker moves on. Clients may pipeline requests, sending more before
+ * reading the responses, which always come back in request order.
+ * <p>
+ * Each connection is read by its own thread, a virtual thread when the runtime has them (Java 21 onwards) and
+ * otherwise a platform thread, while the solving is done by a fixed pool of worker threads, each keeping its own solvers.
+ * Only a fixed number of requests may wait for the workers at once. A connection with a request that doesn't fit waits
+ * for room before reading any more, so a client sending faster than the workers keep up is slowed down by TCP itself.
+ */
+public class SudokuServer implements Closeable {
+
+	//*********************//
+	//***** Constants *****//
+	//*********************//
+
+	/**
+	 * Port the command line server listens on unless told otherwise
+	 */
+	public static final int DEFAULT_PORT = 9001;
+
+	// Most requests a connection may have in flight before it stops reading to write responses
+	private static final int MAX_PIPELINED = 64;
+	// Most puzzles one BATCH request may hold
+	private static final int MAX_BATCH = 4096;
+	// Response to a request which ran out of time
+	private static final String TIMED_OUT = "ERR timed out";
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final SudokuManipulator.Engine engine;
+	private final ExecutorService workers;
+	private final ExecutorService connections;
+	private final boolean virtualThreads;
+	// Room for requests submitted to the workers but not yet finished
+	private final Semaphore permits;
+	private final ThreadLocal<ReusableSudokuSolver[]> solvers = ThreadLocal.withInitial(() -> new ReusableSudokuSolver[BatchSolver.MAX_BOX_SIZE + 1]);
+	private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+	private final CountDownLatch closed = new CountDownLatch(1);
+	private SolutionCache cache;
+	private Duration timeout;
+	private ServerSocket serverSocket;
+
+	private final LongAdder connectionCount = new LongAdder(), activeConnections = new LongAdder(), requests = new LongAdder(),
+		solved = new LongAdder(), generated = new LongAdder(), errors = new LongAdder(), saturated = new LongAdder(), timeouts = new LongAdder();
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor
+	 *
+	 * @param engine        The engine the workers solve with (any engine other than LINKED_NODES)
+	 * @param workerThreads The number of worker threads, normally one per CPU
+	 * @param queueCapacity The number of requests which can wait for a worker before connections have to wait too
+	 * @throws IllegalArgumentException if the engine is LINKED_NODES
+	 */
+	public SudokuServer(SudokuManipulator.Engine engine, int workerThreads, int queueCapacity) {
+		if (engine == SudokuManipulator.Engine.LINKED_NODES)
+			throw new IllegalArgumentException("LINKED_NODES can't be reused by the workers; use ARRAY_DANCING_LINKS or BITBOARD");
+		this.engine = engine;
+		workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+			Thread thread = new Thread(runnable, "sudoku-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		permits = new Semaphore(workerThreads + queueCapacity);
+		ExecutorService virtual = newVirtualThreadExecutor();
+		virtualThreads = virtual != null;
+		connections = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "sudoku-connection");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Solves every later 9x9 request through a cache, which can be shared with other solvers
+	 *
+	 * @param cache The cache, or null to solve every puzzle directly
+	 */
+	public SudokuServer setCache(SolutionCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Limits every later SOLVE, BATCH, or GENERATE request to a length of time, counted from when a worker starts on it,
+	 * so one pathological puzzle or a large generated board can't hold a worker while every other request queues behind it
+	 *
+	 * @param timeout The most time a worker spends on a request, or null for no limit
+	 * @throws IllegalArgumentException if the timeout isn't positive
+	 */
+	public SudokuServer setTimeout(Duration timeout) {
+		if (timeout != null && (timeout.isNegative() || timeout.isZero()))
+			throw new IllegalArgumentException("The timeout must be positive, not " + timeout);
+		this.timeout = timeout;
+		return this;
+	}
+
+	/**
+	 * Starts listening, accepting connections on a thread of its own until the server is closed
+	 *
+	 * @param address The address to listen on, where port 0 picks any free port (see getPort())
+	 * @throws IllegalStateException if the server was already started
+	 */
+	public synchronized SudokuServer start(InetSocketAddress address) throws IOException {
+		if (serverSocket != null)
+			throw new IllegalStateException("The server was already started");
+		serverSocket = new ServerSocket();
+		serverSocket.bind(address);
+		Thread acceptor = new Thread(this::acceptConnections, "sudoku-accept");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		return this;
+	}
+
+	/**
+	 * Waits until the server is closed
+	 */
+	public void awaitClose() throws InterruptedException {
+		closed.await();
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones, abandoning any requests still in flight
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if (serverSocket != null)
+				serverSocket.close();
+		} finally {
+			// Closing the sockets wakes up connection threads blocked reading them
+			for (Socket socket : openSockets)
+				try {
+					socket.close();
+				} catch (IOException e) {
+					// Already closing
+				}
+			connections.shutdownNow();
+			workers.shutdownNow();
+			closed.countDown();
+		}
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the port the server is listening on
+	 *
+	 * @return The port, or -1 if the server hasn't been started
+	 */
+	public synchronized int getPort() {
+		return serverSocket == null ? -1 : serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Checks whether each connection gets a virtual thread, which depends on the runtime
+	 */
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Gets the server's counts, then the cache's if there is one, then SolveMetrics.snapshot(), keyed by metric name.
+	 * server.saturated counts the requests which had to wait for room with the workers, and server.timeouts the ones which ran out of time
+	 */
+	public Map<String, Long> metrics() {
+		Map<String, Long> metrics = new LinkedHashMap<>();
+		metrics.put("server.connections", connectionCount.sum());
+		metrics.put("server.active_connections", activeConnections.sum());
+		metrics.put("server.requests", requests.sum());
+		metrics.put("server.solved", solved.sum());
+		metrics.put("server.generated", generated.sum());
+		metrics.put("server.errors", errors.sum());
+		metrics.put("server.saturated", saturated.sum());
+		metrics.put("server.timeouts", timeouts.sum());
+		metrics.put("server.virtual_threads", virtualThreads ? 1L : 0L);
+		if (cache != null) {
+			metrics.put("cache.hits", cache.getHits());
+			metrics.put("cache.misses", cache.getMisses());
+			metrics.put("cache.evictions", cache.getEvictions());
+		}
+		metrics.putAll(SolveMetrics.snapshot());
+		return metrics;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	private void acceptConnections() {
+		try {
+			while (true) {
+				Socket socket = serverSocket.accept();
+				connectionCount.increment();
+				connections.execute(() -> serve(socket));
+			}
+		} catch (IOException e) {
+			// The server socket was closed
+		}
+	}
+
+	/**
+	 * Reads requests from a connection until it's closed, handing each one to the workers and writing the responses in order.
+	 * Responses are written once the client has nothing more waiting to be read or too many requests are in flight,
+	 * so a pipelining client gets its responses in bulk and a client waiting on each response gets it at once
+	 */
+	private void serve(Socket socket) {
+		activeConnections.increment();
+		openSockets.add(socket);
+		try (socket;
+		     BufferedReader input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), 1 << 16);
+		     Writer output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), 1 << 16)) {
+			Queue<Future<String>> inFlight = new ArrayDeque<>();
+			String line;
+			while ((line = input.readLine()) != null) {
+				line = line.strip();
+				if (line.isEmpty())
+					continue;
+				requests.increment();
+				int space = line.indexOf(' ');
+				String command = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+				String argument = space < 0 ? "" : line.substring(space + 1).strip();
+				if (command.equals("QUIT"))
+					break;
+				inFlight.add(handle(command, argument, input));
+				while (inFlight.size() >= MAX_PIPELINED || (!inFlight.isEmpty() && !input.ready()))
+					writeResponse(inFlight.remove(), output);
+				if (!input.ready())
+					output.flush();
+			}
+			while (!inFlight.isEmpty())
+				writeResponse(inFlight.remove(), output);
+			output.flush();
+		} catch (SocketException e) {
+			// The client went away
+		} catch (IOException e) {
+			errors.increment();
+		} catch (InterruptedException e) {
+			// The server is closing
+		} finally {
+			openSockets.remove(socket);
+			activeConnections.decrement();
+		}
+	}
+
+	/**
+	 * Starts a request
+	 *
+	 * @param input The connection, which BATCH reads its puzzles from
+	 * @return The response line, or several lines for BATCH, once it's ready
+	 */
+	private Future<String> handle(String command, String argument, BufferedReader input) throws IOException, InterruptedException {
+		switch (command) {
+			case "SOLVE":
+				return submit(() -> solve(argument, newBudget()));
+			case "BATCH":
+				int count;
+				try {
+					count = Integer.parseInt(argument);
+				} catch (NumberFormatException e) {
+					return error("BATCH needs a count");
+				}
+				if (count < 1 || count > MAX_BATCH)
+					return error("A batch holds from 1 to " + MAX_BATCH + " puzzles");
+				String[] lines = new String[count];
+				for (int i = 0; i < count; i++)
+					if ((lines[i] = input.readLine()) == null)
+						throw new SocketException("The connection closed in the middle of a batch");
+				return submit(() -> {
+					// One budget covers the whole batch, which gets a single error line if it runs out
+					SolveBudget budget = newBudget();
+					StringBuilder results = new StringBuilder(count * 84);
+					for (int i = 0; i < count; i++) {
+						String result = solve(lines[i].strip(), budget);
+						if (result.equals(TIMED_OUT))
+							return result;
+						results.append(i == 0 ? "" : "\n").append(result);
+					}
+					return results.toString();
+				});
+			case "GENERATE":
+				String[] parts = argument.isEmpty() ? new String[0] : argument.split("\\s+");
+				String problem = checkGenerate(parts);
+				if (problem != null)
+					return error(problem);
+				return submit(() -> generate(parts));
+			case "METRICS":
+				StringBuilder metrics = new StringBuilder();
+				metrics().forEach((name, value) -> metrics.append(metrics.length() == 0 ? "" : " ").append(name).append('=').append(value));
+				return CompletableFuture.completedFuture(metrics.toString());
+			default:
+				return error("Unknown command " + command);
+		}
+	}
+
+	/**
+	 * Hands a request to the workers, first waiting for room if too many are already waiting for them
+	 */
+	private Future<String> submit(Callable<String> request) throws InterruptedException {
+		if (!permits.tryAcquire()) {
+			saturated.increment();
+			permits.acquire();
+		}
+		try {
+			return workers.submit(() -> {
+				try {
+					return request.call();
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private Future<String> error(String reason) {
+		errors.increment();
+		return CompletableFuture.completedFuture("ERR " + reason);
+	}
+
+	private void writeResponse(Future<String> response, Writer output) throws IOException, InterruptedException {
+		String result;
+		try {
+			result = response.get();
+		} catch (ExecutionException e) {
+			// Requests are checked before they reach the workers, so this is a bug rather than anything the client can fix
+			errors.increment();
+			result = "ERR internal error";
+		}
+		output.write(result);
+		output.write('\n');
+	}
+
+	/**
+	 * Makes the budget for a request a worker is starting on
+	 *
+	 * @return A budget with a deadline one timeout away, or null if there's no timeout
+	 */
+	private SolveBudget newBudget() {
+		return timeout == null ? null : new SolveBudget().setDeadline(System.nanoTime() + timeout.toNanos());
+	}
+
+	/**
+	 * Counts a request which ran out of time
+	 *
+	 * @return The response to send for it
+	 */
+	private String timedOut() {
+		errors.increment();
+		timeouts.increment();
+		return TIMED_OUT;
+	}
+
+	/**
+	 * Solves one puzzle line on a worker thread
+	 *
+	 * @param budget The request's budget, or null for none
+	 */
+	private String solve(String line, SolveBudget budget) {
+		// Puzzles stay in compact grids unless they go through the cache, which works on boards
+		Grid puzzle = Grid.read(line);
+		if (puzzle == null)
+			return "x -";
+		int side = puzzle.getSide(), validity;
+		Grid solution;
+		if (cache != null) {
+			int[][] board = new int[side][side];
+			SolutionCount count = cache.solve(puzzle.toArray(), board, budget);
+			if (count.getStatus().isBudgetExhausted())
+				return timedOut();
+			validity = (int) count.getCount();
+			solution = validity == 0 ? null : Grid.of(board);
+		} else {
+			int boxSize = puzzle.getBoxSize();
+			ReusableSudokuSolver[] solversBySize = solvers.get();
+			if (solversBySize[boxSize] == null)
+				solversBySize[boxSize] = new ReusableSudokuSolver(engine, boxSize);
+			ReusableSudokuSolver solver = solversBySize[boxSize].setBudget(budget);
+			validity = solver.solve(puzzle);
+			if (solver.getSolveStatus().isBudgetExhausted())
+				return timedOut();
+			solution = solver.getSolvedGrid();
+		}
+		solved.increment();
+		StringBuilder result = new StringBuilder((side * side) + 2).append(validity).append(' ');
+		return solution == null ? result.append('-').toString() : solution.appendTo(result).toString();
+	}
+
+	/**
+	 * Generates one puzzle on a worker thread
+	 *
+	 * @param parts The clue count or difficulty, then the box size, either of which may be left off, already checked by checkGenerate()
+	 */
+	private String generate(String[] parts) {
+		int boxSize = parts.length == 2 ? parseNumber(parts[1]) : 3;
+		SolveBudget budget = newBudget();
+		SudokuGenerator generator;
+		if (parts.length == 0)
+			generator = new SudokuGenerator(boxSize, SudokuGenerator.MINIMAL, ThreadLocalRandom.current(), null, budget);
+		else if (parseNumber(parts[0]) >= 0)
+			generator = new SudokuGenerator(boxSize, parseNumber(parts[0]), ThreadLocalRandom.current(), null, budget);
+		else
+			generator = new SudokuGenerator(boxSize, parseDifficulty(parts[0]), ThreadLocalRandom.current(), budget);
+		if (generator.getGenerationStatus() != SolutionCount.Status.EXACT)
+			return timedOut();
+		generated.increment();
+		StringBuilder result = new StringBuilder(2 * ((boxSize * boxSize * boxSize * boxSize) + 1));
+		BatchSolver.appendPuzzle(result, generator.getUnsolvedPuzzle()).append(' ');
+		return BatchSolver.appendPuzzle(result, generator.getSolvedPuzzle()).toString();
+	}
+
+	/**
+	 * Static helper method which checks the arguments of a GENERATE request before it goes to the workers
+	 *
+	 * @param parts The clue count or difficulty, then the box size, either of which may be left off
+	 * @return Why the request can't be handled, or null if it can
+	 */
+	private static String checkGenerate(String[] parts) {
+		if (parts.length > 2)
+			return "GENERATE takes a target and a box size";
+		int boxSize = 3;
+		if (parts.length == 2) {
+			// Only the sizes SOLVE reads back, so every generated puzzle can be sent back to be solved
+			boxSize = parseNumber(parts[1]);
+			if (boxSize < 3 || boxSize > BatchSolver.MAX_BOX_SIZE)
+				return "The box size must be from 3 to " + BatchSolver.MAX_BOX_SIZE;
+		}
+		int cells = boxSize * boxSize * boxSize * boxSize;
+		if (parts.length > 0 && parseDifficulty(parts[0]) == null && (parseNumber(parts[0]) < 0 || parseNumber(parts[0]) > cells))
+			return "The target must be a clue count from 0 to " + cells + ", or EASY, MEDIUM, HARD, EXPERT, or EXTREME";
+		return null;
+	}
+
+	/**
+	 * Static helper method which reads a number written with digits alone
+	 *
+	 * @return The number, or -1 if the text isn't one or is too long to be a sensible count
+	 */
+	private static int parseNumber(String text) {
+		if (text.isEmpty() || text.length() > 9)
+			return -1;
+		for (int i = 0; i < text.length(); i++)
+			if (text.charAt(i) < '0' || text.charAt(i) > '9')
+				return -1;
+		return Integer.parseInt(text);
+	}
+
+	/**
+	 * Static helper method which reads a difficulty by name, in any case
+	 *
+	 * @return The difficulty, or null if the text doesn't name one
+	 */
+	private static LogicalSolver.Difficulty parseDifficulty(String text) {
+		for (LogicalSolver.Difficulty difficulty : LogicalSolver.Difficulty.values())
+			if (difficulty.name().equalsIgnoreCase(text))
+				return difficulty;
+		return null;
+	}
+
+	/**
+	 * Static helper method which creates an executor starting a virtual thread per task, looked up reflectively
+	 * so the server still runs on runtimes from before virtual threads
+	 *
+	 * @return The executor, or null if the runtime doesn't have virtual threads
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Missing before Java 19, and unusable without preview features enabled before Java 21
+			return null;
+		}
+	}
+}
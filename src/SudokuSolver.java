@@ -3,7 +3,7 @@
  */
 public class SudokuSolver extends SudokuManipulator {
 	/**
-	 * Primary (and only) constructor
+	 * Primary constructor, which uses the engine selected with SudokuManipulator.setEngine()
 	 *
 	 * @param initialInfo 9x9 2D int array with all known puzzle cells filled in
 	 */
@@ -11,6 +11,82 @@ public class SudokuSolver extends SudokuManipulator {
 		super(initialInfo);
 	}
 
+	/**
+	 * Constructor which solves the puzzle with a particular engine
+	 *
+	 * @param initialInfo 9x9 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 */
+	public SudokuSolver(int[][] initialInfo, Engine engine) {
+		super(initialInfo, engine);
+	}
+
+	/**
+	 * Constructor which solves the puzzle with a particular engine, optionally without trying a LogicalSolver first.
+	 * Turning that off makes the engine do all the work, which is what comparisons between engines want
+	 *
+	 * @param initialInfo 9x9 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 * @param logicFirst  Whether to try the logical techniques first, which the other constructors always do
+	 */
+	public SudokuSolver(int[][] initialInfo, Engine engine, boolean logicFirst) {
+		super(initialInfo, engine, null, null, null, logicFirst);
+	}
+
+	/**
+	 * Constructor which solves a puzzle held in a Grid, using the engine selected with SudokuManipulator.setEngine()
+	 *
+	 * @param puzzle The puzzle, with 0s for the empty cells
+	 */
+	public SudokuSolver(Grid puzzle) {
+		super(puzzle.toArray());
+	}
+
+	/**
+	 * Constructor which solves a puzzle held in a Grid with a particular engine
+	 *
+	 * @param puzzle The puzzle, with 0s for the empty cells
+	 * @param engine The engine used to find the solutions
+	 */
+	public SudokuSolver(Grid puzzle, Engine engine) {
+		super(puzzle.toArray(), engine);
+	}
+
+	/**
+	 * Constructor which solves the puzzle with the engine selected with SudokuManipulator.setEngine(),
+	 * giving up once a budget runs out. getSolveStatus() tells whether it did
+	 *
+	 * @param initialInfo 9x9 2D int array with all known puzzle cells filled in
+	 * @param budget      The limits to search within
+	 */
+	public SudokuSolver(int[][] initialInfo, SolveBudget budget) {
+		super(initialInfo, getEngine(), budget);
+	}
+
+	/**
+	 * Constructor which solves the puzzle with a particular engine, giving up once a budget runs out
+	 *
+	 * @param initialInfo 9x9 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 * @param budget      The limits to search within
+	 */
+	public SudokuSolver(int[][] initialInfo, Engine engine, SolveBudget budget) {
+		super(initialInfo, engine, budget);
+	}
+
+	/**
+	 * Constructor which solves the puzzle with a particular engine and branching strategy, giving up once a budget runs out.
+	 * Puzzles the LogicalSolver finishes aren't searched, so the strategy only applies to the rest
+	 *
+	 * @param initialInfo 9x9 2D int array with all known puzzle cells filled in
+	 * @param engine      The engine used to find the solutions
+	 * @param budget      The limits to search within, or null for none
+	 * @param branching   How the search branches, or null for the engine's default
+	 */
+	public SudokuSolver(int[][] initialInfo, Engine engine, SolveBudget budget, BranchingStrategy branching) {
+		super(initialInfo, engine, null, budget, branching, true);
+	}
+
 	/**
 	 * Takes the provided condition and converts its list of Nodes into
 	 * an array of corresponding PossibilityHeaders that retain the original order
@@ -20,13 +96,33 @@ public class SudokuSolver extends SudokuManipulator {
 	 */
 	@Override
 	protected PossibilityHeader[] orderPossibilities(ConditionHeader condition) {
-		return condition.getNodes().stream().map(Node::getPossibility).toArray(PossibilityHeader[]::new);
+		return condition.getPossibilities();
+	}
+
+	/**
+	 * Leaves the possibilities in their original order
+	 *
+	 * @param possibilities The possibility indices being checked
+	 * @param count         The number of valid entries in possibilities
+	 */
+	@Override
+	protected void orderPossibilities(int[] possibilities, int count) {
+	}
+
+	/**
+	 * Tries a LogicalSolver first, so puzzles which need no guessing skip building the matrix,
+	 * unless it was constructed with logicFirst false
+	 */
+	@Override
+	protected boolean triesLogicFirst() {
+		return true;
 	}
 
 	/**
 	 * Checks whether the puzzle had a valid number of solutions
 	 *
-	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution.
+	 *         If the budget ran out (see getSolveStatus()), this is only the number of solutions found before then
 	 */
 	public int checkValidity() {
 		return solutionValidity;
@@ -0,0 +1,161 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * One of the symmetries of an N^2xN^2 sudoku board, which turn any puzzle into an equivalent one with the same number
+ * of solutions: an optional transposition, then a reordering of the rows and of the columns, then a relabeling of the values.
+ * <p>
+ * Rows may only be reordered by permuting the bands (each N rows high) and the rows within each band, and columns
+ * likewise by stacks, since anything else would break up the boxes. Cell (i, j) of a transformed grid holds
+ * relabel[v], where v is the value in row rowOrder[i] and column colOrder[j] of the grid, after transposing it if transpose is set.
+ */
+public final class SudokuTransform {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final boolean transpose;
+	private final int[] rowOrder, colOrder;
+	private final int[] relabel, unlabel;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor, which trusts the orders to keep bands and stacks together
+	 *
+	 * @param transpose Whether the grid is transposed before anything else
+	 * @param rowOrder  The row of the (transposed) grid which becomes each row
+	 * @param colOrder  The column of the (transposed) grid which becomes each column
+	 * @param relabel   The value each value becomes, indexed by value, with relabel[0] == 0 so empty cells stay empty
+	 */
+	SudokuTransform(boolean transpose, int[] rowOrder, int[] colOrder, int[] relabel) {
+		this.transpose = transpose;
+		this.rowOrder = rowOrder.clone();
+		this.colOrder = colOrder.clone();
+		this.relabel = relabel.clone();
+		unlabel = new int[relabel.length];
+		for (int val = 0; val < relabel.length; val++)
+			unlabel[relabel[val]] = val;
+	}
+
+	//**************************//
+	//***** Static Helpers *****//
+	//**************************//
+
+	/**
+	 * Static helper method which picks a transform of an N^2xN^2 board uniformly at random
+	 *
+	 * @param boxSize The side length of each box, so 3 for a 9x9 board
+	 * @param random  The source of randomness, which is only used by the calling thread
+	 * @return A new transform, which may be the identity
+	 */
+	public static SudokuTransform random(int boxSize, RandomGenerator random) {
+		int side = boxSize * boxSize;
+		int[] relabel = new int[side + 1];
+		int[] values = shuffle(side, random);
+		for (int val = 1; val <= side; val++)
+			relabel[val] = values[val - 1] + 1;
+		return new SudokuTransform(random.nextBoolean(), randomOrder(boxSize, random), randomOrder(boxSize, random), relabel);
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Transforms a grid
+	 *
+	 * @param grid N^2xN^2 2D int array with 0 for empty cells
+	 * @return A new grid holding the transformed grid
+	 */
+	public int[][] apply(int[][] grid) {
+		int side = rowOrder.length;
+		int[][] transformed = new int[side][side];
+		for (int i = 0; i < side; i++)
+			for (int j = 0; j < side; j++)
+				transformed[i][j] = relabel[grid[sourceRow(i, j)][sourceCol(i, j)]];
+		return transformed;
+	}
+
+	/**
+	 * Reverses the transform, so invert(apply(grid)) is the same as grid
+	 *
+	 * @param transformed N^2xN^2 2D int array which this transform produced
+	 * @return A new grid holding the grid the transformed one came from
+	 */
+	public int[][] invert(int[][] transformed) {
+		int side = rowOrder.length;
+		int[][] grid = new int[side][side];
+		for (int i = 0; i < side; i++)
+			for (int j = 0; j < side; j++)
+				grid[sourceRow(i, j)][sourceCol(i, j)] = unlabel[transformed[i][j]];
+		return grid;
+	}
+
+	//***********************//
+	//***** Cell Arrays *****//
+	//***********************//
+
+	/**
+	 * Transforms a grid into cells stored row by row, one byte per cell
+	 */
+	void apply(int[][] grid, byte[] cells) {
+		int side = rowOrder.length;
+		for (int i = 0; i < side; i++)
+			for (int j = 0; j < side; j++)
+				cells[(i * side) + j] = (byte) relabel[grid[sourceRow(i, j)][sourceCol(i, j)]];
+	}
+
+	/**
+	 * Reverses the transform of cells stored row by row, writing the original grid into a board the caller owns
+	 */
+	void invert(byte[] cells, int[][] grid) {
+		int side = rowOrder.length;
+		for (int i = 0; i < side; i++)
+			for (int j = 0; j < side; j++)
+				grid[sourceRow(i, j)][sourceCol(i, j)] = unlabel[cells[(i * side) + j]];
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	/**
+	 * Static helper method which orders the lines of a board by shuffling its bands, then the lines within each band
+	 */
+	private static int[] randomOrder(int boxSize, RandomGenerator random) {
+		int[] order = new int[boxSize * boxSize];
+		int[] bands = shuffle(boxSize, random);
+		for (int band = 0; band < boxSize; band++) {
+			int[] lines = shuffle(boxSize, random);
+			for (int line = 0; line < boxSize; line++)
+				order[(band * boxSize) + line] = (bands[band] * boxSize) + lines[line];
+		}
+		return order;
+	}
+
+	/**
+	 * Static helper method which shuffles 0 to n - 1 with a Fisher-Yates shuffle
+	 */
+	private static int[] shuffle(int n, RandomGenerator random) {
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1), swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		return order;
+	}
+
+	private int sourceRow(int i, int j) {
+		return transpose ? colOrder[j] : rowOrder[i];
+	}
+
+	private int sourceCol(int i, int j) {
+		return transpose ? rowOrder[i] : colOrder[j];
+	}
+}
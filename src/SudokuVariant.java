@@ -0,0 +1,285 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the exact cover for a sudoku board, plain or with variant rules, and solves puzzles on it with the same
+ * dancing links search as ARRAY_DANCING_LINKS. Every variant is only a different set of columns:
+ * <ul>
+ * <li>The plain board has a cell, row, column, and box column for each value, which is what the sudoku engines search</li>
+ * <li>withDiagonals() (sudoku X) adds a column for each value on each main diagonal</li>
+ * <li>withWindows() (windoku) adds a column for each value in each extra box set one cell in from the corners</li>
+ * <li>withRegions() (jigsaw) replaces the box columns with columns for irregular regions</li>
+ * <li>withCage() (killer) adds a column for the cage's choice of values and a column for each value in the cage,
+ * along with a row for each set of distinct values adding up to the cage's sum. That row covers the choice and every
+ * value outside the set, which leaves the cage's cells to cover exactly the values in the set</li>
+ * </ul>
+ * Cell rows are numbered like SudokuManipulator's possibilities, (N^4 * row) + (N^2 * col) + (val - 1),
+ * and the rows for the cages' sets of values come after them.
+ * <p>
+ * The matrix is built on the first solve after the rules last changed and reused by every solve after that,
+ * so an instance isn't thread safe.
+ */
+public final class SudokuVariant {
+
+	//******************//
+	//***** Fields *****//
+	//******************//
+
+	private final int boxSize, side;
+	private boolean diagonals, windows;
+	// The region of each cell, row by row, or null for the standard boxes
+	private int[] regions;
+	private final List<int[]> cages = new ArrayList<>();
+	private final List<Integer> cageSums = new ArrayList<>();
+	private DancingLinksMatrix matrix;
+
+	//************************//
+	//***** Constructors *****//
+	//************************//
+
+	/**
+	 * Primary constructor, which starts from the plain rules
+	 *
+	 * @param boxSize The side length of each box, so 3 for a 9x9 board
+	 */
+	public SudokuVariant(int boxSize) {
+		if (boxSize < 1)
+			throw new IllegalArgumentException("The box size must be at least 1, not " + boxSize);
+		this.boxSize = boxSize;
+		side = boxSize * boxSize;
+	}
+
+	//*****************//
+	//***** Rules *****//
+	//*****************//
+
+	/**
+	 * Requires every value once on each of the two main diagonals, as in sudoku X
+	 */
+	public SudokuVariant withDiagonals() {
+		diagonals = true;
+		matrix = null;
+		return this;
+	}
+
+	/**
+	 * Requires every value once in each of the (N - 1)^2 extra boxes starting one cell in from the top left corner
+	 * and spaced one cell apart, as in windoku. On a 9x9 board these are the four boxes starting at (1, 1), (1, 5), (5, 1), and (5, 5)
+	 */
+	public SudokuVariant withWindows() {
+		windows = true;
+		matrix = null;
+		return this;
+	}
+
+	/**
+	 * Replaces the boxes with irregular regions, as in jigsaw sudoku
+	 *
+	 * @param regions N^2xN^2 2D int array holding the region of each cell, from 0 to N^2 - 1, with N^2 cells in every region
+	 * @throws IllegalArgumentException if the array is the wrong size or a region doesn't have N^2 cells
+	 */
+	public SudokuVariant withRegions(int[][] regions) {
+		if (regions.length != side)
+			throw new IllegalArgumentException("Expected " + side + " rows of regions, not " + regions.length);
+		int[] cellRegions = new int[side * side], sizes = new int[side];
+		for (int row = 0; row < side; row++) {
+			if (regions[row].length != side)
+				throw new IllegalArgumentException("Expected " + side + " regions in row " + row + ", not " + regions[row].length);
+			for (int col = 0; col < side; col++) {
+				int region = regions[row][col];
+				if (region < 0 || region >= side)
+					throw new IllegalArgumentException("Region " + region + " isn't between 0 and " + (side - 1));
+				cellRegions[(row * side) + col] = region;
+				sizes[region]++;
+			}
+		}
+		for (int region = 0; region < side; region++)
+			if (sizes[region] != side)
+				throw new IllegalArgumentException("Region " + region + " has " + sizes[region] + " cells instead of " + side);
+		this.regions = cellRegions;
+		matrix = null;
+		return this;
+	}
+
+	/**
+	 * Adds a killer cage, whose values can't repeat and must add up to a sum
+	 *
+	 * @param sum   The total of the cage's values
+	 * @param cells The cells of the cage, numbered (row * N^2) + col, none of which is already in a cage
+	 * @throws IllegalArgumentException if a cell doesn't exist or is already caged, or no distinct values could add up to the sum
+	 */
+	public SudokuVariant withCage(int sum, int... cells) {
+		if (cells.length == 0 || cells.length > side)
+			throw new IllegalArgumentException("A cage needs between 1 and " + side + " cells, not " + cells.length);
+		for (int i = 0; i < cells.length; i++) {
+			if (cells[i] < 0 || cells[i] >= side * side)
+				throw new IllegalArgumentException("No cell " + cells[i] + " on a " + side + "x" + side + " board");
+			for (int j = 0; j < i; j++)
+				if (cells[j] == cells[i])
+					throw new IllegalArgumentException("Cell " + cells[i] + " appears twice in one cage");
+			for (int[] cage : cages)
+				for (int caged : cage)
+					if (caged == cells[i])
+						throw new IllegalArgumentException("Cell " + cells[i] + " is already in a cage");
+		}
+		if (sum < minimumSum(cells.length) || sum > maximumSum(cells.length))
+			throw new IllegalArgumentException("No " + cells.length + " distinct values add up to " + sum);
+		cages.add(cells.clone());
+		cageSums.add(sum);
+		matrix = null;
+		return this;
+	}
+
+	//**************************//
+	//***** Public Methods *****//
+	//**************************//
+
+	/**
+	 * Finds up to two solutions to a puzzle under these rules
+	 *
+	 * @param givens   N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param solution N^2xN^2 2D int array which the first solution found is written into
+	 * @return 0 if the puzzle had zero solutions, 1 if the puzzle had exactly one solution, 2 if the puzzle had more than one solution
+	 * @throws IllegalArgumentException if the board isn't the variant's size
+	 */
+	public int solve(int[][] givens, int[][] solution) {
+		return matrix().solve(givens, solution, SudokuEngine.NATURAL_ORDER);
+	}
+
+	/**
+	 * Counts the solutions to a puzzle under these rules, up to a limit
+	 *
+	 * @param givens N^2xN^2 2D int array with all known puzzle cells filled in
+	 * @param limit  The number of solutions after which counting stops
+	 * @return The number of solutions found and whether that's all of them
+	 * @throws IllegalArgumentException if the board isn't the variant's size
+	 */
+	public SolutionCount countSolutions(int[][] givens, long limit) {
+		return matrix().countSolutions(givens, limit, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Builds the exact cover for these rules. Columns come in blocks of N^2, one column per value: cells, rows,
+	 * columns, boxes or regions, then the diagonals and windows if they're required. Each cage follows with
+	 * its choice column and then a column per value
+	 */
+	public ExactCover toExactCover() {
+		int cells = side * side, windowCount = windows ? (boxSize - 1) * (boxSize - 1) : 0;
+		int diagonalColumns = 4 * cells, windowColumns = diagonalColumns + (diagonals ? 2 * side : 0);
+		int cageColumns = windowColumns + (windowCount * side);
+		int[] cageOf = cageOf();
+		ExactCover cover = new ExactCover(cageColumns + (cages.size() * (side + 1)), 0);
+		int[] columns = new int[8];
+		for (int row = 0; row < side; row++)
+			for (int col = 0; col < side; col++)
+				for (int val = 1; val <= side; val++) {
+					int[] standard = SudokuManipulator.getConditionsFulfilled(row, col, val, boxSize);
+					System.arraycopy(standard, 0, columns, 0, standard.length);
+					int count = standard.length, cell = (row * side) + col;
+					if (regions != null)
+						columns[3] = (3 * cells) + (val - 1) + (regions[cell] * side);
+					if (diagonals && row == col)
+						columns[count++] = diagonalColumns + (val - 1);
+					if (diagonals && row + col == side - 1)
+						columns[count++] = diagonalColumns + side + (val - 1);
+					int window = windowOf(row, col);
+					if (windows && window >= 0)
+						columns[count++] = windowColumns + (window * side) + (val - 1);
+					if (cageOf[cell] >= 0)
+						columns[count++] = cageColumns + (cageOf[cell] * (side + 1)) + val;
+					cover.addRow(Arrays.copyOf(columns, count));
+				}
+		for (int cage = 0; cage < cages.size(); cage++)
+			addValueSets(cover, cageColumns + (cage * (side + 1)), cages.get(cage).length, cageSums.get(cage), 1, 0);
+		return cover;
+	}
+
+	//*********************//
+	//***** Accessors *****//
+	//*********************//
+
+	/**
+	 * Gets the side length of the board
+	 */
+	public int getSide() {
+		return side;
+	}
+
+	//***************************//
+	//***** Private Methods *****//
+	//***************************//
+
+	private DancingLinksMatrix matrix() {
+		if (matrix == null)
+			matrix = DancingLinksMatrix.sudoku(this);
+		return matrix;
+	}
+
+	/**
+	 * Adds a row for each set of distinct values from next up which completes a cage, covering the cage's choice
+	 * column and the columns of the values outside the set
+	 *
+	 * @param choiceColumn The cage's choice column, which its value columns follow
+	 * @param cells        The number of values still to add to the set
+	 * @param sum          The total those values still have to add up to
+	 * @param next         The smallest value which can still be added
+	 * @param set          The values added so far, with bit (val - 1) set for each
+	 */
+	private void addValueSets(ExactCover cover, int choiceColumn, int cells, int sum, int next, int set) {
+		if (cells == 0) {
+			if (sum != 0)
+				return;
+			int[] columns = new int[1 + side - Integer.bitCount(set)];
+			int count = 0;
+			columns[count++] = choiceColumn;
+			for (int val = 1; val <= side; val++)
+				if ((set & (1 << (val - 1))) == 0)
+					columns[count++] = choiceColumn + val;
+			cover.addRow(columns);
+			return;
+		}
+		// The smallest values left have to fit under the sum
+		for (int val = next; val <= side && (cells * val) + (cells * (cells - 1) / 2) <= sum; val++)
+			addValueSets(cover, choiceColumn, cells - 1, sum - val, val + 1, set | (1 << (val - 1)));
+	}
+
+	/**
+	 * Finds the window holding a cell
+	 *
+	 * @return The window, numbered row by row, or -1 if the cell isn't in one
+	 */
+	private int windowOf(int row, int col) {
+		int windowRow = windowLine(row), windowCol = windowLine(col);
+		return windowRow < 0 || windowCol < 0 ? -1 : (windowRow * (boxSize - 1)) + windowCol;
+	}
+
+	/**
+	 * Finds the band of windows holding a row, or the stack holding a column, since windows start one line into
+	 * each box after the first and a line between each
+	 */
+	private int windowLine(int line) {
+		int window = (line - 1) / (boxSize + 1), offset = (line - 1) % (boxSize + 1);
+		return line < 1 || window >= boxSize - 1 || offset >= boxSize ? -1 : window;
+	}
+
+	/**
+	 * Lists the cage of each cell, row by row, with -1 for cells outside every cage
+	 */
+	private int[] cageOf() {
+		int[] cageOf = new int[side * side];
+		Arrays.fill(cageOf, -1);
+		for (int cage = 0; cage < cages.size(); cage++)
+			for (int cell : cages.get(cage))
+				cageOf[cell] = cage;
+		return cageOf;
+	}
+
+	private int minimumSum(int cells) {
+		return cells * (cells + 1) / 2;
+	}
+
+	private int maximumSum(int cells) {
+		return cells * ((2 * side) - cells + 1) / 2;
+	}
+}